@@ -0,0 +1,77 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.phasebalance.model.User;
+import java.util.*;
+
+/**
+ * 基准测试用的合成台区数据
+ * 按给定的用户数、回路数、每回路支线数和动力用户比例生成用户，
+ * 再从全部支线中随机取出一部分作为支线组。相同的参数和种子总是生成相同的数据
+ */
+public final class FeederGenerator
+{
+    private FeederGenerator()
+    {
+    }
+
+    // 生成用户：普通用户的电量一半为1~6、一半为1~31，随机接在某一相上；
+    // 动力用户三相均有电量，每相5~25
+    public static List<User> generateUsers(int userCount, int routeCount, int branchesPerRoute,
+                                           double powerUserShare, long seed)
+    {
+        Random random = new Random(seed);
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++)
+        {
+            String routeNumber = String.valueOf(1 + random.nextInt(routeCount));
+            String branchNumber = String.valueOf(1 + random.nextInt(branchesPerRoute));
+            boolean isPowerPhase = random.nextDouble() < powerUserShare;
+
+            double phaseA = 0.0;
+            double phaseB = 0.0;
+            double phaseC = 0.0;
+            byte currentPhase;
+            if (isPowerPhase)
+            {
+                phaseA = 5 + random.nextDouble() * 20;
+                phaseB = 5 + random.nextDouble() * 20;
+                phaseC = 5 + random.nextDouble() * 20;
+                currentPhase = 1;
+            }
+            else
+            {
+                double power = 1 + random.nextDouble() * (random.nextDouble() < 0.5 ? 5 : 30);
+                // 偏向A相，使初始状态明显不平衡
+                int phase = random.nextDouble() < 0.5 ? 0 : 1 + random.nextInt(2);
+                currentPhase = (byte) (phase + 1);
+                if (phase == 0) phaseA = power;
+                else if (phase == 1) phaseB = power;
+                else phaseC = power;
+            }
+
+            users.add(new User("U" + i, "用户" + i, routeNumber, branchNumber,
+                phaseA + phaseB + phaseC, phaseA, phaseB, phaseC, currentPhase, isPowerPhase));
+        }
+        return users;
+    }
+
+    // 从全部支线中随机取出groupShare比例的支线作为支线组
+    public static List<BranchGroup> generateBranchGroups(int routeCount, int branchesPerRoute,
+                                                         double groupShare, long seed)
+    {
+        Random random = new Random(seed);
+        List<BranchGroup> groups = new ArrayList<>();
+        for (int route = 1; route <= routeCount; route++)
+        {
+            for (int branch = 1; branch <= branchesPerRoute; branch++)
+            {
+                if (random.nextDouble() < groupShare)
+                {
+                    groups.add(new BranchGroup(String.valueOf(route), String.valueOf(branch)));
+                }
+            }
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.algorithm.PhaseBalancer.Solution;
+import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.phasebalance.model.User;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 遗传算子的微基准测试
+ * 在同一份合成数据上初始化一个种群，分别测量适应度评估、交叉、变异、修复和局部搜索的吞吐量。
+ * 位于算法包内，直接调用PhaseBalancer中包内可见的各个算子；关闭并行评估，只测单线程开销。
+ * 修复和局部搜索会改变输入，每次调用先从模板复制一份，copyOnly给出复制本身的开销作为参照。
+ * 运行时加上 -prof gc 可同时得到每次调用的分配量（gc.alloc.rate.norm）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneticOperatorBenchmark
+{
+    @Param({ "1000", "10000", "100000" })
+    public int userCount;
+
+    @Param({ "0.1" })
+    public double groupShare;       // 作为支线组的支线比例
+
+    @Param({ "0.1" })
+    public double powerUserShare;   // 动力用户比例
+
+    private static final int ROUTE_COUNT = 5;
+    private static final int BRANCHES_PER_ROUTE = 20;
+
+    private BalanceProblem problem;
+    private PhaseBalancer balancer;
+    private PopulationArena arena;
+    private Random random;
+    private List<Solution> population;     // 交叉、变异在此种群上原位进行
+    private Solution bestTemplate;         // 局部搜索的输入
+    private Solution overChangedTemplate;  // 调整用户数超限的解，修复的输入
+    private Solution scratch;              // 每次调用复制模板得到的工作解
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        List<User> users = FeederGenerator.generateUsers(userCount, ROUTE_COUNT, BRANCHES_PER_ROUTE, powerUserShare, 42L);
+        List<BranchGroup> groups = FeederGenerator.generateBranchGroups(ROUTE_COUNT, BRANCHES_PER_ROUTE, groupShare, 42L);
+        problem = new BalanceProblem(users, groups);
+        balancer = new PhaseBalancer(problem);
+        balancer.setParallelEvaluation(false);
+        arena = new PopulationArena(problem.userCount, problem.getGroupCount());
+        random = new Random(42L);
+
+        population = balancer.initializePopulation(balancer.getPopulationSize(), random);
+        balancer.calculateFitness(population);
+        bestTemplate = new Solution(Collections.min(population, (s1, s2) -> Double.compare(s1.getFitness(), s2.getFitness())));
+
+        // 把一半普通用户移到下一相，调整比例超过最大限制40%
+        overChangedTemplate = new Solution(bestTemplate);
+        for (int i = 0; i < problem.userCount; i += 2)
+        {
+            if (!problem.isPowerUser(i))
+            {
+                byte phase = (byte) (problem.currentPhases[i] % 3 + 1);
+                balancer.setUserGene(overChangedTemplate, i, phase, (byte) 1);
+            }
+        }
+        scratch = new Solution(bestTemplate);
+    }
+
+    // 全量计算一个解的三相电量、调整用户数和适应度
+    @Benchmark
+    public double fullEvaluation()
+    {
+        balancer.recalculateSolution(scratch);
+        return scratch.getFitness();
+    }
+
+    // 增量评估：改变一个用户的相位再改回，每次调用包含两次基因更新
+    @Benchmark
+    public double deltaEvaluation()
+    {
+        int index = random.nextInt(problem.userCount);
+        byte phase = scratch.getPhase(index);
+        byte moves = scratch.getMoves(index);
+        balancer.setUserGene(scratch, index, (byte) (phase % 3 + 1), (byte) 1);
+        double fitness = scratch.getFitness();
+        balancer.setUserGene(scratch, index, phase, moves);
+        return fitness;
+    }
+
+    // 对整个种群做一轮交叉
+    @Benchmark
+    public List<Solution> crossover()
+    {
+        return balancer.crossover(population, random);
+    }
+
+    // 对整个种群做一轮变异，变异率取初始值1%
+    @Benchmark
+    public List<Solution> mutation()
+    {
+        balancer.mutation(population, random, arena, 0.01);
+        return population;
+    }
+
+    @Benchmark
+    public Solution copyOnly()
+    {
+        scratch.copyFrom(overChangedTemplate);
+        return scratch;
+    }
+
+    @Benchmark
+    public Solution repair()
+    {
+        scratch.copyFrom(overChangedTemplate);
+        balancer.repairSolution(scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public Solution localSearch()
+    {
+        scratch.copyFrom(bestTemplate);
+        balancer.localSearch(scratch);
+        return scratch;
+    }
+}
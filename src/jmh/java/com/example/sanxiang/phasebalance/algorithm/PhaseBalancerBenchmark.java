@@ -0,0 +1,59 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.phasebalance.model.User;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 完整优化的基准测试
+ * 每次调用在同一份合成数据上新建PhaseBalancer并运行一次optimize()，
+ * 包含构建BalanceProblem、初始化种群和全部迭代，单次耗时以秒计，因此使用单次计时模式。
+ * 运行时加上 -prof gc 可同时得到分配速率（gc.alloc.rate）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PhaseBalancerBenchmark
+{
+    @Param({ "1000", "10000", "100000" })
+    public int userCount;
+
+    @Param({ "5" })
+    public int routeCount;
+
+    @Param({ "20" })
+    public int branchesPerRoute;
+
+    @Param({ "0.1" })
+    public double groupShare;       // 作为支线组的支线比例
+
+    @Param({ "0.1" })
+    public double powerUserShare;   // 动力用户比例
+
+    private List<User> users;
+    private List<BranchGroup> branchGroups;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        users = FeederGenerator.generateUsers(userCount, routeCount, branchesPerRoute, powerUserShare, 42L);
+        branchGroups = FeederGenerator.generateBranchGroups(routeCount, branchesPerRoute, groupShare, 42L);
+    }
+
+    @Benchmark
+    public PhaseBalancer.Solution optimize()
+    {
+        return new PhaseBalancer(users, branchGroups).optimize();
+    }
+
+    @Benchmark
+    public BalanceProblem buildProblem()
+    {
+        return new BalanceProblem(users, branchGroups);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.sanxiang.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 不平衡度和线路损耗计算的微基准测试
+ * 每次调用对一组预先生成的三相电量逐个计算，避免常量折叠；
+ * 结果以每秒计算的组数衡量（OperationsPerInvocation）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorBenchmark
+{
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final double[] phaseA = new double[SAMPLE_COUNT];
+    private final double[] phaseB = new double[SAMPLE_COUNT];
+    private final double[] phaseC = new double[SAMPLE_COUNT];
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        Random random = new Random(42L);
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            phaseA[i] = random.nextDouble() * 1000;
+            phaseB[i] = random.nextDouble() * 1000;
+            phaseC[i] = random.nextDouble() * 1000;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_COUNT)
+    public void unbalanceRate(Blackhole blackhole)
+    {
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            blackhole.consume(UnbalanceCalculator.calculateUnbalanceRate(phaseA[i], phaseB[i], phaseC[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLE_COUNT)
+    public void lineLossCoefficient(Blackhole blackhole)
+    {
+        for (int i = 0; i < SAMPLE_COUNT; i++)
+        {
+            blackhole.consume(PowerLossCalculator.calculateLineLossCoefficient(phaseA[i], phaseB[i], phaseC[i]));
+        }
+    }
+}
@@ -29,7 +29,7 @@ import com.example.sanxiang.userdata.UserDataActivity;
 import com.example.sanxiang.prediction.PredictionActivity;
 import com.example.sanxiang.phasebalance.PhaseBalanceActivity;
 import com.example.sanxiang.db.DatabaseHelper;
-import com.example.sanxiang.userdata.model.UserData;
+import com.example.sanxiang.util.CsvImportPipeline;
 import com.chaquo.python.Python;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.XAxis;
@@ -39,7 +39,7 @@ import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
@@ -52,7 +52,6 @@ public class MainActivity extends AppCompatActivity
 {
     private static final String TAG = "MainActivity";  // 添加日志标签
     private static final int PERMISSION_REQUEST_CODE = 1;
-    private static final int MAX_FILE_SIZE = 10 * 1024 * 1024;  // 10MB 文件大小限制
     
     private DatabaseHelper dbHelper;    // 数据库帮助类
     private LineChart lineChart;        // 图表视图
@@ -116,17 +115,20 @@ public class MainActivity extends AppCompatActivity
                             
                             if (!uris.isEmpty())
                             {
-                                // 在主线程中显示进度对话框
+                                CsvImportPipeline pipeline = createImportPipeline(uris);
+                                
+                                // 在主线程中显示进度对话框，取消后已经写入的日期保留
                                 AlertDialog progressDialog = new AlertDialog.Builder(this)
                                     .setTitle("正在导入数据")
                                     .setMessage("正在处理文件：0/" + uris.size())
                                     .setCancelable(false)
+                                    .setNegativeButton("取消", (dialog, which) -> pipeline.cancel())
                                     .create();
                                 progressDialog.show();
                                 
                                 // 在后台线程中处理文件
                                 new Thread(() -> {
-                                    processFiles(uris, progressDialog);
+                                    processFiles(pipeline, progressDialog);
                                 }).start();
                             }
                         }
@@ -290,159 +292,74 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
-    //处理文件，导入数据库
-    private void processFiles(List<Uri> uris, AlertDialog progressDialog)
+    //创建导入流水线，每个文件在读取线程中打开
+    private CsvImportPipeline createImportPipeline(List<Uri> uris)
     {
-        // 在后台线程中处理数据
-        Map<String, Map<String, List<UserData>>> dateUserGroupedData = new HashMap<>();
-        int totalFiles = uris.size();
-        int successCount = 0;
-
-        try 
+        List<CsvImportPipeline.Source> sources = new ArrayList<>();
+        for (Uri uri : uris)
         {
-            // 读取所有文件数据
-            for (int fileIndex = 0; fileIndex < uris.size(); fileIndex++)
-            {
-                Uri uri = uris.get(fileIndex);
-                if (uri == null) continue;
-
-                // 更新进度对话框
-                int currentFileIndex = fileIndex;
-                progressDialog.setMessage(String.format("正在处理文件：%d/%d", currentFileIndex + 1, totalFiles));
-
-                // 处理文件
-                if (processFile(uri, dateUserGroupedData))
+            if (uri == null) continue;
+            sources.add(() -> {
+                InputStream inputStream = getContentResolver().openInputStream(uri);
+                if (inputStream == null)
                 {
-                    successCount++;
-                    Log.i(TAG, "成功导入文件：" + uri);
+                    throw new IOException("无法打开文件：" + uri);
                 }
-            }
-
-            // 导入数据到数据库
-            dbHelper.importBatchData(dateUserGroupedData);
-
-            // 返回主线程更新UI
-            int finalSuccessCount = successCount;
-            startActivity(new Intent(MainActivity.this, MainActivity.class));
-            finish();
-        }
-        catch (Exception e)
-        {
-            Log.e(TAG, "处理文件时出错", e);
-            startActivity(new Intent(MainActivity.this, MainActivity.class));
-            finish();
+                return new InputStreamReader(inputStream);
+            });
         }
+        // 同一次导入的各批共用导入前的总电量记录
+        Map<String, double[]> preImportTotals = new HashMap<>();
+        return new CsvImportPipeline(sources, batch -> dbHelper.importBatchData(batch, preImportTotals));
     }
 
-    private boolean processFile(Uri uri, Map<String, Map<String, List<UserData>>> dateUserGroupedData)
+    //处理文件，导入数据库
+    //读取解析、日期校验分组和写入数据库在不同线程中同时进行，当前线程负责写入
+    private void processFiles(CsvImportPipeline pipeline, AlertDialog progressDialog)
     {
-        InputStream inputStream = null;
-        BufferedReader reader = null;
-
-        try
+        try 
         {
-            inputStream = getContentResolver().openInputStream(uri);
-            if (inputStream == null)
-            {
-                Log.e(TAG, "无法打开文件：" + uri);
-                return false;
-            }
-
-            // 检查文件大小
-            long fileSize = inputStream.available();
-            if (fileSize > MAX_FILE_SIZE)
+            CsvImportPipeline.Progress result = pipeline.run(progress -> runOnUiThread(() -> {
+                progressDialog.setMessage(String.format("正在处理文件：%d/%d\n已写入%d行，%.0f行/秒",
+                    progress.getCurrentFile(), progress.getFileCount(),
+                    progress.getRowsWritten(), progress.getRowsPerSecond()));
+            }));
+
+            String message = result.getSummary();
+            if (result.getError() != null)
             {
-                Log.w(TAG, "文件过大：" + fileSize + " bytes");
-                return false;
-            }
-
-            // 处理文件内容
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-            String line;
-            int lineCount = 0;
-
-            // 跳过标题行
-            reader.readLine();
-
-            while ((line = reader.readLine()) != null)
-            {
-                lineCount++;
-                if (line.trim().isEmpty()) continue;
-
-                try
-                {
-                    String[] data = line.split(",");
-                    if (data.length < 9)
-                    {
-                        Log.w(TAG, "数据格式错误，行 " + lineCount + "：列数不足");
-                        continue;
-                    }
-
-                    // 验证数据
-                    String date = data[0].trim();
-                    String userId = data[1].trim();
-                    if (date.isEmpty() || userId.isEmpty())
-                    {
-                        Log.w(TAG, "数据格式错误，行 " + lineCount + "：日期或用户ID为空");
-                        continue;
-                    }
-
-                    try
-                    {
-                        // 验证电量数据是否为有效数字
-                        Double.parseDouble(data[6].trim());
-                        Double.parseDouble(data[7].trim());
-                        Double.parseDouble(data[8].trim());
-                    }
-                    catch (NumberFormatException e)
-                    {
-                        Log.w(TAG, "数据格式错误，行 " + lineCount + "：电量数据无效");
-                        continue;
-                    }
-
-                    UserData userData = new UserData();
-                    userData.setDate(date);
-                    userData.setUserId(userId);
-                    userData.setUserName(data[2].trim());
-                    userData.setRouteNumber(data[3].trim());
-                    userData.setBranchNumber(data[4].trim());
-                    userData.setPhase(data[5].trim());
-                    userData.setPhaseAPower(Double.parseDouble(data[6].trim()));
-                    userData.setPhaseBPower(Double.parseDouble(data[7].trim()));
-                    userData.setPhaseCPower(Double.parseDouble(data[8].trim()));
-
-                    dateUserGroupedData
-                        .computeIfAbsent(userData.getDate(), k -> new HashMap<>())
-                        .computeIfAbsent(userData.getUserId(), k -> new ArrayList<>())
-                        .add(userData);
-                }
-                catch (Exception e)
-                {
-                    Log.e(TAG, "处理数据行时出错，行 " + lineCount, e);
-                }
+                Log.e(TAG, "导入数据时出错", result.getError());
+                message += "\n\n错误：" + result.getError().getMessage();
             }
+            Log.i(TAG, result.getSummary());
 
-            return true;
+            // 返回主线程显示导入结果
+            showImportResult(result.getError() == null ? "导入完成" : "导入出错", message, progressDialog);
         }
         catch (Exception e)
         {
-            Log.e(TAG, "处理文件出错：" + uri, e);
-            return false;
-        }
-        finally
-        {
-            try
-            {
-                if (reader != null) reader.close();
-                if (inputStream != null) inputStream.close();
-            }
-            catch (Exception e)
-            {
-                Log.e(TAG, "关闭文件流时出错", e);
-            }
+            Log.e(TAG, "处理文件时出错", e);
+            showImportResult("导入出错", "处理文件时出错：" + e.getMessage(), progressDialog);
         }
     }
 
+    // 关闭进度对话框并显示导入结果，确认后重新加载界面
+    private void showImportResult(String title, String message, AlertDialog progressDialog)
+    {
+        runOnUiThread(() -> {
+            progressDialog.dismiss();
+            new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setMessage(message)
+                .setCancelable(false)
+                .setPositiveButton("确定", (dialog, which) -> {
+                    startActivity(new Intent(MainActivity.this, MainActivity.class));
+                    finish();
+                })
+                .show();
+        });
+    }
+
     //-----------------------------------查看数据-----------------------------------
     private void handleViewData() 
     {
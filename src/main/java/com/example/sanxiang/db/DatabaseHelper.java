@@ -4,14 +4,17 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import com.example.sanxiang.userdata.model.UserData;
 import com.example.sanxiang.phasebalance.model.User;
 import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.util.DateValidator;
 import com.example.sanxiang.util.UnbalanceCalculator;
 import android.content.ContentValues;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Collections;
 import java.util.Map;
@@ -21,13 +24,15 @@ import android.util.Log;
 public class DatabaseHelper extends SQLiteOpenHelper
 {
     private static final String DATABASE_NAME = "user_data.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 2;  // 版本2：各用户的user_data_<用户编号>表合并为readings表
     private static final String TABLE_USER_INFO = "user_info";  // 用户信息表
     private static final String TABLE_TOTAL_POWER = "total_power";  // 总电量表
     private static final String TABLE_PREDICTION = "prediction";  // 预测结果表
     private static final String TABLE_LAST_MODIFIED = "last_modified";  // 最后修改时间表
     private static final String TABLE_BRANCH_GROUP = "branch_group";  // 支线组表
     private static final String TABLE_OLD_DATA = "old_data";  // 旧数据表，记录相位调整信息
+    private static final String TABLE_READINGS = "readings";  // 用户电量表，所有用户每天的相位和三相电量
+    private static final String LEGACY_USER_DATA_PREFIX = "user_data_";  // 版本1中每个用户一张电量表的表名前缀
     private final Context context;
 
     // 列名常量
@@ -59,14 +64,21 @@ public class DatabaseHelper extends SQLiteOpenHelper
             COLUMN_ROUTE_NUMBER + " TEXT, " +
             COLUMN_BRANCH_NUMBER + " TEXT)";  // 支线编号
 
-    // 创建用户数据表的SQL模板
-    private static final String CREATE_USER_DATA_TABLE_TEMPLATE = 
-            "CREATE TABLE user_data_%s (" +
-            COLUMN_DATE + " TEXT PRIMARY KEY, " +  // 日期作为主键
+    // 创建用户电量表的SQL语句，主键(用户编号, 日期)用于按用户查询
+    private static final String CREATE_READINGS_TABLE = 
+            "CREATE TABLE IF NOT EXISTS " + TABLE_READINGS + " (" +
+            COLUMN_USER_ID + " TEXT NOT NULL, " +
+            COLUMN_DATE + " TEXT NOT NULL, " +
             COLUMN_PHASE + " TEXT, " +
             COLUMN_PHASE_A_POWER + " REAL, " +
             COLUMN_PHASE_B_POWER + " REAL, " +
-            COLUMN_PHASE_C_POWER + " REAL)";
+            COLUMN_PHASE_C_POWER + " REAL, " +
+            "PRIMARY KEY (" + COLUMN_USER_ID + ", " + COLUMN_DATE + "))";
+
+    // 按日期查询所有用户时使用的(日期, 用户编号)索引
+    private static final String CREATE_READINGS_DATE_INDEX = 
+            "CREATE INDEX IF NOT EXISTS idx_readings_date ON " + TABLE_READINGS + 
+            " (" + COLUMN_DATE + ", " + COLUMN_USER_ID + ")";
 
     // 创建总电量表的SQL语句
     private static final String CREATE_TOTAL_POWER_TABLE = 
@@ -145,6 +157,10 @@ public class DatabaseHelper extends SQLiteOpenHelper
             // 创建旧数据表
             db.execSQL(CREATE_OLD_DATA_TABLE);
             
+            // 创建用户电量表和日期索引
+            db.execSQL(CREATE_READINGS_TABLE);
+            db.execSQL(CREATE_READINGS_DATE_INDEX);
+            
             // 初始化最后修改时间
             ContentValues values = new ContentValues();
             values.put(COLUMN_MODIFIED_TIME, getCurrentTime());
@@ -162,8 +178,91 @@ public class DatabaseHelper extends SQLiteOpenHelper
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion)
     {
-        // 留空
         Log.d("DatabaseHelper", "数据库版本从 " + oldVersion + " 升级到 " + newVersion);
+        
+        // 升级在SQLiteOpenHelper的事务中执行，出错时整体回滚，下次打开时重新升级
+        if (oldVersion < 2)
+        {
+            migrateUserDataTables(db);
+        }
+    }
+
+    // 把版本1中每个用户的user_data_<用户编号>表复制到readings表，然后删除原表
+    private void migrateUserDataTables(SQLiteDatabase db)
+    {
+        db.execSQL(CREATE_READINGS_TABLE);
+        db.execSQL(CREATE_READINGS_DATE_INDEX);
+        
+        List<String> legacyTables = new ArrayList<>();
+        Cursor cursor = db.rawQuery(
+            "SELECT name FROM sqlite_master WHERE type='table' AND name LIKE ? ESCAPE '\\'",
+            new String[]{"user\\_data\\_%"}
+        );
+        try
+        {
+            while (cursor.moveToNext())
+            {
+                legacyTables.add(cursor.getString(0));
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        
+        for (String table : legacyTables)
+        {
+            String userId = table.substring(LEGACY_USER_DATA_PREFIX.length());
+            String quotedTable = "\"" + table.replace("\"", "\"\"") + "\"";
+            db.execSQL(
+                "INSERT OR REPLACE INTO " + TABLE_READINGS + " (" +
+                COLUMN_USER_ID + ", " + COLUMN_DATE + ", " + COLUMN_PHASE + ", " +
+                COLUMN_PHASE_A_POWER + ", " + COLUMN_PHASE_B_POWER + ", " + COLUMN_PHASE_C_POWER + ") " +
+                "SELECT ?, " + COLUMN_DATE + ", " + COLUMN_PHASE + ", " +
+                COLUMN_PHASE_A_POWER + ", " + COLUMN_PHASE_B_POWER + ", " + COLUMN_PHASE_C_POWER +
+                " FROM " + quotedTable,
+                new Object[]{userId}
+            );
+            db.execSQL("DROP TABLE " + quotedTable);
+        }
+        
+        // 导入时日期统一为yyyy-MM-dd，版本1中按原样保存的日期也转换为同一格式
+        standardizeDates(db, TABLE_READINGS);
+        standardizeDates(db, TABLE_TOTAL_POWER);
+        standardizeDates(db, TABLE_OLD_DATA);
+        
+        Log.d("DatabaseHelper", "已将" + legacyTables.size() + "个用户数据表合并到" + TABLE_READINGS + "表");
+    }
+
+    // 把表中的日期转换为yyyy-MM-dd格式，无法识别的日期保持不变。
+    // 转换后与已有的标准格式日期重复时，以转换的记录为准
+    private void standardizeDates(SQLiteDatabase db, String table)
+    {
+        List<String> dates = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT DISTINCT " + COLUMN_DATE + " FROM " + table, null);
+        try
+        {
+            while (cursor.moveToNext())
+            {
+                dates.add(cursor.getString(0));
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        
+        for (String date : dates)
+        {
+            String standardDate = DateValidator.standardizeDate(date);
+            if (standardDate != null && !standardDate.equals(date))
+            {
+                db.execSQL(
+                    "UPDATE OR REPLACE " + table + " SET " + COLUMN_DATE + " = ? WHERE " + COLUMN_DATE + " = ?",
+                    new Object[]{standardDate, date}
+                );
+            }
+        }
     }
 
     //-----------------------------------修改时间表函数-----------------------------------
@@ -546,31 +645,129 @@ public class DatabaseHelper extends SQLiteOpenHelper
     }
 
     //-----------------------------------导入数据函数-----------------------------------
-    // 批量导入数据
+    private static final int STORED_READING_QUERY_SIZE = 500;  // 查询已有电量数据时每条语句的用户数，SQLite默认最多999个参数
+
+    // 导入时每个日期一个事务，单个日期的数据写入失败时只回滚该日期，之前的日期已经提交
+    private static final String UPSERT_USER_INFO_SQL = 
+            "INSERT OR REPLACE INTO " + TABLE_USER_INFO + " (" +
+            COLUMN_USER_ID + ", " + COLUMN_USER_NAME + ", " + COLUMN_ROUTE_NUMBER + ", " + COLUMN_BRANCH_NUMBER +
+            ") VALUES (?, ?, ?, ?)";
+
+    private static final String UPSERT_READING_SQL = 
+            "INSERT OR REPLACE INTO " + TABLE_READINGS + " (" +
+            COLUMN_USER_ID + ", " + COLUMN_DATE + ", " + COLUMN_PHASE + ", " +
+            COLUMN_PHASE_A_POWER + ", " + COLUMN_PHASE_B_POWER + ", " + COLUMN_PHASE_C_POWER +
+            ") VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_OLD_DATA_SQL = 
+            "INSERT OR REPLACE INTO " + TABLE_OLD_DATA + " (" +
+            COLUMN_DATE + ", " + COLUMN_USER_ID + ", " + COLUMN_OLD_PHASE + ", " + COLUMN_NEW_PHASE + ", " +
+            COLUMN_PHASE_A_POWER + ", " + COLUMN_PHASE_B_POWER + ", " + COLUMN_PHASE_C_POWER + ", " +
+            "is_power_user, total_a_sum, total_b_sum, total_c_sum" +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 导入时重复使用的预编译语句
+     */
+    private static class ImportStatements
+    {
+        final SQLiteStatement upsertUserInfo;
+        final SQLiteStatement upsertReading;
+        final SQLiteStatement upsertOldData;
+
+        ImportStatements(SQLiteDatabase db)
+        {
+            upsertUserInfo = db.compileStatement(UPSERT_USER_INFO_SQL);
+            upsertReading = db.compileStatement(UPSERT_READING_SQL);
+            upsertOldData = db.compileStatement(UPSERT_OLD_DATA_SQL);
+        }
+
+        void close()
+        {
+            upsertUserInfo.close();
+            upsertReading.close();
+            upsertOldData.close();
+        }
+    }
+
+    /**
+     * 数据库中已有的一条电量数据，用于检测相位调整
+     */
+    private static class StoredReading
+    {
+        final String phase;
+        final double phaseA;
+        final double phaseB;
+        final double phaseC;
+
+        StoredReading(String phase, double phaseA, double phaseB, double phaseC)
+        {
+            this.phase = phase;
+            this.phaseA = phaseA;
+            this.phaseB = phaseB;
+            this.phaseC = phaseC;
+        }
+    }
+
+    // 批量导入数据，全部数据在一批中
     public void importBatchData(Map<String, Map<String, List<UserData>>> dateUserGroupedData)
+    {
+        importBatchData(dateUserGroupedData, new HashMap<>());
+    }
 
+    // 批量导入数据
+    // 按日期升序导入，每个日期一个事务，预编译语句在整个导入过程中重复使用。
+    // 一次导入分成多批时，各批传入同一个preImportTotals，记录每个日期导入前的三相总电量：
+    // 日期第一次出现时读取总电量表，之后的批次不再读取，
+    // 因此旧数据表中的total_*_sum始终是整个导入开始前的总电量，而不是前面几批写入后的中间结果
+    public void importBatchData(Map<String, Map<String, List<UserData>>> dateUserGroupedData,
+                                Map<String, double[]> preImportTotals)
     {
         SQLiteDatabase db = getWritableDatabase();
-        db.beginTransaction();
+        
+        // 按日期顺序处理数据
+        List<String> sortedDates = new ArrayList<>(dateUserGroupedData.keySet());
+        Collections.sort(sortedDates);  // 按日期升序排序
+
+        ImportStatements statements = new ImportStatements(db);
         try
         {
-            // 按日期顺序处理数据
-            List<String> sortedDates = new ArrayList<>(dateUserGroupedData.keySet());
-            Collections.sort(sortedDates);  // 按日期升序排序
-
             // 遍历每个日期
             for (String date : sortedDates)
             {
                 Map<String, List<UserData>> userGroupedData = dateUserGroupedData.get(date);
-                // 处理每个用户的数据
-                processUserData(db, userGroupedData);
-                // 更新总电量
-                updateDailyTotalPower(db, date, userGroupedData);
+                db.beginTransaction();
+                try
+                {
+                    double[] storedTotals = preImportTotals.get(date);
+                    if (storedTotals == null)
+                    {
+                        storedTotals = loadStoredTotalPower(db, date);
+                        preImportTotals.put(date, storedTotals);
+                    }
+                    
+                    // 处理每个用户的数据
+                    processUserData(db, statements, date, userGroupedData, storedTotals);
+                    // 更新总电量
+                    updateDailyTotalPower(db, date);
+                    db.setTransactionSuccessful();
+                }
+                finally
+                {
+                    db.endTransaction();
+                }
             }
-            
-            // 更新最后修改时间
+        }
+        finally
+        {
+            statements.close();
+        }
+        
+        // 更新最后修改时间
+        db.beginTransaction();
+        try
+        {
             updateLastModifiedTime(db);
-            
             db.setTransactionSuccessful();
         }
         finally
@@ -579,252 +776,279 @@ public class DatabaseHelper extends SQLiteOpenHelper
         }
     }
 
-    // 处理用户数据
-    private void processUserData(SQLiteDatabase db, Map<String, List<UserData>> userGroupedData)
+    // 处理一个日期的用户数据，storedTotals为导入前该日期的三相总电量，没有时为长度0的数组
+    // 这一批用户在该日期已有的数据一次读入内存，与新数据比较检测相位调整，不再逐行查询
+    private void processUserData(SQLiteDatabase db, ImportStatements statements, String date,
+                                 Map<String, List<UserData>> userGroupedData, double[] storedTotals)
     {
+        Map<String, StoredReading> storedReadings = loadStoredReadings(db, date, userGroupedData.keySet());
+        
         for (Map.Entry<String, List<UserData>> entry : userGroupedData.entrySet())
         {
             String userId = entry.getKey();
             List<UserData> userDataList = entry.getValue();
+            if (userDataList.isEmpty()) continue;
             
-            if (!userDataList.isEmpty())
+            // 更新用户信息
+            UserData first = userDataList.get(0);
+            SQLiteStatement upsertUserInfo = statements.upsertUserInfo;
+            bindText(upsertUserInfo, 1, userId);
+            bindText(upsertUserInfo, 2, first.getUserName());
+            bindText(upsertUserInfo, 3, first.getRouteNumber());
+            bindText(upsertUserInfo, 4, first.getBranchNumber());
+            upsertUserInfo.executeInsert();
+            
+            // 更新用户电量数据，同时记录相位调整信息
+            for (UserData userData : userDataList)
             {
-                // 更新用户信息
-                updateUserInfo(db, userId, userDataList.get(0));
-                // 更新用户电量数据
-                updateUserPowerData(db, userId, userDataList);
+                StoredReading stored = storedReadings.get(userId);
+                if (stored != null)
+                {
+                    String adjustmentReason = getPhaseAdjustmentReason(stored, userData);
+                    if (adjustmentReason != null)
+                    {
+                        saveOldData(statements.upsertOldData, userId, userData, stored, adjustmentReason, storedTotals);
+                    }
+                }
+                
+                SQLiteStatement upsertReading = statements.upsertReading;
+                bindText(upsertReading, 1, userId);
+                bindText(upsertReading, 2, userData.getDate());
+                bindText(upsertReading, 3, userData.getPhase());
+                upsertReading.bindDouble(4, userData.getPhaseAPower());
+                upsertReading.bindDouble(5, userData.getPhaseBPower());
+                upsertReading.bindDouble(6, userData.getPhaseCPower());
+                upsertReading.executeInsert();
+                
+                // 同一用户同一天有多行时，后面的行与刚写入的数据比较
+                storedReadings.put(userId, new StoredReading(
+                    userData.getPhase(), userData.getPhaseAPower(), userData.getPhaseBPower(), userData.getPhaseCPower()));
             }
         }
     }
 
-    // 更新用户基本信息
-    private void updateUserInfo(SQLiteDatabase db, String userId, UserData userData)
+    // 读取指定日期中这些用户已有的电量数据
+    // 用户编号分段放入IN条件，每段不超过STORED_READING_QUERY_SIZE个参数，按(用户编号, 日期)主键查找
+    private Map<String, StoredReading> loadStoredReadings(SQLiteDatabase db, String date, Collection<String> userIds)
     {
-        ContentValues userInfo = new ContentValues();
-        userInfo.put(COLUMN_USER_ID, userId);
-        userInfo.put(COLUMN_USER_NAME, userData.getUserName());
-        userInfo.put(COLUMN_ROUTE_NUMBER, userData.getRouteNumber());
-        userInfo.put(COLUMN_BRANCH_NUMBER, userData.getBranchNumber());  // 支线编号
-        
-        db.insertWithOnConflict(TABLE_USER_INFO, null, userInfo, SQLiteDatabase.CONFLICT_REPLACE);
+        Map<String, StoredReading> storedReadings = new HashMap<>();
+        List<String> ids = new ArrayList<>(userIds);
+        for (int start = 0; start < ids.size(); start += STORED_READING_QUERY_SIZE)
+        {
+            int end = Math.min(ids.size(), start + STORED_READING_QUERY_SIZE);
+            String[] args = new String[end - start + 1];
+            args[0] = date;
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = start; i < end; i++)
+            {
+                placeholders.append(i == start ? "?" : ", ?");
+                args[i - start + 1] = ids.get(i);
+            }
+            
+            Cursor cursor = db.rawQuery(
+                "SELECT " + COLUMN_USER_ID + ", " + COLUMN_PHASE + ", " +
+                COLUMN_PHASE_A_POWER + ", " + COLUMN_PHASE_B_POWER + ", " + COLUMN_PHASE_C_POWER +
+                " FROM " + TABLE_READINGS + " WHERE " + COLUMN_DATE + " = ? AND " +
+                COLUMN_USER_ID + " IN (" + placeholders + ")",
+                args
+            );
+            try
+            {
+                while (cursor.moveToNext())
+                {
+                    storedReadings.put(cursor.getString(0), new StoredReading(
+                        cursor.getString(1), cursor.getDouble(2), cursor.getDouble(3), cursor.getDouble(4)));
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+        }
+        return storedReadings;
     }
 
-    // 更新用户功率数据，同时记录相位调整信息
-    private void updateUserPowerData(SQLiteDatabase db, String userId, List<UserData> userDataList)
+    // 读取指定日期导入前的三相总电量，没有记录时返回长度为0的数组
+    private double[] loadStoredTotalPower(SQLiteDatabase db, String date)
     {
-        if (userDataList.isEmpty()) return;
-
-        // 创建或使用用户数据表
-        String userDataTable = "user_data_" + userId;
-        String createTableSQL = String.format("CREATE TABLE IF NOT EXISTS %s (" +
-            COLUMN_DATE + " TEXT PRIMARY KEY, " +
-            COLUMN_PHASE + " TEXT, " +
-            COLUMN_PHASE_A_POWER + " REAL, " +
-            COLUMN_PHASE_B_POWER + " REAL, " +
-            COLUMN_PHASE_C_POWER + " REAL)", 
-            userDataTable
+        Cursor cursor = db.query(
+            TABLE_TOTAL_POWER,
+            new String[]{COLUMN_TOTAL_PHASE_A, COLUMN_TOTAL_PHASE_B, COLUMN_TOTAL_PHASE_C},
+            COLUMN_DATE + "=?",
+            new String[]{date},
+            null, null, null
         );
-        db.execSQL(createTableSQL);
-        
-        // 创建或使用旧相位表，如果不存在
-        String createOldPhaseTableSQL = "CREATE TABLE IF NOT EXISTS " + TABLE_OLD_DATA + " (" +
-            COLUMN_DATE + " TEXT, " +
-            COLUMN_USER_ID + " TEXT, " +
-            COLUMN_OLD_PHASE + " TEXT, " +
-            COLUMN_NEW_PHASE + " TEXT, " +
-            COLUMN_PHASE_A_POWER + " REAL, " +  // 调整前A相电量
-            COLUMN_PHASE_B_POWER + " REAL, " +  // 调整前B相电量
-            COLUMN_PHASE_C_POWER + " REAL, " +  // 调整前C相电量
-            "is_power_user INTEGER, " +         // 是否为动力用户
-            "total_a_sum REAL, " +              // 调整前所有用户A相电量和
-            "total_b_sum REAL, " +              // 调整前所有用户B相电量和
-            "total_c_sum REAL, " +              // 调整前所有用户C相电量和
-            "PRIMARY KEY (" + COLUMN_DATE + ", " + COLUMN_USER_ID + "))";
-        db.execSQL(createOldPhaseTableSQL);
-        
-        // 插入新数据
-        for (UserData userData : userDataList)
+        try
         {
-            // 判断是否为动力用户
-            boolean isPowerUser = userData.getPhaseAPower() > 0 && 
-                               userData.getPhaseBPower() > 0 && 
-                               userData.getPhaseCPower() > 0;
-            
-            // 检查是否已存在数据，并获取旧电量信息
-            Cursor cursor = db.query(
-                userDataTable,
-                new String[]{COLUMN_PHASE, COLUMN_PHASE_A_POWER, COLUMN_PHASE_B_POWER, COLUMN_PHASE_C_POWER},
-                COLUMN_DATE + "=?",
-                new String[]{userData.getDate()},
-                null, null, null
-            );
-            
             if (cursor.moveToFirst())
             {
-                // 获取旧相位和旧电量数据
-                String oldPhase = cursor.getString(cursor.getColumnIndex(COLUMN_PHASE));
-                double oldPhaseA = cursor.getDouble(cursor.getColumnIndex(COLUMN_PHASE_A_POWER));
-                double oldPhaseB = cursor.getDouble(cursor.getColumnIndex(COLUMN_PHASE_B_POWER));
-                double oldPhaseC = cursor.getDouble(cursor.getColumnIndex(COLUMN_PHASE_C_POWER));
-                
-                // 获取新数据
-                String newPhase = userData.getPhase();
-                double newPhaseA = userData.getPhaseAPower();
-                double newPhaseB = userData.getPhaseBPower();
-                double newPhaseC = userData.getPhaseCPower();
-                
-                // 计算新旧总电量
-                double oldTotal = oldPhaseA + oldPhaseB + oldPhaseC;
-                double newTotal = newPhaseA + newPhaseB + newPhaseC;
-                
-                // 判断旧数据是否为动力用户
-                boolean wasOldPowerUser = oldPhaseA > 0 && oldPhaseB > 0 && oldPhaseC > 0;
+                return new double[]{cursor.getDouble(0), cursor.getDouble(1), cursor.getDouble(2)};
+            }
+            return new double[0];
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    // 判断新数据相对于已有数据是否为相位调整，是则返回原因，否则返回null
+    private String getPhaseAdjustmentReason(StoredReading stored, UserData userData)
+    {
+        // 获取旧相位和旧电量数据
+        String oldPhase = stored.phase;
+        double oldPhaseA = stored.phaseA;
+        double oldPhaseB = stored.phaseB;
+        double oldPhaseC = stored.phaseC;
+        
+        // 获取新数据
+        String newPhase = userData.getPhase();
+        double newPhaseA = userData.getPhaseAPower();
+        double newPhaseB = userData.getPhaseBPower();
+        double newPhaseC = userData.getPhaseCPower();
+        
+        // 计算新旧总电量
+        double oldTotal = oldPhaseA + oldPhaseB + oldPhaseC;
+        double newTotal = newPhaseA + newPhaseB + newPhaseC;
+        
+        // 判断新旧数据是否为动力用户
+        boolean isPowerUser = newPhaseA > 0 && newPhaseB > 0 && newPhaseC > 0;
+        boolean wasOldPowerUser = oldPhaseA > 0 && oldPhaseB > 0 && oldPhaseC > 0;
+        
+        // 判断是否是相位调整：
+        // 1. 相位名称改变
+        // 2. 动力用户状态变化
+        // 3. 三相电量发生交换（相位调整）
+        boolean phaseChanged = !oldPhase.equals(newPhase);
+        boolean powerUserStatusChanged = wasOldPowerUser != isPowerUser;
+        
+        // 判断三相电量是否发生交换
+        boolean phaseSwapped = false;
+        
+        // 判断总电量是否相近（允许5%的误差）
+        boolean totalPowerSimilar = Math.abs(oldTotal - newTotal) < 0.05 * oldTotal;
+        
+        if (totalPowerSimilar) {
+            if (isPowerUser && wasOldPowerUser) {
+                // 动力用户的相位交换模式
+                // 检查是否存在顺时针调整（A->B, B->C, C->A）
+                boolean clockwiseSwap = 
+                    (Math.abs(oldPhaseA - newPhaseB) < 0.05 * oldPhaseA) && 
+                    (Math.abs(oldPhaseB - newPhaseC) < 0.05 * oldPhaseB) && 
+                    (Math.abs(oldPhaseC - newPhaseA) < 0.05 * oldPhaseC);
                 
-                // 判断是否是相位调整：
-                // 1. 相位名称改变
-                // 2. 动力用户状态变化
-                // 3. 三相电量发生交换（相位调整）
-                boolean phaseChanged = !oldPhase.equals(newPhase);
-                boolean powerUserStatusChanged = wasOldPowerUser != isPowerUser;
+                // 检查是否存在逆时针调整（A->C, B->A, C->B）
+                boolean counterClockwiseSwap = 
+                    (Math.abs(oldPhaseA - newPhaseC) < 0.05 * oldPhaseA) && 
+                    (Math.abs(oldPhaseB - newPhaseA) < 0.05 * oldPhaseB) && 
+                    (Math.abs(oldPhaseC - newPhaseB) < 0.05 * oldPhaseC);
                 
-                // 判断三相电量是否发生交换
-                boolean phaseSwapped = false;
+                phaseSwapped = clockwiseSwap || counterClockwiseSwap;
+            } else if (!isPowerUser && !wasOldPowerUser) {
+                // 普通用户的相位交换
+                // 计算A相、B相、C相是否在新旧数据中交换了位置
                 
-                // 判断总电量是否相近（允许5%的误差）
-                boolean totalPowerSimilar = Math.abs(oldTotal - newTotal) < 0.05 * oldTotal;
+                // 检查是否从A相切换
+                if (oldPhaseA > 0) {
+                    phaseSwapped = (oldPhaseA > 0.05 && Math.abs(oldPhaseA) > 0.05) && 
+                                  ((Math.abs(oldPhaseA - newPhaseB) < 0.05 * oldPhaseA) ||
+                                   (Math.abs(oldPhaseA - newPhaseC) < 0.05 * oldPhaseA));
+                }
                 
-                if (totalPowerSimilar) {
-                    if (isPowerUser && wasOldPowerUser) {
-                        // 动力用户的相位交换模式
-                        // 检查是否存在顺时针调整（A->B, B->C, C->A）
-                        boolean clockwiseSwap = 
-                            (Math.abs(oldPhaseA - newPhaseB) < 0.05 * oldPhaseA) && 
-                            (Math.abs(oldPhaseB - newPhaseC) < 0.05 * oldPhaseB) && 
-                            (Math.abs(oldPhaseC - newPhaseA) < 0.05 * oldPhaseC);
-                        
-                        // 检查是否存在逆时针调整（A->C, B->A, C->B）
-                        boolean counterClockwiseSwap = 
-                            (Math.abs(oldPhaseA - newPhaseC) < 0.05 * oldPhaseA) && 
-                            (Math.abs(oldPhaseB - newPhaseA) < 0.05 * oldPhaseB) && 
-                            (Math.abs(oldPhaseC - newPhaseB) < 0.05 * oldPhaseC);
-                        
-                        phaseSwapped = clockwiseSwap || counterClockwiseSwap;
-                    } else if (!isPowerUser && !wasOldPowerUser) {
-                        // 普通用户的相位交换
-                        // 计算A相、B相、C相是否在新旧数据中交换了位置
-                        
-                        // 检查是否从A相切换
-                        if (oldPhaseA > 0) {
-                            phaseSwapped = (oldPhaseA > 0.05 && Math.abs(oldPhaseA) > 0.05) && 
-                                          ((Math.abs(oldPhaseA - newPhaseB) < 0.05 * oldPhaseA) ||
-                                           (Math.abs(oldPhaseA - newPhaseC) < 0.05 * oldPhaseA));
-                        }
-                        
-                        // 检查是否从B相切换
-                        else if (oldPhaseB > 0) {
-                            phaseSwapped = (oldPhaseB > 0.05 && Math.abs(oldPhaseB) > 0.05) && 
-                                          ((Math.abs(oldPhaseB - newPhaseA) < 0.05 * oldPhaseB) ||
-                                           (Math.abs(oldPhaseB - newPhaseC) < 0.05 * oldPhaseB));
-                        }
-                        
-                        // 检查是否从C相切换
-                        else if (oldPhaseC > 0) {
-                            phaseSwapped = (oldPhaseC > 0.05 && Math.abs(oldPhaseC) > 0.05) && 
-                                          ((Math.abs(oldPhaseC - newPhaseA) < 0.05 * oldPhaseC) ||
-                                           (Math.abs(oldPhaseC - newPhaseB) < 0.05 * oldPhaseC));
-                        }
-                    }
+                // 检查是否从B相切换
+                else if (oldPhaseB > 0) {
+                    phaseSwapped = (oldPhaseB > 0.05 && Math.abs(oldPhaseB) > 0.05) && 
+                                  ((Math.abs(oldPhaseB - newPhaseA) < 0.05 * oldPhaseB) ||
+                                   (Math.abs(oldPhaseB - newPhaseC) < 0.05 * oldPhaseB));
                 }
                 
-                // 如果满足相位调整的条件，记录到旧数据表
-                if (phaseChanged || powerUserStatusChanged || phaseSwapped)
-                {
-                    String adjustmentReason = phaseChanged ? "相位名称变化" : 
-                                              powerUserStatusChanged ? "动力用户状态变化" : 
-                                              "三相电量交换";
-                    
-                    Log.d("DatabaseHelper", String.format(
-                        "检测到相位调整 - 用户ID:%s, 日期:%s, 原因:%s, " + 
-                        "旧电量:[%.2f, %.2f, %.2f], 新电量:[%.2f, %.2f, %.2f]",
-                        userId, userData.getDate(), adjustmentReason,
-                        oldPhaseA, oldPhaseB, oldPhaseC, newPhaseA, newPhaseB, newPhaseC
-                    ));
-                    
-                    ContentValues oldDataValues = new ContentValues();
-                    oldDataValues.put(COLUMN_DATE, userData.getDate());
-                    oldDataValues.put(COLUMN_USER_ID, userId);
-                    oldDataValues.put(COLUMN_OLD_PHASE, oldPhase);
-                    oldDataValues.put(COLUMN_NEW_PHASE, newPhase);
-                    oldDataValues.put(COLUMN_PHASE_A_POWER, oldPhaseA);
-                    oldDataValues.put(COLUMN_PHASE_B_POWER, oldPhaseB);
-                    oldDataValues.put(COLUMN_PHASE_C_POWER, oldPhaseC);
-                    oldDataValues.put("is_power_user", wasOldPowerUser ? 1 : 0);  // 记录旧的动力用户状态
-                    
-                    // 获取该日期的三相总电量和
-                    Cursor totalCursor = db.query(
-                        TABLE_TOTAL_POWER,
-                        new String[]{COLUMN_TOTAL_PHASE_A, COLUMN_TOTAL_PHASE_B, COLUMN_TOTAL_PHASE_C},
-                        COLUMN_DATE + "=?",
-                        new String[]{userData.getDate()},
-                        null, null, null
-                    );
-                    
-                    if (totalCursor.moveToFirst()) {
-                        // 获取到该日期的三相电量总和
-                        double totalA = totalCursor.getDouble(totalCursor.getColumnIndex(COLUMN_TOTAL_PHASE_A));
-                        double totalB = totalCursor.getDouble(totalCursor.getColumnIndex(COLUMN_TOTAL_PHASE_B));
-                        double totalC = totalCursor.getDouble(totalCursor.getColumnIndex(COLUMN_TOTAL_PHASE_C));
-                        
-                        // 将三相总电量和保存到旧数据记录中
-                        oldDataValues.put("total_a_sum", totalA);
-                        oldDataValues.put("total_b_sum", totalB);
-                        oldDataValues.put("total_c_sum", totalC);
-                        
-                        Log.d("DatabaseHelper", String.format(
-                            "保存调整前三相总电量和 - 用户ID:%s, 日期:%s, A相:%.2f, B相:%.2f, C相:%.2f",
-                            userId, userData.getDate(), totalA, totalB, totalC
-                        ));
-                    }
-                    totalCursor.close();
-                    
-                    // 插入或替换旧数据记录
-                    db.insertWithOnConflict(
-                        TABLE_OLD_DATA,
-                        null,
-                        oldDataValues,
-                        SQLiteDatabase.CONFLICT_REPLACE
-                    );
+                // 检查是否从C相切换
+                else if (oldPhaseC > 0) {
+                    phaseSwapped = (oldPhaseC > 0.05 && Math.abs(oldPhaseC) > 0.05) && 
+                                  ((Math.abs(oldPhaseC - newPhaseA) < 0.05 * oldPhaseC) ||
+                                   (Math.abs(oldPhaseC - newPhaseB) < 0.05 * oldPhaseC));
                 }
             }
-            cursor.close();
-            
-            // 更新或插入用户功率数据
-            ContentValues values = new ContentValues();
-            values.put(COLUMN_DATE, userData.getDate());
-            values.put(COLUMN_PHASE, userData.getPhase());
-            values.put(COLUMN_PHASE_A_POWER, userData.getPhaseAPower());
-            values.put(COLUMN_PHASE_B_POWER, userData.getPhaseBPower());
-            values.put(COLUMN_PHASE_C_POWER, userData.getPhaseCPower());
-            
-            db.insertWithOnConflict(userDataTable, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+        
+        if (!phaseChanged && !powerUserStatusChanged && !phaseSwapped)
+        {
+            return null;
+        }
+        return phaseChanged ? "相位名称变化" : 
+               powerUserStatusChanged ? "动力用户状态变化" : 
+               "三相电量交换";
+    }
+
+    // 把相位调整前的数据记录到旧数据表，storedTotals为导入前该日期的三相总电量，没有时为长度0的数组
+    private void saveOldData(SQLiteStatement upsertOldData, String userId, UserData userData,
+                             StoredReading stored, String adjustmentReason, double[] storedTotals)
+    {
+        Log.d("DatabaseHelper", String.format(
+            "检测到相位调整 - 用户ID:%s, 日期:%s, 原因:%s, " + 
+            "旧电量:[%.2f, %.2f, %.2f], 新电量:[%.2f, %.2f, %.2f]",
+            userId, userData.getDate(), adjustmentReason,
+            stored.phaseA, stored.phaseB, stored.phaseC,
+            userData.getPhaseAPower(), userData.getPhaseBPower(), userData.getPhaseCPower()
+        ));
+        
+        boolean wasOldPowerUser = stored.phaseA > 0 && stored.phaseB > 0 && stored.phaseC > 0;
+        bindText(upsertOldData, 1, userData.getDate());
+        bindText(upsertOldData, 2, userId);
+        bindText(upsertOldData, 3, stored.phase);
+        bindText(upsertOldData, 4, userData.getPhase());
+        upsertOldData.bindDouble(5, stored.phaseA);
+        upsertOldData.bindDouble(6, stored.phaseB);
+        upsertOldData.bindDouble(7, stored.phaseC);
+        upsertOldData.bindLong(8, wasOldPowerUser ? 1 : 0);  // 记录旧的动力用户状态
+        
+        // 该日期还没有总电量时留空，由updateDailyTotalPower补上
+        for (int i = 0; i < 3; i++)
+        {
+            if (storedTotals.length == 3)
+            {
+                upsertOldData.bindDouble(9 + i, storedTotals[i]);
+            }
+            else
+            {
+                upsertOldData.bindNull(9 + i);
+            }
+        }
+        upsertOldData.executeInsert();
+    }
+
+    // 绑定文本参数，null绑定为NULL
+    private static void bindText(SQLiteStatement statement, int index, String value)
+    {
+        if (value != null)
+        {
+            statement.bindString(index, value);
+        }
+        else
+        {
+            statement.bindNull(index);
         }
     }
 
     // 更新每日总电量
-    private void updateDailyTotalPower(SQLiteDatabase db, String date, Map<String, List<UserData>> userGroupedData)
+    // 总电量由数据库中该日期的所有用户数据求和，同一日期的数据分几批导入时结果也正确
+    private void updateDailyTotalPower(SQLiteDatabase db, String date)
     {
         double totalA = 0, totalB = 0, totalC = 0;
         
         // 计算当天所有用户的总电量
-        for (List<UserData> userDataList : userGroupedData.values())
+        Cursor sumCursor = db.rawQuery(
+            "SELECT SUM(" + COLUMN_PHASE_A_POWER + "), SUM(" + COLUMN_PHASE_B_POWER + "), SUM(" + COLUMN_PHASE_C_POWER + ")" +
+            " FROM " + TABLE_READINGS + " WHERE " + COLUMN_DATE + " = ?",
+            new String[]{date}
+        );
+        if (sumCursor.moveToFirst())
         {
-            for (UserData userData : userDataList)
-            {
-                totalA += userData.getPhaseAPower();
-                totalB += userData.getPhaseBPower();
-                totalC += userData.getPhaseCPower();
-            }
+            totalA = sumCursor.getDouble(0);
+            totalB = sumCursor.getDouble(1);
+            totalC = sumCursor.getDouble(2);
         }
+        sumCursor.close();
         
         // 计算不平衡度
         double unbalanceRate = UnbalanceCalculator.calculateUnbalanceRate(totalA, totalB, totalC);
@@ -892,18 +1116,11 @@ public class DatabaseHelper extends SQLiteOpenHelper
     {
         SQLiteDatabase db = this.getWritableDatabase();
         
-        // 先获取所有用户ID
-        List<String> userIds = getAllUserIds();
-        
         db.beginTransaction();
         try
         {
-            // 删除所有用户数据表
-            for (String userId : userIds)
-            {
-                String userDataTable = "user_data_" + userId;
-                db.execSQL("DROP TABLE IF EXISTS " + userDataTable);
-            }
+            // 删除所有用户电量数据
+            db.delete(TABLE_READINGS, null, null);
             
             // 删除用户信息表中的所有数据
             db.delete(TABLE_USER_INFO, null, null);
@@ -1100,6 +1317,7 @@ public class DatabaseHelper extends SQLiteOpenHelper
     }
 
     // 获取指定日期的用户数据
+    // 一次查询读出当天所有用户的电量并关联用户信息，按日期索引扫描，结果按用户编号排序
     public List<UserData> getUserDataByDate(String date)
     {
         if (date == null || date.isEmpty())
@@ -1108,97 +1326,38 @@ public class DatabaseHelper extends SQLiteOpenHelper
         }
 
         List<UserData> dataList = new ArrayList<>();
-        SQLiteDatabase db = null;
-        Cursor userCursor = null;
-        Cursor dataCursor = null;
+        Cursor cursor = null;
         
         try
         {
-            db = getReadableDatabase();
+            SQLiteDatabase db = getReadableDatabase();
+            String query = "SELECT r." + COLUMN_USER_ID + ", u." + COLUMN_USER_NAME + ", " +
+                          "u." + COLUMN_ROUTE_NUMBER + ", u." + COLUMN_BRANCH_NUMBER + ", " +
+                          "r." + COLUMN_PHASE + ", r." + COLUMN_PHASE_A_POWER + ", " +
+                          "r." + COLUMN_PHASE_B_POWER + ", r." + COLUMN_PHASE_C_POWER +
+                          " FROM " + TABLE_READINGS + " r" +
+                          " JOIN " + TABLE_USER_INFO + " u ON u." + COLUMN_USER_ID + " = r." + COLUMN_USER_ID +
+                          " WHERE r." + COLUMN_DATE + " = ?" +
+                          " ORDER BY r." + COLUMN_USER_ID;
+            cursor = db.rawQuery(query, new String[]{date});
             
-            // 获取所有用户ID
-            List<String> userIds = getAllUserIds();
+            // 按查询结果的行数预先分配，避免逐个添加时反复扩容
+            dataList = new ArrayList<>(cursor.getCount());
             
-            for (String userId : userIds)
+            // 列顺序与查询语句一致
+            while (cursor.moveToNext())
             {
-                try
-                {
-                    // 获取用户信息
-                    String userQuery = "SELECT * FROM " + TABLE_USER_INFO + " WHERE " + COLUMN_USER_ID + " = ?";
-                    userCursor = db.rawQuery(userQuery, new String[]{userId});
-                    
-                    if (userCursor != null && userCursor.moveToFirst())
-                    {
-                        // 先获取列索引
-                        int userNameIndex = userCursor.getColumnIndexOrThrow(COLUMN_USER_NAME);
-                        int routeNumberIndex = userCursor.getColumnIndexOrThrow(COLUMN_ROUTE_NUMBER);
-                        int branchNumberIndex = userCursor.getColumnIndexOrThrow(COLUMN_BRANCH_NUMBER);
-                            
-                        // 使用获取到的索引
-                        String userName = userCursor.getString(userNameIndex);
-                        String routeNumber = userCursor.getString(routeNumberIndex);
-                        String branchNumber = userCursor.getString(branchNumberIndex);
-                        
-                        // 检查用户数据表是否存在
-                        String userDataTable = "user_data_" + userId;
-                        String tableExistsQuery = "SELECT name FROM sqlite_master WHERE type='table' AND name=?";
-                        Cursor tableCheckCursor = db.rawQuery(tableExistsQuery, new String[]{userDataTable});
-                        boolean tableExists = tableCheckCursor != null && tableCheckCursor.moveToFirst();
-                        if (tableCheckCursor != null)
-                        {
-                            tableCheckCursor.close();
-                        }
-                        
-                        if (tableExists)
-                        {
-                            // 获取用户当天数据
-                            String dataQuery = "SELECT * FROM " + userDataTable + " WHERE " + COLUMN_DATE + " = ?";
-                            dataCursor = db.rawQuery(dataQuery, new String[]{date});
-                            
-                            if (dataCursor != null && dataCursor.moveToFirst())
-                            {
-                                UserData userData = new UserData();
-                                userData.setDate(date);
-                                userData.setUserId(userId);
-                                userData.setUserName(userName);
-                                userData.setRouteNumber(routeNumber);
-                                userData.setBranchNumber(branchNumber);
-                                
-                                int phaseIndex = dataCursor.getColumnIndex(COLUMN_PHASE);
-                                int phaseAPowerIndex = dataCursor.getColumnIndex(COLUMN_PHASE_A_POWER);
-                                int phaseBPowerIndex = dataCursor.getColumnIndex(COLUMN_PHASE_B_POWER);
-                                int phaseCPowerIndex = dataCursor.getColumnIndex(COLUMN_PHASE_C_POWER);
-                                
-                                if (phaseIndex >= 0 && phaseAPowerIndex >= 0 && 
-                                    phaseBPowerIndex >= 0 && phaseCPowerIndex >= 0)
-                                {
-                                    userData.setPhase(dataCursor.getString(phaseIndex));
-                                    userData.setPhaseAPower(dataCursor.getDouble(phaseAPowerIndex));
-                                    userData.setPhaseBPower(dataCursor.getDouble(phaseBPowerIndex));
-                                    userData.setPhaseCPower(dataCursor.getDouble(phaseCPowerIndex));
-                                    dataList.add(userData);
-                                }
-                            }
-                        }
-                    }
-                }
-                catch (Exception e)
-                {
-                    e.printStackTrace();
-                }
-                finally
-                {
-                    if (userCursor != null)
-                    {
-                        userCursor.close();
-                        userCursor = null;
-                    }
-                    if (dataCursor != null)
-                    {
-                        dataCursor.close();
-                        dataCursor = null;
-                    }
-                }
+                UserData userData = new UserData();
+                userData.setDate(date);
+                userData.setUserId(cursor.getString(0));
+                userData.setUserName(cursor.getString(1));
+                userData.setRouteNumber(cursor.getString(2));
+                userData.setBranchNumber(cursor.getString(3));
+                userData.setPhase(cursor.getString(4));
+                userData.setPhaseAPower(cursor.getDouble(5));
+                userData.setPhaseBPower(cursor.getDouble(6));
+                userData.setPhaseCPower(cursor.getDouble(7));
+                dataList.add(userData);
             }
         }
         catch (Exception e)
@@ -1207,13 +1366,9 @@ public class DatabaseHelper extends SQLiteOpenHelper
         }
         finally
         {
-            if (userCursor != null)
-            {
-                userCursor.close();
-            }
-            if (dataCursor != null)
+            if (cursor != null)
             {
-                dataCursor.close();
+                cursor.close();
             }
         }
         
@@ -1328,12 +1483,12 @@ public class DatabaseHelper extends SQLiteOpenHelper
                 userCursor.close();
                 
                 // 获取用户电量数据
-                String userDataTable = "user_data_" + userId;
-                String dataQuery = "SELECT * FROM " + userDataTable + 
+                String dataQuery = "SELECT * FROM " + TABLE_READINGS + 
+                                 " WHERE " + COLUMN_USER_ID + " = ?" +
                                  " ORDER BY " + COLUMN_DATE + " DESC" +
                                  " LIMIT " + n;
                 
-                Cursor dataCursor = db.rawQuery(dataQuery, null);
+                Cursor dataCursor = db.rawQuery(dataQuery, new String[]{userId});
                 
                 if (dataCursor != null)
                 {
@@ -1755,6 +1910,41 @@ public class DatabaseHelper extends SQLiteOpenHelper
         }
     }
     
+    // 获取最近一次相位调整中各用户调整后的相位，用于优化算法的热启动
+    public Map<String, String> getLatestAdjustedPhases()
+    {
+        Map<String, String> adjustedPhases = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        
+        try
+        {
+            cursor = db.rawQuery(
+                "SELECT " + COLUMN_USER_ID + ", " + COLUMN_NEW_PHASE + " FROM " + TABLE_OLD_DATA +
+                " WHERE " + COLUMN_DATE + " = (SELECT MAX(" + COLUMN_DATE + ") FROM " + TABLE_OLD_DATA + ")",
+                null
+            );
+            
+            if (cursor != null && cursor.moveToFirst())
+            {
+                do
+                {
+                    adjustedPhases.put(cursor.getString(0), cursor.getString(1));
+                } while (cursor.moveToNext());
+            }
+        }
+        finally
+        {
+            if (cursor != null)
+            {
+                cursor.close();
+            }
+            db.close();
+        }
+        
+        return adjustedPhases;
+    }
+    
     // 获取指定日期调整前的三相电量和
     public double[] getAdjustmentTotalPowers(String date)
     {
@@ -1816,12 +2006,11 @@ public class DatabaseHelper extends SQLiteOpenHelper
             }
             
             // 如果没有调整记录，从用户数据表中查询
-            String userDataTable = "user_data_" + userId;
             cursor = db.query(
-                userDataTable,
+                TABLE_READINGS,
                 new String[]{COLUMN_PHASE_A_POWER, COLUMN_PHASE_B_POWER, COLUMN_PHASE_C_POWER},
-                COLUMN_DATE + "=?",
-                new String[]{date},
+                COLUMN_USER_ID + "=? AND " + COLUMN_DATE + "=?",
+                new String[]{userId, date},
                 null, null, null
             );
             
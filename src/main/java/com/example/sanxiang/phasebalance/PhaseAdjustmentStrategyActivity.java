@@ -462,15 +462,12 @@ public class PhaseAdjustmentStrategyActivity extends AppCompatActivity
                         // 获取新相位
                         byte newPhase = solutionPhases[userIndex];
                         
-                        // 用户数据表名
-                        String userDataTable = "user_data_" + userId;
-                        
                         // 查询最新日期的用户数据
                         Cursor cursor = db.query(
-                            userDataTable,
+                            "readings",
                             new String[]{COLUMN_PHASE, COLUMN_PHASE_A_POWER, COLUMN_PHASE_B_POWER, COLUMN_PHASE_C_POWER},
-                            "date=?",
-                            new String[]{latestDate},
+                            "user_id=? AND date=?",
+                            new String[]{userId, latestDate},
                             null, null, null
                         );
                         
@@ -557,10 +554,10 @@ public class PhaseAdjustmentStrategyActivity extends AppCompatActivity
                             
                             // 更新用户数据表
                             db.update(
-                                userDataTable,
+                                "readings",
                                 newDataValues,
-                                "date=?",
-                                new String[]{latestDate}
+                                "user_id=? AND date=?",
+                                new String[]{userId, latestDate}
                             );
                             
                             Log.d(TAG, String.format(
@@ -1,6 +1,10 @@
 package com.example.sanxiang.phasebalance;
 
+import android.content.ClipData;
+import android.content.ClipboardManager;
+import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -42,6 +46,7 @@ public class PhaseBalanceActivity extends AppCompatActivity
     private List<BranchGroup> branchGroups;
     private List<BranchGroup> optimizedGroups;
     private Button btnOptimize;
+    private Button btnOptimizeAllRoutes;
     private Button btnApplyResult;
     private TextView tvResultStats;
     private FloatingActionButton fabAdd;
@@ -52,9 +57,14 @@ public class PhaseBalanceActivity extends AppCompatActivity
     private List<User> users;
     private PhaseBalancer.Solution solution;
     private PhaseBalancer phaseBalancer;  // 添加PhaseBalancer引用
+    private BatchPhaseScheduler batchScheduler;  // 批量调相调度器，批量优化期间有效
+    private OptimizerTelemetry lastTelemetry;  // 最近一次单回路优化的过程统计，长按结果查看
     private volatile boolean isOptimizing = false;  // 添加优化状态标志
     private View divider; // 添加分隔线引用
     private static final int REQUEST_CODE_PHASE_ADJUSTMENT = 1001;
+    private static final long OPTIMIZATION_TIME_BUDGET_MS = 30000;  // 优化时间预算30秒
+    private static final int PROGRESS_REPORT_INTERVAL = 10;         // 每10代刷新一次进度
+    private static final int MULTI_DAY_COUNT = 7;                   // 按最近7天的电量平衡各天的不平衡度
     
     @Override
     protected void onCreate(Bundle savedInstanceState) 
@@ -62,6 +72,26 @@ public class PhaseBalanceActivity extends AppCompatActivity
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_phase_balance);
         
+        // 优化器本身不依赖Android，日志输出到Logcat，调试版本输出过程信息，发布版本只输出结果和警告
+        boolean isDebuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        BalancerLog.setLogger((level, tag, message) -> {
+            switch (level)
+            {
+                case VERBOSE:
+                    Log.v(tag, message);
+                    break;
+                case DEBUG:
+                    Log.d(tag, message);
+                    break;
+                case INFO:
+                    Log.i(tag, message);
+                    break;
+                default:
+                    Log.w(tag, message);
+                    break;
+            }
+        }, isDebuggable ? BalancerLog.Level.DEBUG : BalancerLog.Level.INFO);
+        
         dbHelper = new DatabaseHelper(this);
         branchGroups = new ArrayList<>();
         optimizedGroups = new ArrayList<>();
@@ -85,6 +115,7 @@ public class PhaseBalanceActivity extends AppCompatActivity
         rvBranchGroups = findViewById(R.id.rvBranchGroups);
         rvOptimizedGroups = findViewById(R.id.rvOptimizedGroups);
         btnOptimize = findViewById(R.id.btnOptimize);
+        btnOptimizeAllRoutes = findViewById(R.id.btnOptimizeAllRoutes);
         btnApplyResult = findViewById(R.id.btnApplyResult);
         tvResultStats = findViewById(R.id.tvResultStats);
         fabAdd = findViewById(R.id.fabAdd);
@@ -227,8 +258,15 @@ public class PhaseBalanceActivity extends AppCompatActivity
     private void setupListeners() 
     {
         btnOptimize.setOnClickListener(v -> optimizePhases());
+        btnOptimizeAllRoutes.setOnClickListener(v -> optimizeAllRoutes());
         fabAdd.setOnClickListener(v -> showAddBranchGroupDialog());
         
+        // 长按优化结果查看优化过程统计
+        tvResultStats.setOnLongClickListener(v -> {
+            showTelemetryDialog();
+            return true;
+        });
+        
         btnApplyResult.setOnClickListener(v -> {
             if (solution == null || users == null || users.isEmpty()) {
                 Toast.makeText(this, "无有效优化结果", Toast.LENGTH_SHORT).show();
@@ -290,6 +328,7 @@ public class PhaseBalanceActivity extends AppCompatActivity
         adapter.setSelectionMode(true);
         fabDelete.setVisibility(View.GONE);  // 隐藏删除按钮
         btnOptimize.setVisibility(View.GONE);
+        btnOptimizeAllRoutes.setVisibility(View.GONE);
     }
     
     private void exitSelectionMode() 
@@ -297,6 +336,7 @@ public class PhaseBalanceActivity extends AppCompatActivity
         adapter.setSelectionMode(false);
         fabDelete.setVisibility(View.VISIBLE);  // 显示删除按钮
         btnOptimize.setVisibility(View.VISIBLE);
+        btnOptimizeAllRoutes.setVisibility(View.VISIBLE);
         tvSelectedCount.setVisibility(View.GONE);
         cardDelete.setVisibility(View.GONE);
     }
@@ -492,10 +532,10 @@ public class PhaseBalanceActivity extends AppCompatActivity
             // 获取所有用户ID
             List<String> userIds = dbHelper.getAllUserIds();
             
-            // 遍历每个用户ID，获取最近一天的数据
+            // 遍历每个用户ID，获取最近几天的数据，最近一天作为当前数据
             for (String userId : userIds) 
             {
-                List<UserData> userDataList = dbHelper.getUserLastNDaysData(userId, 1);
+                List<UserData> userDataList = dbHelper.getUserLastNDaysData(userId, MULTI_DAY_COUNT);
                 if (!userDataList.isEmpty()) 
                 {
                     UserData userData = userDataList.get(0);
@@ -530,6 +570,20 @@ public class PhaseBalanceActivity extends AppCompatActivity
                             currentPhase,
                             isPowerPhase
                         );
+                        
+                        // 有多天数据时记录每天的三相电量，用于平衡各天的不平衡度
+                        if (userDataList.size() >= 2) 
+                        {
+                            double[][] dailyPowers = new double[userDataList.size()][];
+                            for (int d = 0; d < userDataList.size(); d++) 
+                            {
+                                UserData dayData = userDataList.get(d);
+                                dailyPowers[d] = new double[] {
+                                    dayData.getPhaseAPower(), dayData.getPhaseBPower(), dayData.getPhaseCPower()
+                                };
+                            }
+                            user.setDailyPowers(dailyPowers);
+                        }
                         users.add(user);
                         
                         Log.d("PhaseBalanceActivity", String.format(
@@ -557,6 +611,7 @@ public class PhaseBalanceActivity extends AppCompatActivity
         {
             // 创建并显示进度框
             View progressView = LayoutInflater.from(this).inflate(R.layout.dialog_progress, null);
+            TextView tvProgress = progressView.findViewById(R.id.tvProgress);
             AlertDialog progressDialog = new AlertDialog.Builder(this)
                 .setView(progressView)
                 .setCancelable(true)
@@ -604,7 +659,41 @@ public class PhaseBalanceActivity extends AppCompatActivity
                     // 创建并执行遗传算法
                     phaseBalancer = new PhaseBalancer(allUsers, branchGroups.isEmpty() ? null : branchGroups);
                     phaseBalancer.reset();  // 重置终止标志
-                    PhaseBalancer.Solution solution = phaseBalancer.optimize();
+                    phaseBalancer.setWarmStart(getWarmStartPhases(allUsers));  // 以最近一次调相方案热启动
+                    PhaseBalancer.Solution solution;
+                    if (allUsers.size() >= PhaseBalancer.HIERARCHICAL_MIN_USERS) 
+                    {
+                        // 用户数很多时先按支线分配目标电量，再并行优化各支线，
+                        // 限定时间内每完成一个子问题显示一次全网当前结果
+                        runOnUiThread(() -> tvProgress.setText(String.format(
+                            "用户数较多（%d个），正在按支线分层优化相位分配...", allUsers.size()
+                        )));
+                        solution = phaseBalancer.optimizeHierarchical(
+                            OPTIMIZATION_TIME_BUDGET_MS, PROGRESS_REPORT_INTERVAL,
+                            (bestSolution, finishedCount, unbalanceRate, changeRatio) -> runOnUiThread(() -> 
+                                tvProgress.setText(String.format(
+                                    "正在按支线分层优化，已完成%d个子问题\n当前全网不平衡度: %.2f%%\n调整用户比例: %.2f%%",
+                                    finishedCount, unbalanceRate, changeRatio
+                                ))
+                            )
+                        );
+                    }
+                    else 
+                    {
+                        // 使用岛屿模型在多个核心上并行优化，限定时间内实时显示当前最优结果，
+                        // 中途终止时采用已找到的最优有效解
+                        solution = phaseBalancer.optimizeIslands(
+                            OPTIMIZATION_TIME_BUDGET_MS, PROGRESS_REPORT_INTERVAL,
+                            (bestSolution, generation, unbalanceRate, changeRatio) -> runOnUiThread(() -> 
+                                tvProgress.setText(String.format(
+                                    "正在优化相位分配，第%d代\n当前最优不平衡度: %.2f%%\n调整用户比例: %.2f%%%s",
+                                    generation, unbalanceRate, changeRatio,
+                                    unbalanceRate < 15.0 ? "\n点击终止可采用当前结果" : ""
+                                ))
+                            )
+                        );
+                    }
+                    lastTelemetry = phaseBalancer.getTelemetry();
                     
                     runOnUiThread(() -> {
                         progressDialog.dismiss();
@@ -641,6 +730,139 @@ public class PhaseBalanceActivity extends AppCompatActivity
         }
     }
     
+    // 按回路分组批量优化，所有回路在后台线程池中并行优化，结束后显示汇总报告
+    private void optimizeAllRoutes() 
+    {
+        try 
+        {
+            View progressView = LayoutInflater.from(this).inflate(R.layout.dialog_progress, null);
+            TextView tvProgress = progressView.findViewById(R.id.tvProgress);
+            tvProgress.setText("正在按回路批量优化相位分配...");
+            
+            // 调度器在显示对话框前创建，读取用户数据期间点击取消也能生效
+            BatchPhaseScheduler scheduler = new BatchPhaseScheduler();
+            batchScheduler = scheduler;
+            AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setView(progressView)
+                .setCancelable(false)
+                .setNegativeButton("取消", (dialog, which) -> scheduler.cancel())
+                .create();
+            progressDialog.setCanceledOnTouchOutside(false);
+            progressDialog.show();
+            
+            new Thread(() -> {
+                try 
+                {
+                    isOptimizing = true;
+                    List<User> allUsers = getAllUsers();
+                    if (allUsers.isEmpty()) 
+                    {
+                        runOnUiThread(() -> {
+                            progressDialog.dismiss();
+                            Toast.makeText(this, "没有可优化的用户数据，请确保已导入用户数据且存在当天的用电量记录", Toast.LENGTH_LONG).show();
+                        });
+                        return;
+                    }
+                    
+                    BatchPhaseScheduler.BatchReport report = scheduler.run(
+                        allUsers, branchGroups.isEmpty() ? null : branchGroups,
+                        (result, finishedCount, totalCount) -> runOnUiThread(() -> 
+                            tvProgress.setText(String.format(
+                                "正在按回路批量优化相位分配\n已完成 %d/%d 个回路\n回路%s: %.2f%% -> %.2f%%",
+                                finishedCount, totalCount, result.getRouteNumber(),
+                                result.getInitialUnbalanceRate(), result.getFinalUnbalanceRate()
+                            ))
+                        )
+                    );
+                    
+                    runOnUiThread(() -> {
+                        progressDialog.dismiss();
+                        new AlertDialog.Builder(this)
+                            .setTitle("批量调相报告")
+                            .setMessage(report.getSummary())
+                            .setPositiveButton("确定", null)
+                            .show();
+                    });
+                } 
+                catch (Exception e) 
+                {
+                    e.printStackTrace();
+                    runOnUiThread(() -> {
+                        progressDialog.dismiss();
+                        Toast.makeText(this, "批量优化出错：" + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    });
+                }
+                finally 
+                {
+                    isOptimizing = false;
+                    batchScheduler = null;
+                }
+            }).start();
+        } 
+        catch (Exception e) 
+        {
+            e.printStackTrace();
+            Toast.makeText(this, "批量优化失败：" + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+    
+    // 从最近一次相位调整记录中取出各用户调整后的相位，没有记录时返回null
+    private byte[] getWarmStartPhases(List<User> allUsers) 
+    {
+        try 
+        {
+            Map<String, String> adjustedPhases = dbHelper.getLatestAdjustedPhases();
+            if (adjustedPhases.isEmpty()) 
+            {
+                return null;
+            }
+            
+            byte[] phases = new byte[allUsers.size()];
+            for (int i = 0; i < allUsers.size(); i++) 
+            {
+                String phase = adjustedPhases.get(allUsers.get(i).getUserId());
+                if (phase != null) 
+                {
+                    switch (phase.replace("相", "")) 
+                    {
+                        case "A": phases[i] = 1; break;
+                        case "B": phases[i] = 2; break;
+                        case "C": phases[i] = 3; break;
+                        default: phases[i] = 0; break;
+                    }
+                }
+            }
+            return phases;
+        } 
+        catch (Exception e) 
+        {
+            Log.e("PhaseBalanceActivity", "读取上一次调相方案失败", e);
+            return null;
+        }
+    }
+    
+    // 调试界面：显示最近一次优化的各阶段耗时、计数和收敛情况，可复制JSON格式的完整数据
+    private void showTelemetryDialog() 
+    {
+        OptimizerTelemetry telemetry = lastTelemetry;
+        if (telemetry == null) 
+        {
+            Toast.makeText(this, "请先执行相位优化", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        new AlertDialog.Builder(this)
+            .setTitle("优化过程统计")
+            .setMessage(telemetry.getSummary())
+            .setPositiveButton("确定", null)
+            .setNeutralButton("复制JSON", (dialog, which) -> {
+                ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
+                clipboard.setPrimaryClip(ClipData.newPlainText("optimizer telemetry", telemetry.toJson()));
+                Toast.makeText(this, "已复制到剪贴板", Toast.LENGTH_SHORT).show();
+            })
+            .show();
+    }
+    
     private void showOptimizationResult(List<User> users, PhaseBalancer.Solution solution) 
     {
         try 
@@ -819,6 +1041,12 @@ public class PhaseBalanceActivity extends AppCompatActivity
             phaseBalancer.terminate();
             Toast.makeText(this, "正在终止优化...", Toast.LENGTH_SHORT).show();
         }
+        else if (isOptimizing && batchScheduler != null) 
+        {
+            // 如果正在批量优化，取消剩余回路
+            batchScheduler.cancel();
+            Toast.makeText(this, "正在取消批量优化...", Toast.LENGTH_SHORT).show();
+        }
         else 
         {
             // 否则执行默认的返回操作
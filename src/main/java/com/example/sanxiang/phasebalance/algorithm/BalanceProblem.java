@@ -0,0 +1,435 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.phasebalance.model.User;
+import java.util.*;
+
+/**
+ * 调相问题的紧凑表示
+ * 由用户列表和支线组列表一次性构建，之后不再修改。
+ * 用户属性按列存放在并行数组中，优化器的内层循环只访问这些数组，
+ * 不再经过List<User>和getter
+ */
+public final class BalanceProblem
+{
+    // 用户数据（按用户索引对齐的并行数组）
+    final int userCount;               // 用户数
+    final double[] phaseAPowers;       // A相电量
+    final double[] phaseBPowers;       // B相电量
+    final double[] phaseCPowers;       // C相电量
+    final double[] ownPowers;          // 普通用户在当前相位上的电量
+    final double[] totalPowers;        // 用户总电量
+    final byte[] currentPhases;        // 当前相位
+    final BitSet powerUsers;           // 动力用户集合
+    final double totalPower;           // 所有用户的总电量（子问题中包含背景负荷）
+
+    // 支线组索引（CSR格式）：第g个支线组的用户为groupMembers[groupStart[g]]到groupMembers[groupStart[g + 1] - 1]
+    final int[] groupOfUser;           // 每个用户所属支线组的序号，-1表示不属于任何支线组
+    final int[] groupStart;            // 每个支线组在groupMembers中的起始位置，长度为支线组数+1
+    final int[] groupMembers;          // 按支线组连续存放的用户索引
+    final double[] groupCostRates;     // 每个支线组的调相代价系数
+    final int[] selectionUnits;        // 选择单元：负数-(g+1)表示第g个支线组，非负数表示独立用户索引
+    final int maxGroupSize;            // 最大支线组用户数
+
+    // 支线索引：回路号和支线号都相同的用户属于同一条支线，分层求解时按支线划分子问题
+    final int[] branchOfUser;          // 每个用户所属支线的序号
+    final int[] routeOfBranch;         // 每条支线所属回路的序号
+
+    // 多日电量：每个用户K天（或K个预测日）的三相电量，dayPowers[(i * dayCount + d) * 3 + p]，
+    // 普通用户每天的电量之和计在当前相位上。没有多日数据时dayCount为0，只按单日电量优化
+    final int dayCount;                // 天数K
+    final double[] dayPowers;          // 每个用户每天的三相电量
+
+    // 背景负荷：子问题只包含网络的一部分，其余部分作为固定的三相负荷计入，完整问题中均为0
+    final double[] backgroundLoads;    // 其余部分的三相电量
+    final int backgroundUserCount;     // 其余部分的用户数，计算调整用户比例时计入
+
+    public BalanceProblem(List<User> users, List<BranchGroup> branchGroups)
+    {
+        userCount = users.size();
+        phaseAPowers = new double[userCount];
+        phaseBPowers = new double[userCount];
+        phaseCPowers = new double[userCount];
+        ownPowers = new double[userCount];
+        totalPowers = new double[userCount];
+        currentPhases = new byte[userCount];
+        powerUsers = new BitSet(userCount);
+
+        double sum = 0.0;
+        for (int i = 0; i < userCount; i++)
+        {
+            User user = users.get(i);
+            phaseAPowers[i] = user.getPhaseAPower();
+            phaseBPowers[i] = user.getPhaseBPower();
+            phaseCPowers[i] = user.getPhaseCPower();
+            ownPowers[i] = user.getPowerByPhase(user.getCurrentPhase());
+            totalPowers[i] = user.getTotalPower();
+            currentPhases[i] = user.getCurrentPhase();
+            if (user.isPowerPhase())
+            {
+                powerUsers.set(i);
+            }
+            sum += user.getTotalPower();
+        }
+        totalPower = sum;
+        backgroundLoads = new double[3];
+        backgroundUserCount = 0;
+
+        // 所有用户都有至少两天的数据时，取共同的天数
+        int days = userCount > 0 ? Integer.MAX_VALUE : 0;
+        for (User user : users)
+        {
+            double[][] dailyPowers = user.getDailyPowers();
+            days = Math.min(days, dailyPowers == null ? 0 : dailyPowers.length);
+        }
+        dayCount = days >= 2 ? days : 0;
+        dayPowers = new double[userCount * dayCount * 3];
+        for (int i = 0; i < userCount && dayCount > 0; i++)
+        {
+            double[][] dailyPowers = users.get(i).getDailyPowers();
+            for (int d = 0; d < dayCount; d++)
+            {
+                int offset = (i * dayCount + d) * 3;
+                if (powerUsers.get(i))
+                {
+                    System.arraycopy(dailyPowers[d], 0, dayPowers, offset, 3);
+                }
+                else if (currentPhases[i] >= 1)
+                {
+                    dayPowers[offset + currentPhases[i] - 1] = dailyPowers[d][0] + dailyPowers[d][1] + dailyPowers[d][2];
+                }
+            }
+        }
+
+        // 为每条支线和每个回路分配序号
+        Map<String, Integer> branchIds = new HashMap<>();
+        Map<String, Integer> routeIds = new HashMap<>();
+        List<Integer> branchRoutes = new ArrayList<>();
+        branchOfUser = new int[userCount];
+        for (int i = 0; i < userCount; i++)
+        {
+            User user = users.get(i);
+            String branchKey = user.getRouteNumber() + "-" + user.getBranchNumber();
+            Integer branchId = branchIds.get(branchKey);
+            if (branchId == null)
+            {
+                branchId = branchIds.size();
+                branchIds.put(branchKey, branchId);
+                Integer routeId = routeIds.get(user.getRouteNumber());
+                if (routeId == null)
+                {
+                    routeId = routeIds.size();
+                    routeIds.put(user.getRouteNumber(), routeId);
+                }
+                branchRoutes.add(routeId);
+            }
+            branchOfUser[i] = branchId;
+        }
+        routeOfBranch = new int[branchRoutes.size()];
+        for (int b = 0; b < routeOfBranch.length; b++)
+        {
+            routeOfBranch[b] = branchRoutes.get(b);
+        }
+
+        Map<String, Double> routeBranchCosts = buildRouteBranchCosts(users);
+
+        // 为每个支线组分配序号，重复的支线组只保留一个
+        Map<String, Integer> groupIds = new LinkedHashMap<>();
+        if (branchGroups != null)
+        {
+            for (BranchGroup group : branchGroups)
+            {
+                String groupKey = group.getRouteNumber() + "-" + group.getBranchNumber();
+                if (!groupIds.containsKey(groupKey))
+                {
+                    groupIds.put(groupKey, groupIds.size());
+                }
+            }
+        }
+
+        // 一次遍历找出每个用户所属的支线组，并统计各组用户数
+        groupOfUser = new int[userCount];
+        int[] groupSizes = new int[groupIds.size()];
+        for (int i = 0; i < userCount; i++)
+        {
+            User user = users.get(i);
+            Integer groupId = groupIds.get(user.getRouteNumber() + "-" + user.getBranchNumber());
+            groupOfUser[i] = groupId != null ? groupId : -1;
+            if (groupId != null)
+            {
+                groupSizes[groupId]++;
+            }
+        }
+
+        // 去掉没有用户的支线组，重新编号
+        int[] compactIds = new int[groupSizes.length];
+        int groupCount = 0;
+        for (int g = 0; g < groupSizes.length; g++)
+        {
+            compactIds[g] = groupSizes[g] > 0 ? groupCount++ : -1;
+        }
+
+        groupCostRates = new double[groupCount];
+        groupStart = new int[groupCount + 1];
+        for (Map.Entry<String, Integer> entry : groupIds.entrySet())
+        {
+            int groupId = compactIds[entry.getValue()];
+            if (groupId >= 0)
+            {
+                Double branchCost = routeBranchCosts.get(entry.getKey());
+                groupCostRates[groupId] = branchCost != null ? branchCost : 0.0;
+                groupStart[groupId + 1] = groupSizes[entry.getValue()];
+            }
+        }
+
+        // 前缀和得到各组起始位置，并计算最大组大小
+        int largestGroup = 0;
+        for (int g = 0; g < groupCount; g++)
+        {
+            largestGroup = Math.max(largestGroup, groupStart[g + 1]);
+            groupStart[g + 1] += groupStart[g];
+        }
+        maxGroupSize = largestGroup;
+
+        // 按用户索引顺序填充各组成员
+        groupMembers = new int[groupStart[groupCount]];
+        int[] fillPositions = Arrays.copyOf(groupStart, groupCount);
+        int ungroupedCount = 0;
+        for (int i = 0; i < userCount; i++)
+        {
+            if (groupOfUser[i] >= 0)
+            {
+                groupOfUser[i] = compactIds[groupOfUser[i]];
+                groupMembers[fillPositions[groupOfUser[i]]++] = i;
+            }
+            else
+            {
+                ungroupedCount++;
+            }
+        }
+
+        selectionUnits = buildSelectionUnits(groupOfUser, groupCount, ungroupedCount);
+    }
+
+    // 由完整问题中的部分用户构建子问题，其余用户的三相电量作为背景负荷。
+    // 这些用户所在的支线组必须完整包含在子问题中
+    private BalanceProblem(BalanceProblem parent, int[] userIndices, double[] backgroundLoads, int backgroundUserCount)
+    {
+        userCount = userIndices.length;
+        phaseAPowers = new double[userCount];
+        phaseBPowers = new double[userCount];
+        phaseCPowers = new double[userCount];
+        ownPowers = new double[userCount];
+        totalPowers = new double[userCount];
+        currentPhases = new byte[userCount];
+        powerUsers = new BitSet(userCount);
+        branchOfUser = new int[userCount];
+        routeOfBranch = parent.routeOfBranch;
+        this.backgroundLoads = Arrays.copyOf(backgroundLoads, 3);
+        this.backgroundUserCount = backgroundUserCount;
+        dayCount = 0;
+        dayPowers = new double[0];
+
+        // 复制用户数据，支线组按首次出现的顺序重新编号
+        double sum = backgroundLoads[0] + backgroundLoads[1] + backgroundLoads[2];
+        int[] localGroupIds = new int[parent.getGroupCount()];
+        Arrays.fill(localGroupIds, -1);
+        int groupCount = 0;
+        groupOfUser = new int[userCount];
+        for (int i = 0; i < userCount; i++)
+        {
+            int index = userIndices[i];
+            phaseAPowers[i] = parent.phaseAPowers[index];
+            phaseBPowers[i] = parent.phaseBPowers[index];
+            phaseCPowers[i] = parent.phaseCPowers[index];
+            ownPowers[i] = parent.ownPowers[index];
+            totalPowers[i] = parent.totalPowers[index];
+            currentPhases[i] = parent.currentPhases[index];
+            if (parent.isPowerUser(index))
+            {
+                powerUsers.set(i);
+            }
+            branchOfUser[i] = parent.branchOfUser[index];
+            sum += parent.totalPowers[index];
+
+            int parentGroup = parent.groupOfUser[index];
+            if (parentGroup >= 0 && localGroupIds[parentGroup] < 0)
+            {
+                localGroupIds[parentGroup] = groupCount++;
+            }
+            groupOfUser[i] = parentGroup >= 0 ? localGroupIds[parentGroup] : -1;
+        }
+        totalPower = sum;
+
+        groupCostRates = new double[groupCount];
+        for (int g = 0; g < localGroupIds.length; g++)
+        {
+            if (localGroupIds[g] >= 0)
+            {
+                groupCostRates[localGroupIds[g]] = parent.groupCostRates[g];
+            }
+        }
+
+        // 统计各组用户数，前缀和得到起始位置
+        groupStart = new int[groupCount + 1];
+        for (int i = 0; i < userCount; i++)
+        {
+            if (groupOfUser[i] >= 0)
+            {
+                groupStart[groupOfUser[i] + 1]++;
+            }
+        }
+        int largestGroup = 0;
+        for (int g = 0; g < groupCount; g++)
+        {
+            largestGroup = Math.max(largestGroup, groupStart[g + 1]);
+            groupStart[g + 1] += groupStart[g];
+        }
+        maxGroupSize = largestGroup;
+
+        groupMembers = new int[groupStart[groupCount]];
+        int[] fillPositions = Arrays.copyOf(groupStart, groupCount);
+        int ungroupedCount = 0;
+        for (int i = 0; i < userCount; i++)
+        {
+            if (groupOfUser[i] >= 0)
+            {
+                groupMembers[fillPositions[groupOfUser[i]]++] = i;
+            }
+            else
+            {
+                ungroupedCount++;
+            }
+        }
+        selectionUnits = buildSelectionUnits(groupOfUser, groupCount, ungroupedCount);
+    }
+
+    // 选择单元：先放支线组整体，再放独立用户
+    private static int[] buildSelectionUnits(int[] groupOfUser, int groupCount, int ungroupedCount)
+    {
+        int[] units = new int[groupCount + ungroupedCount];
+        int unitCount = 0;
+        for (int g = 0; g < groupCount; g++)
+        {
+            units[unitCount++] = -(g + 1);
+        }
+        for (int i = 0; i < groupOfUser.length; i++)
+        {
+            if (groupOfUser[i] < 0)
+            {
+                units[unitCount++] = i;
+            }
+        }
+        return units;
+    }
+
+    // 由部分用户构建子问题，backgroundLoads为其余用户的三相电量，backgroundUserCount为其余用户数。
+    // 背景负荷只有单日电量，子问题不带多日数据
+    BalanceProblem subProblem(int[] userIndices, double[] backgroundLoads, int backgroundUserCount)
+    {
+        return new BalanceProblem(this, userIndices, backgroundLoads, backgroundUserCount);
+    }
+
+    // 按支线划分用户：每条支线为一组，用户数少于minSize的支线按回路合并为一组。
+    // 支线组由同一支线的用户组成，因此不会被拆分到不同的组中
+    int[][] partitionByBranch(int minSize)
+    {
+        int[] branchSizes = new int[routeOfBranch.length];
+        for (int i = 0; i < userCount; i++)
+        {
+            branchSizes[branchOfUser[i]]++;
+        }
+
+        // 大支线的键为支线序号，小支线的键为支线数加回路序号
+        Map<Integer, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < userCount; i++)
+        {
+            int branch = branchOfUser[i];
+            int key = branchSizes[branch] >= minSize ? branch : routeOfBranch.length + routeOfBranch[branch];
+            partitions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        int[][] result = new int[partitions.size()][];
+        int k = 0;
+        for (List<Integer> members : partitions.values())
+        {
+            result[k] = new int[members.size()];
+            for (int m = 0; m < members.size(); m++)
+            {
+                result[k][m] = members.get(m);
+            }
+            k++;
+        }
+        return result;
+    }
+
+    // 计算支线调相代价
+    private static Map<String, Double> buildRouteBranchCosts(List<User> users)
+    {
+        // 按支线和回路统计用户数
+        Map<String, Integer> branchUserCounts = new HashMap<>();
+        Map<String, Integer> routeUserCounts = new HashMap<>();
+        for (User user : users)
+        {
+            String branchKey = user.getRouteNumber() + "-" + user.getBranchNumber();
+            branchUserCounts.merge(branchKey, 1, Integer::sum);
+            routeUserCounts.merge(user.getRouteNumber(), 1, Integer::sum);
+        }
+
+        // 设置调相代价：
+        // 1. 同一支线上的用户：0.6
+        // 2. 同一回路不同支线的用户：1.0
+        // 3. 不同回路的用户：1.5
+        Map<String, Double> routeBranchCosts = new HashMap<>();
+        for (User user : users)
+        {
+            String branchKey = user.getRouteNumber() + "-" + user.getBranchNumber();
+            if (branchUserCounts.get(branchKey) > 1)
+            {
+                // 同一支线上有多个用户，设置较小的调相代价
+                routeBranchCosts.put(branchKey, 0.6);
+            }
+            else if (routeUserCounts.get(user.getRouteNumber()) > 1)
+            {
+                // 同一回路但不同支线，设置中等调相代价
+                routeBranchCosts.put(branchKey, 1.0);
+            }
+            else
+            {
+                // 不同回路，设置较高的调相代价
+                routeBranchCosts.put(branchKey, 1.5);
+            }
+        }
+        return routeBranchCosts;
+    }
+
+    // 用户数
+    public int getUserCount()
+    {
+        return userCount;
+    }
+
+    // 支线组数量
+    public int getGroupCount()
+    {
+        return groupCostRates.length;
+    }
+
+    // 支线组用户数
+    int getGroupSize(int groupId)
+    {
+        return groupStart[groupId + 1] - groupStart[groupId];
+    }
+
+    // 是否为动力用户
+    boolean isPowerUser(int index)
+    {
+        return powerUsers.get(index);
+    }
+
+    // 所有用户的总电量
+    public double getTotalPower()
+    {
+        return totalPower;
+    }
+}
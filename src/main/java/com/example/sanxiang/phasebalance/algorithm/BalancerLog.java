@@ -0,0 +1,85 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+/**
+ * 优化器日志
+ * 算法包不依赖Android，日志通过可替换的Logger输出：Android应用中设置为android.util.Log，
+ * 命令行等纯Java环境中默认不输出，需要时可设置为输出到标准错误。
+ * 日志分级，低于当前级别或没有设置Logger时直接返回，带格式参数的方法只在需要输出时才格式化。
+ * 参数中的基本类型装箱和可变参数数组仍在调用处分配，每个解或每次基因变化都会执行的代码
+ * 应先用isLoggable判断，不满足时不调用日志方法，关闭日志时不产生任何格式化和分配
+ */
+public final class BalancerLog
+{
+    // 日志级别，从低到高
+    public enum Level
+    {
+        VERBOSE,   // 逐个解的详细信息，只在排查问题时打开
+        DEBUG,     // 每次尝试、每次重新初始化等过程信息
+        INFO,      // 优化结果
+        WARN,      // 优化失败等异常情况
+        OFF        // 不输出
+    }
+
+    // 日志输出接口，可能被多个优化线程同时调用，实现需要线程安全
+    public interface Logger
+    {
+        void log(Level level, String tag, String message);
+    }
+
+    private static final Logger NO_LOGGER = (level, tag, message) -> { };
+
+    private static volatile Logger logger = NO_LOGGER;
+    private static volatile Level minLevel = Level.OFF;   // 没有设置Logger时不输出
+
+    private BalancerLog()
+    {
+    }
+
+    // 设置日志输出和最低输出级别，传入null表示不输出
+    public static void setLogger(Logger newLogger, Level level)
+    {
+        logger = newLogger != null ? newLogger : NO_LOGGER;
+        minLevel = newLogger != null ? level : Level.OFF;
+    }
+
+    // 设置最低输出级别，例如发布版本设置为INFO，调试时设置为VERBOSE
+    public static void setLevel(Level level)
+    {
+        minLevel = logger != NO_LOGGER ? level : Level.OFF;
+    }
+
+    // 指定级别的日志是否会输出
+    public static boolean isLoggable(Level level)
+    {
+        return level != Level.OFF && level.compareTo(minLevel) >= 0;
+    }
+
+    public static void v(String tag, String format, Object... args)
+    {
+        log(Level.VERBOSE, tag, format, args);
+    }
+
+    public static void d(String tag, String format, Object... args)
+    {
+        log(Level.DEBUG, tag, format, args);
+    }
+
+    public static void i(String tag, String format, Object... args)
+    {
+        log(Level.INFO, tag, format, args);
+    }
+
+    public static void w(String tag, String format, Object... args)
+    {
+        log(Level.WARN, tag, format, args);
+    }
+
+    // 没有格式参数时直接输出，消息中的%不做处理
+    private static void log(Level level, String tag, String format, Object[] args)
+    {
+        if (isLoggable(level))
+        {
+            logger.log(level, tag, args.length == 0 ? format : String.format(format, args));
+        }
+    }
+}
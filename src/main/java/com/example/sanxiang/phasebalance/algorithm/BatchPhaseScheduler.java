@@ -0,0 +1,444 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.phasebalance.model.User;
+import com.example.sanxiang.util.UnbalanceCalculator;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多回路批量调相
+ * 不同回路的用户互不影响，按回路号把用户分组后，每个回路使用独立的PhaseBalancer，
+ * 在固定大小的线程池中并行优化，所有回路的结果汇总为一份报告。
+ * 等待中的回路按优先级出队：先比较setPriority指定的优先级（越大越先），
+ * 相同时先处理调整前不平衡度高的回路，这样中途取消时最需要调整的回路已经优化完成。
+ * 每个回路的优化过程与单独优化时相同，结果与线程数无关
+ */
+public class BatchPhaseScheduler
+{
+    // 回路的优化结果状态
+    public enum RouteStatus
+    {
+        OPTIMIZED,   // 找到有效解
+        FAILED,      // 优化完成但没有有效解，或优化出错
+        CANCELLED    // 开始前或优化过程中被取消且没有有效解
+    }
+
+    /**
+     * 批量优化进度监听器，在工作线程中回调
+     */
+    public interface BatchListener
+    {
+        void onRouteFinished(RouteResult result, int finishedCount, int totalCount);
+    }
+
+    private final int workerCount;                                   // 工作线程数
+    private final Map<String, Integer> priorities = new HashMap<>();  // 指定的回路优先级
+    private final List<PhaseBalancer> runningBalancers = new ArrayList<>();  // 正在优化的回路，取消时逐个终止
+    private volatile boolean isCancelled = false;                    // 取消标志
+
+    // 默认保留一个核心给界面线程
+    public BatchPhaseScheduler()
+    {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public BatchPhaseScheduler(int workerCount)
+    {
+        this.workerCount = Math.max(1, workerCount);
+    }
+
+    // 指定回路的优先级，越大越先优化，未指定的回路为0
+    public void setPriority(String routeNumber, int priority)
+    {
+        priorities.put(routeNumber, priority);
+    }
+
+    // 取消批量优化：等待中的回路不再开始，正在优化的回路提前结束并保留已找到的有效解
+    public void cancel()
+    {
+        synchronized (runningBalancers)
+        {
+            isCancelled = true;
+            for (PhaseBalancer balancer : runningBalancers)
+            {
+                balancer.terminate();
+            }
+        }
+    }
+
+    // 清除取消标志。run()不会清除，因此在run()开始前调用的cancel()同样有效
+    public void reset()
+    {
+        isCancelled = false;
+    }
+
+    /**
+     * 按回路分组并行优化，阻塞到所有回路结束或取消后返回汇总报告。
+     * branchGroups可为null，每个回路只使用属于该回路的支线组
+     */
+    public BatchReport run(List<User> users, List<BranchGroup> branchGroups, BatchListener listener)
+    {
+        long startTime = System.currentTimeMillis();
+
+        // 按回路号分组，TreeMap保证报告中的回路顺序固定
+        Map<String, List<User>> routeUsers = new TreeMap<>();
+        for (User user : users)
+        {
+            routeUsers.computeIfAbsent(user.getRouteNumber(), k -> new ArrayList<>()).add(user);
+        }
+        Map<String, List<BranchGroup>> routeGroups = new HashMap<>();
+        if (branchGroups != null)
+        {
+            for (BranchGroup group : branchGroups)
+            {
+                routeGroups.computeIfAbsent(group.getRouteNumber(), k -> new ArrayList<>()).add(group);
+            }
+        }
+
+        List<RouteTask> tasks = new ArrayList<>();
+        for (Map.Entry<String, List<User>> entry : routeUsers.entrySet())
+        {
+            String routeNumber = entry.getKey();
+            Integer priority = priorities.get(routeNumber);
+            tasks.add(new RouteTask(
+                routeNumber, entry.getValue(), routeGroups.get(routeNumber),
+                priority == null ? 0 : priority
+            ));
+        }
+
+        // 线程池只在前workerCount个任务时直接启动线程，先按优先级排序再提交，
+        // 之后的任务在优先级队列中排队
+        Collections.sort(tasks);
+        RouteResult[] results = new RouteResult[tasks.size()];
+        AtomicInteger finishedCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            workerCount, workerCount, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>()
+        );
+
+        try
+        {
+            for (int i = 0; i < tasks.size(); i++)
+            {
+                RouteTask task = tasks.get(i);
+                int slot = i;
+                task.onFinished = result -> {
+                    results[slot] = result;
+                    int finished = finishedCount.incrementAndGet();
+                    BalancerLog.d("BatchPhaseScheduler",
+                        "回路%s优化结束（%d/%d），状态: %s，不平衡度: %.2f%% -> %.2f%%",
+                        result.routeNumber, finished, tasks.size(), result.status,
+                        result.initialUnbalanceRate, result.getFinalUnbalanceRate()
+                    );
+                    if (listener != null)
+                    {
+                        listener.onRouteFinished(result, finished, tasks.size());
+                    }
+                };
+                executor.execute(task);
+            }
+
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+            {
+                // 等待所有回路结束，取消后正在优化的回路会很快结束
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // 调用线程被中断时取消剩余回路，等待中的任务直接记为已取消
+            cancel();
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        List<RouteResult> routeResults = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            RouteTask task = tasks.get(i);
+            routeResults.add(results[i] != null ? results[i] : new RouteResult(
+                task.routeNumber, task.users, null, RouteStatus.CANCELLED, task.initialUnbalanceRate, 0L
+            ));
+        }
+        Collections.sort(routeResults, (r1, r2) -> r1.routeNumber.compareTo(r2.routeNumber));
+        return new BatchReport(routeResults, System.currentTimeMillis() - startTime);
+    }
+
+    // 优化单个回路
+    private RouteResult optimizeRoute(RouteTask task)
+    {
+        long startTime = System.currentTimeMillis();
+        PhaseBalancer balancer = null;
+        try
+        {
+            if (isCancelled)
+            {
+                return new RouteResult(task.routeNumber, task.users, null, RouteStatus.CANCELLED, task.initialUnbalanceRate, 0L);
+            }
+
+            // 并行度来自回路之间，单个回路内部不再并行评估
+            balancer = new PhaseBalancer(task.users, task.branchGroups);
+            balancer.setParallelEvaluation(false);
+            synchronized (runningBalancers)
+            {
+                runningBalancers.add(balancer);
+                if (isCancelled)
+                {
+                    balancer.terminate();
+                }
+            }
+
+            PhaseBalancer.Solution solution = balancer.optimize();
+            RouteStatus status = solution != null ? RouteStatus.OPTIMIZED
+                : isCancelled ? RouteStatus.CANCELLED : RouteStatus.FAILED;
+            return new RouteResult(task.routeNumber, task.users, solution, status,
+                task.initialUnbalanceRate, System.currentTimeMillis() - startTime);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            return new RouteResult(task.routeNumber, task.users, null, RouteStatus.FAILED,
+                task.initialUnbalanceRate, System.currentTimeMillis() - startTime);
+        }
+        finally
+        {
+            if (balancer != null)
+            {
+                synchronized (runningBalancers)
+                {
+                    runningBalancers.remove(balancer);
+                }
+            }
+        }
+    }
+
+    // 调整前的三相不平衡度
+    private static double calculateInitialUnbalance(List<User> users)
+    {
+        double phaseA = 0, phaseB = 0, phaseC = 0;
+        for (User user : users)
+        {
+            if (user.isPowerPhase())
+            {
+                phaseA += user.getPhaseAPower();
+                phaseB += user.getPhaseBPower();
+                phaseC += user.getPhaseCPower();
+            }
+            else
+            {
+                double power = user.getPowerByPhase(user.getCurrentPhase());
+                switch (user.getCurrentPhase())
+                {
+                    case 1: phaseA += power; break;
+                    case 2: phaseB += power; break;
+                    case 3: phaseC += power; break;
+                }
+            }
+        }
+        return UnbalanceCalculator.calculateUnbalanceRate(phaseA, phaseB, phaseC);
+    }
+
+    // 单个回路的优化任务，按优先级排序
+    private class RouteTask implements Runnable, Comparable<RouteTask>
+    {
+        final String routeNumber;
+        final List<User> users;
+        final List<BranchGroup> branchGroups;
+        final int priority;
+        final double initialUnbalanceRate;
+        RouteListener onFinished;
+
+        RouteTask(String routeNumber, List<User> users, List<BranchGroup> branchGroups, int priority)
+        {
+            this.routeNumber = routeNumber;
+            this.users = users;
+            this.branchGroups = branchGroups;
+            this.priority = priority;
+            this.initialUnbalanceRate = calculateInitialUnbalance(users);
+        }
+
+        @Override
+        public void run()
+        {
+            onFinished.onFinished(optimizeRoute(this));
+        }
+
+        @Override
+        public int compareTo(RouteTask other)
+        {
+            if (priority != other.priority)
+            {
+                return Integer.compare(other.priority, priority);
+            }
+            if (initialUnbalanceRate != other.initialUnbalanceRate)
+            {
+                return Double.compare(other.initialUnbalanceRate, initialUnbalanceRate);
+            }
+            return routeNumber.compareTo(other.routeNumber);
+        }
+    }
+
+    private interface RouteListener
+    {
+        void onFinished(RouteResult result);
+    }
+
+    // 单个回路的优化结果
+    public static class RouteResult
+    {
+        private final String routeNumber;
+        private final List<User> users;
+        private final PhaseBalancer.Solution solution;
+        private final RouteStatus status;
+        private final double initialUnbalanceRate;
+        private final long elapsedMillis;
+
+        RouteResult(String routeNumber, List<User> users, PhaseBalancer.Solution solution,
+                    RouteStatus status, double initialUnbalanceRate, long elapsedMillis)
+        {
+            this.routeNumber = routeNumber;
+            this.users = users;
+            this.solution = solution;
+            this.status = status;
+            this.initialUnbalanceRate = initialUnbalanceRate;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public String getRouteNumber()
+        {
+            return routeNumber;
+        }
+
+        // 回路内的用户，与solution中的用户索引对齐
+        public List<User> getUsers()
+        {
+            return users;
+        }
+
+        // 最优有效解，没有有效解时为null
+        public PhaseBalancer.Solution getSolution()
+        {
+            return solution;
+        }
+
+        public RouteStatus getStatus()
+        {
+            return status;
+        }
+
+        public double getInitialUnbalanceRate()
+        {
+            return initialUnbalanceRate;
+        }
+
+        // 调整后的不平衡度，没有有效解时为调整前的不平衡度
+        public double getFinalUnbalanceRate()
+        {
+            return solution != null ? solution.getUnbalanceRate() : initialUnbalanceRate;
+        }
+
+        // 调整的用户数
+        public int getChangedUserCount()
+        {
+            return solution != null ? (int) Math.round(solution.getChangeRatio() * users.size() / 100) : 0;
+        }
+
+        public long getElapsedMillis()
+        {
+            return elapsedMillis;
+        }
+    }
+
+    // 批量优化的汇总报告
+    public static class BatchReport
+    {
+        private final List<RouteResult> routeResults;
+        private final long elapsedMillis;
+
+        BatchReport(List<RouteResult> routeResults, long elapsedMillis)
+        {
+            this.routeResults = routeResults;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        // 各回路结果，按回路号排列
+        public List<RouteResult> getRouteResults()
+        {
+            return routeResults;
+        }
+
+        public long getElapsedMillis()
+        {
+            return elapsedMillis;
+        }
+
+        public int getCount(RouteStatus status)
+        {
+            int count = 0;
+            for (RouteResult result : routeResults)
+            {
+                if (result.status == status)
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public int getTotalUserCount()
+        {
+            int count = 0;
+            for (RouteResult result : routeResults)
+            {
+                count += result.users.size();
+            }
+            return count;
+        }
+
+        public int getChangedUserCount()
+        {
+            int count = 0;
+            for (RouteResult result : routeResults)
+            {
+                count += result.getChangedUserCount();
+            }
+            return count;
+        }
+
+        // 报告文本：总体统计和每个回路的调整情况
+        public String getSummary()
+        {
+            StringBuilder summary = new StringBuilder();
+            summary.append(String.format(
+                "共%d个回路，%d个用户，用时%.1f秒\n优化成功%d个，失败%d个，取消%d个\n调整用户数: %d\n",
+                routeResults.size(), getTotalUserCount(), elapsedMillis / 1000.0,
+                getCount(RouteStatus.OPTIMIZED), getCount(RouteStatus.FAILED), getCount(RouteStatus.CANCELLED),
+                getChangedUserCount()
+            ));
+            for (RouteResult result : routeResults)
+            {
+                summary.append('\n');
+                switch (result.status)
+                {
+                    case OPTIMIZED:
+                        summary.append(String.format(
+                            "回路%s：不平衡度 %.2f%% -> %.2f%%，调整%d/%d个用户",
+                            result.routeNumber, result.initialUnbalanceRate, result.getFinalUnbalanceRate(),
+                            result.getChangedUserCount(), result.users.size()
+                        ));
+                        break;
+                    case FAILED:
+                        summary.append(String.format(
+                            "回路%s：未找到有效方案（不平衡度 %.2f%%）", result.routeNumber, result.initialUnbalanceRate
+                        ));
+                        break;
+                    default:
+                        summary.append(String.format("回路%s：已取消", result.routeNumber));
+                        break;
+                }
+            }
+            return summary.toString();
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.util.UnbalanceCalculator;
+import java.util.*;
+
+/**
+ * 小规模调相问题的分支定界求解器
+ * 决策单元与遗传算法一致：支线组整体调到同一相位（或保持不变），独立普通用户选择相位，
+ * 独立动力用户选择移动次数。目标函数与PhaseBalancer的适应度完全相同，
+ * 并满足相同的最大调整用户数约束。
+ * 搜索完成时得到最优解；超出节点数上限时返回当前最优解，并给出目标值的下界
+ */
+final class BranchAndBoundSolver
+{
+    private static final double EPSILON = 1e-9;
+
+    private final BalanceProblem problem;
+    private final int maxChanges;            // 最大调整用户数
+    private final long nodeLimit;            // 最大搜索节点数
+
+    // 决策单元（按总电量降序）及其选项，每个单元的第0个选项为保持不变
+    private final int unitCount;
+    private final int[] unitStart;           // 每个单元的用户在unitUsers中的起始位置
+    private final int[] unitUsers;           // 按单元连续存放的用户索引
+    private final boolean[] unitIsPower;     // 是否为独立动力用户单元
+    private final int[] optionStart;         // 每个单元的选项在选项数组中的起始位置
+    private final byte[] optionValues;       // 选项取值：动力用户为移动次数，其余为目标相位（0表示保持不变）
+    private final double[] optionPowers;     // 选项带来的三相电量，每个选项连续3个
+    private final int[] optionChanges;       // 选项带来的调整用户数
+    private final double[] optionCosts;      // 选项带来的调相代价适应度
+    private final double[] remainingPowers;  // 第k个单元及之后所有单元的总电量
+    private final double[] keepPowers;       // 第k个单元及之后所有单元保持不变时的三相电量，每个单元连续3个
+    private final double[] unitPowerSums;    // 前k个单元的总电量之和
+    private final double averagePower;       // 三相平均电量，与分配方式无关
+
+    // 搜索状态
+    private final int[] choices;             // 当前路径上各单元选择的选项
+    private final int[] bestChoices;         // 最优解各单元选择的选项
+    private final double[][] childBounds;    // 每层子节点的下界
+    private final int[][] childOrder;        // 每层子节点的搜索顺序
+    private double bestValue;                // 最优目标值
+    private double openBound;                // 未搜索子树的最小下界
+    private long nodeCount;                  // 已搜索节点数
+
+    BranchAndBoundSolver(BalanceProblem problem, int maxChanges, long nodeLimit)
+    {
+        this.problem = problem;
+        this.maxChanges = maxChanges;
+        this.nodeLimit = nodeLimit;
+
+        // 收集决策单元：支线组、独立普通用户、独立动力用户
+        List<int[]> units = new ArrayList<>();
+        for (int g = 0; g < problem.getGroupCount(); g++)
+        {
+            units.add(Arrays.copyOfRange(problem.groupMembers, problem.groupStart[g], problem.groupStart[g + 1]));
+        }
+        for (int i = 0; i < problem.userCount; i++)
+        {
+            if (problem.groupOfUser[i] < 0)
+            {
+                units.add(new int[] { i });
+            }
+        }
+
+        // 按单元总电量降序排列，大单元先决定，下界收紧得更快
+        Collections.sort(units, (u1, u2) -> Double.compare(unitPower(u2), unitPower(u1)));
+
+        unitCount = units.size();
+        unitStart = new int[unitCount + 1];
+        for (int k = 0; k < unitCount; k++)
+        {
+            unitStart[k + 1] = unitStart[k] + units.get(k).length;
+        }
+        unitUsers = new int[unitStart[unitCount]];
+        unitIsPower = new boolean[unitCount];
+        for (int k = 0; k < unitCount; k++)
+        {
+            int[] members = units.get(k);
+            System.arraycopy(members, 0, unitUsers, unitStart[k], members.length);
+            unitIsPower[k] = problem.groupOfUser[members[0]] < 0 && problem.isPowerUser(members[0]);
+        }
+
+        // 生成各单元的选项（每个单元最多4个）
+        optionStart = new int[unitCount + 1];
+        byte[] values = new byte[unitCount * 4];
+        int optionCount = 0;
+        for (int k = 0; k < unitCount; k++)
+        {
+            optionStart[k] = optionCount;
+            values[optionCount++] = 0;
+            if (unitIsPower[k])
+            {
+                values[optionCount++] = 1;
+                values[optionCount++] = 2;
+            }
+            else
+            {
+                for (byte phase = 1; phase <= 3; phase++)
+                {
+                    // 所有用户已在该相位上时与保持不变相同，跳过
+                    boolean allOnPhase = true;
+                    for (int m = unitStart[k]; m < unitStart[k + 1]; m++)
+                    {
+                        allOnPhase &= problem.currentPhases[unitUsers[m]] == phase;
+                    }
+                    if (!allOnPhase)
+                    {
+                        values[optionCount++] = phase;
+                    }
+                }
+            }
+        }
+        optionStart[unitCount] = optionCount;
+        optionValues = Arrays.copyOf(values, optionCount);
+
+        // 计算每个选项的电量、调整用户数和调相代价
+        optionPowers = new double[optionCount * 3];
+        optionChanges = new int[optionCount];
+        optionCosts = new double[optionCount];
+        double[] genePowers = new double[3];
+        for (int k = 0; k < unitCount; k++)
+        {
+            for (int o = optionStart[k]; o < optionStart[k + 1]; o++)
+            {
+                double adjustedPower = 0.0;
+                for (int m = unitStart[k]; m < unitStart[k + 1]; m++)
+                {
+                    int index = unitUsers[m];
+                    byte phase = genePhase(k, index, optionValues[o]);
+                    byte moves = geneMoves(k, index, optionValues[o]);
+
+                    Arrays.fill(genePowers, 0.0);
+                    accumulatePower(genePowers, index, phase, moves);
+                    optionPowers[o * 3] += genePowers[0];
+                    optionPowers[o * 3 + 1] += genePowers[1];
+                    optionPowers[o * 3 + 2] += genePowers[2];
+
+                    boolean changed = problem.isPowerUser(index) ? moves > 0 : phase != problem.currentPhases[index];
+                    if (changed)
+                    {
+                        optionChanges[o]++;
+                    }
+                    if (phase != problem.currentPhases[index])
+                    {
+                        adjustedPower += problem.totalPowers[index];
+                    }
+                }
+
+                // 与PhaseBalancer一致：调相代价 = 代价系数 * 调整电量 / 总电量，适应度中再归一化并乘以权重10
+                int groupId = problem.groupOfUser[unitUsers[unitStart[k]]];
+                if (groupId >= 0 && problem.totalPower > 0)
+                {
+                    double adjustmentCost = problem.groupCostRates[groupId] * adjustedPower / problem.totalPower;
+                    optionCosts[o] = adjustmentCost / problem.totalPower * 100 * 10;
+                }
+            }
+        }
+
+        // 剩余电量及保持不变时三相电量的后缀和
+        remainingPowers = new double[unitCount + 1];
+        keepPowers = new double[(unitCount + 1) * 3];
+        for (int k = unitCount - 1; k >= 0; k--)
+        {
+            int keep = optionStart[k];
+            remainingPowers[k] = remainingPowers[k + 1]
+                + optionPowers[keep * 3] + optionPowers[keep * 3 + 1] + optionPowers[keep * 3 + 2];
+            for (int p = 0; p < 3; p++)
+            {
+                keepPowers[k * 3 + p] = keepPowers[(k + 1) * 3 + p] + optionPowers[keep * 3 + p];
+            }
+        }
+        averagePower = (remainingPowers[0] + problem.backgroundLoads[0] + problem.backgroundLoads[1] + problem.backgroundLoads[2]) / 3.0;
+        
+        unitPowerSums = new double[unitCount + 1];
+        for (int k = 0; k < unitCount; k++)
+        {
+            unitPowerSums[k + 1] = unitPowerSums[k] + unitPower(units.get(k));
+        }
+
+        choices = new int[unitCount];
+        bestChoices = new int[unitCount];
+        childBounds = new double[unitCount][4];
+        childOrder = new int[unitCount][4];
+    }
+
+    // 单元总电量
+    private double unitPower(int[] members)
+    {
+        double power = 0.0;
+        for (int index : members)
+        {
+            power += problem.totalPowers[index];
+        }
+        return power;
+    }
+
+    // 选项对应的用户相位
+    private byte genePhase(int unit, int index, byte value)
+    {
+        if (unitIsPower[unit] || value == 0)
+        {
+            return problem.currentPhases[index];
+        }
+        return value;
+    }
+
+    // 选项对应的用户移动次数，与局部搜索中支线组的设置方式一致
+    private byte geneMoves(int unit, int index, byte value)
+    {
+        if (unitIsPower[unit])
+        {
+            return value;
+        }
+        return (byte) (value != 0 && value != problem.currentPhases[index] ? 1 : 0);
+    }
+
+    // 用户在给定相位和移动次数下的三相电量，与PhaseBalancer.accumulateUserPower一致
+    private void accumulatePower(double[] phasePowers, int index, byte phase, byte moves)
+    {
+        if (problem.isPowerUser(index))
+        {
+            double powerA = problem.phaseAPowers[index];
+            double powerB = problem.phaseBPowers[index];
+            double powerC = problem.phaseCPowers[index];
+            if (moves == 1)
+            {
+                phasePowers[0] += powerC;
+                phasePowers[1] += powerA;
+                phasePowers[2] += powerB;
+            }
+            else if (moves == 2)
+            {
+                phasePowers[0] += powerB;
+                phasePowers[1] += powerC;
+                phasePowers[2] += powerA;
+            }
+            else
+            {
+                phasePowers[0] += powerA;
+                phasePowers[1] += powerB;
+                phasePowers[2] += powerC;
+            }
+        }
+        else if (phase > 0)
+        {
+            phasePowers[phase - 1] += problem.ownPowers[index];
+        }
+    }
+
+    // 求解，返回true表示搜索完成、结果为最优解
+    boolean solve()
+    {
+        // 以全部保持不变作为初始上界，三相电量从背景负荷开始累加
+        Arrays.fill(choices, 0);
+        Arrays.fill(bestChoices, 0);
+        double pa = problem.backgroundLoads[0];
+        double pb = problem.backgroundLoads[1];
+        double pc = problem.backgroundLoads[2];
+        for (int k = 0; k < unitCount; k++)
+        {
+            int keep = optionStart[k];
+            pa += optionPowers[keep * 3];
+            pb += optionPowers[keep * 3 + 1];
+            pc += optionPowers[keep * 3 + 2];
+        }
+        bestValue = bound(unitCount, pa, pb, pc, 0, 0.0);
+        openBound = Double.POSITIVE_INFINITY;
+        nodeCount = 0;
+
+        search(0, problem.backgroundLoads[0], problem.backgroundLoads[1], problem.backgroundLoads[2], 0, 0.0);
+        return isOptimal();
+    }
+
+    // 深度优先搜索，子节点按下界从小到大搜索
+    private void search(int depth, double pa, double pb, double pc, int changes, double cost)
+    {
+        nodeCount++;
+        if (depth == unitCount)
+        {
+            double value = bound(depth, pa, pb, pc, changes, cost);
+            if (value < bestValue - EPSILON)
+            {
+                bestValue = value;
+                System.arraycopy(choices, 0, bestChoices, 0, unitCount);
+            }
+            return;
+        }
+
+        // 计算各子节点的下界
+        int first = optionStart[depth];
+        int count = optionStart[depth + 1] - first;
+        double[] bounds = childBounds[depth];
+        int[] order = childOrder[depth];
+        for (int i = 0; i < count; i++)
+        {
+            int o = first + i;
+            int childChanges = changes + optionChanges[o];
+            bounds[i] = childChanges > maxChanges ? Double.POSITIVE_INFINITY : bound(depth + 1,
+                pa + optionPowers[o * 3], pb + optionPowers[o * 3 + 1], pc + optionPowers[o * 3 + 2],
+                childChanges, cost + optionCosts[o]);
+
+            // 插入排序
+            int j = i;
+            while (j > 0 && bounds[order[j - 1]] > bounds[i])
+            {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            double childBound = bounds[order[i]];
+            if (childBound >= bestValue - EPSILON)
+            {
+                // 后面的子节点下界更大，全部剪枝
+                break;
+            }
+            if (nodeCount >= nodeLimit)
+            {
+                // 超出节点数上限，记录未搜索子树的下界
+                openBound = Math.min(openBound, childBound);
+                continue;
+            }
+
+            int o = first + order[i];
+            choices[depth] = order[i];
+            search(depth + 1,
+                pa + optionPowers[o * 3], pb + optionPowers[o * 3 + 1], pc + optionPowers[o * 3 + 2],
+                changes + optionChanges[o], cost + optionCosts[o]);
+        }
+        choices[depth] = 0;
+    }
+
+    // 部分分配的目标值下界，所有单元都已分配时即为精确的适应度。
+    // 1. 剩余电量全部为非负，因此最大相不会变小，最小相最多增加全部剩余电量；
+    // 2. 剩余单元全部保持不变时的最大偏差，每调整一个单元最多减少该单元的总电量，
+    //    单元按电量降序排列，调整c个单元最多减少其后c个单元的电量之和，同时至少增加c个调整用户
+    private double bound(int depth, double pa, double pb, double pc, int changes, double cost)
+    {
+        double changeWeight = 40.0 * 100 / (problem.userCount + problem.backgroundUserCount);
+        if (depth == unitCount)
+        {
+            return UnbalanceCalculator.calculateUnbalanceRate(pa, pb, pc) * 50 + changes * changeWeight + cost;
+        }
+        if (averagePower <= 0)
+        {
+            return changes * changeWeight + cost;
+        }
+
+        double maxPower = Math.max(pa, Math.max(pb, pc));
+        double minPower = Math.min(pa, Math.min(pb, pc));
+        double minDeviation = Math.max(0.0, Math.max(maxPower - averagePower,
+            averagePower - minPower - remainingPowers[depth]));
+
+        double keepDeviation = Math.max(Math.abs(pa + keepPowers[depth * 3] - averagePower),
+            Math.max(Math.abs(pb + keepPowers[depth * 3 + 1] - averagePower),
+                Math.abs(pc + keepPowers[depth * 3 + 2] - averagePower)));
+
+        double deviationWeight = 50.0 * 100 / averagePower;
+        double best = Double.POSITIVE_INFINITY;
+        int available = Math.min(unitCount - depth, maxChanges - changes);
+        for (int c = 0; c <= available; c++)
+        {
+            double reducible = unitPowerSums[depth + c] - unitPowerSums[depth];
+            double deviation = Math.max(minDeviation, keepDeviation - reducible);
+            best = Math.min(best, deviation * deviationWeight + (changes + c) * changeWeight);
+            if (keepDeviation - reducible <= minDeviation
+                || minDeviation * deviationWeight + (changes + c + 1) * changeWeight >= best)
+            {
+                // 继续调整更多单元不会得到更小的下界
+                break;
+            }
+        }
+        return best + cost;
+    }
+
+    // 是否已证明最优
+    boolean isOptimal()
+    {
+        return openBound == Double.POSITIVE_INFINITY;
+    }
+
+    // 最优解的目标值
+    double getBestValue()
+    {
+        return bestValue;
+    }
+
+    // 目标值的下界，最优时等于最优值
+    double getLowerBound()
+    {
+        return Math.min(bestValue, openBound);
+    }
+
+    // 已搜索节点数
+    long getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    // 将最优解写入相位和移动次数数组
+    void fillBestAssignment(byte[] phases, byte[] moves)
+    {
+        System.arraycopy(problem.currentPhases, 0, phases, 0, problem.userCount);
+        Arrays.fill(moves, (byte) 0);
+        for (int k = 0; k < unitCount; k++)
+        {
+            byte value = optionValues[optionStart[k] + bestChoices[k]];
+            for (int m = unitStart[k]; m < unitStart[k + 1]; m++)
+            {
+                int index = unitUsers[m];
+                phases[index] = genePhase(k, index, value);
+                moves[index] = geneMoves(k, index, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import java.util.*;
+
+/**
+ * 构造式初始解
+ * 以选择单元（支线组整体或独立普通用户）为物品做三路划分，支线组不可拆分。
+ * 只有电量最大、用户数合计不超过最大调整用户数的单元参与划分，
+ * 其余单元和独立动力用户保持不动，其电量作为各相的初始负荷，因此结果天然满足调整用户数限制。
+ * 结果为每个选择单元的目标相位（与problem.selectionUnits对齐，0表示保持不变），
+ * 由PhaseBalancer应用到解上，复杂度均为O(n log n)
+ */
+final class ConstructiveSeeder
+{
+    private final BalanceProblem problem;
+    private final int[] allUnits;          // 除独立动力用户外的选择单元在selectionUnits中的位置，按电量降序
+    private final int[] units;             // 参与划分的选择单元，为allUnits的前缀
+    private final double[] unitPowers;     // 各选择单元的电量（与selectionUnits对齐）
+    private final byte[] unitPhases;       // 各选择单元的主要当前相位（与selectionUnits对齐）
+    private final double[] baseLoads;      // 不参与划分的单元和背景负荷带来的各相初始负荷
+    private final double[][] unitLoads;    // 各选择单元保持不变时的三相电量（与selectionUnits对齐）
+
+    ConstructiveSeeder(BalanceProblem problem, int maxChanges)
+    {
+        this.problem = problem;
+        int unitCount = problem.selectionUnits.length;
+        unitPowers = new double[unitCount];
+        unitPhases = new byte[unitCount];
+        unitLoads = new double[unitCount][];
+        baseLoads = Arrays.copyOf(problem.backgroundLoads, 3);
+
+        List<Integer> movableUnits = new ArrayList<>();
+        for (int u = 0; u < unitCount; u++)
+        {
+            int unit = problem.selectionUnits[u];
+            if (unit >= 0 && problem.isPowerUser(unit))
+            {
+                baseLoads[0] += problem.phaseAPowers[unit];
+                baseLoads[1] += problem.phaseBPowers[unit];
+                baseLoads[2] += problem.phaseCPowers[unit];
+                continue;
+            }
+
+            // 单元电量、保持不变时的三相电量及电量最多的当前相位
+            double[] phasePowers = new double[3];
+            double[] loads = new double[3];
+            if (unit < 0)
+            {
+                int groupId = -(unit + 1);
+                for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++)
+                {
+                    int index = problem.groupMembers[k];
+                    addCurrentLoads(loads, index);
+                    double power = problem.isPowerUser(index) ? problem.totalPowers[index] : problem.ownPowers[index];
+                    if (problem.currentPhases[index] >= 1)
+                    {
+                        phasePowers[problem.currentPhases[index] - 1] += power;
+                    }
+                    unitPowers[u] += power;
+                }
+            }
+            else
+            {
+                addCurrentLoads(loads, unit);
+                unitPowers[u] = problem.ownPowers[unit];
+                if (problem.currentPhases[unit] >= 1)
+                {
+                    phasePowers[problem.currentPhases[unit] - 1] += unitPowers[u];
+                }
+            }
+            unitLoads[u] = loads;
+            unitPhases[u] = (byte) (1 + maxIndex(phasePowers));
+            movableUnits.add(u);
+        }
+
+        // 按电量降序排列
+        Collections.sort(movableUnits, (u1, u2) -> Double.compare(unitPowers[u2], unitPowers[u1]));
+        allUnits = new int[movableUnits.size()];
+        for (int i = 0; i < allUnits.length; i++)
+        {
+            allUnits[i] = movableUnits.get(i);
+        }
+
+        // 从大到小取单元参与划分，用户数合计不超过最大调整用户数，其余单元计入初始负荷
+        int usedChanges = 0;
+        int movableCount = 0;
+        while (movableCount < allUnits.length)
+        {
+            int unit = problem.selectionUnits[allUnits[movableCount]];
+            int size = unit < 0 ? problem.getGroupSize(-(unit + 1)) : 1;
+            if (usedChanges + size > maxChanges)
+            {
+                break;
+            }
+            usedChanges += size;
+            movableCount++;
+        }
+        units = Arrays.copyOf(allUnits, movableCount);
+        for (int i = movableCount; i < allUnits.length; i++)
+        {
+            double[] loads = unitLoads[allUnits[i]];
+            for (int p = 0; p < 3; p++)
+            {
+                baseLoads[p] += loads[p];
+            }
+        }
+    }
+
+    // 用户保持不变时的三相电量
+    private void addCurrentLoads(double[] loads, int index)
+    {
+        if (problem.isPowerUser(index))
+        {
+            loads[0] += problem.phaseAPowers[index];
+            loads[1] += problem.phaseBPowers[index];
+            loads[2] += problem.phaseCPowers[index];
+        }
+        else if (problem.currentPhases[index] >= 1)
+        {
+            loads[problem.currentPhases[index] - 1] += problem.ownPowers[index];
+        }
+    }
+
+    // 按电量降序排列的全部可调整单元（在selectionUnits中的位置）
+    int[] getUnitsByPower()
+    {
+        return allUnits;
+    }
+
+    // 最大电量优先（LPT）：按电量从大到小，每个单元放到当前负荷最小的相，
+    // 负荷相同时优先保持单元原来的相位
+    byte[] largestFirst()
+    {
+        byte[] phases = new byte[problem.selectionUnits.length];
+        double[] loads = Arrays.copyOf(baseLoads, 3);
+        for (int u : units)
+        {
+            int phase = unitPhases[u] - 1;
+            for (int p = 0; p < 3; p++)
+            {
+                if (loads[p] < loads[phase])
+                {
+                    phase = p;
+                }
+            }
+            loads[phase] += unitPowers[u];
+            phases[u] = (byte) (phase + 1);
+        }
+        return phases;
+    }
+
+    // Karmarkar-Karp差分法三路划分：每次取出差值最大的两个部分解，
+    // 一个的最大部分与另一个的最小部分合并，直到只剩一个部分解
+    byte[] karmarkarKarp()
+    {
+        // 每个选择单元是一个链表节点，另外3个节点代表A、B、C相上的初始负荷
+        int tagBase = problem.selectionUnits.length;
+        int[] next = new int[tagBase + 3];
+        Arrays.fill(next, -1);
+        boolean hasBaseLoad = baseLoads[0] + baseLoads[1] + baseLoads[2] > 0;
+
+        PriorityQueue<Partition> queue = new PriorityQueue<>(Math.max(1, units.length + 1),
+            (p1, p2) -> Double.compare(p2.spread(), p1.spread()));
+        for (int u : units)
+        {
+            queue.add(new Partition(new double[] { unitPowers[u], 0.0, 0.0 }, new int[] { u, -1, -1 }));
+        }
+        if (hasBaseLoad)
+        {
+            Partition base = new Partition(Arrays.copyOf(baseLoads, 3), new int[] { tagBase, tagBase + 1, tagBase + 2 });
+            base.normalize();
+            queue.add(base);
+        }
+
+        while (queue.size() > 1)
+        {
+            Partition first = queue.poll();
+            Partition second = queue.poll();
+            for (int i = 0; i < 3; i++)
+            {
+                first.append(i, second, 2 - i, next);
+            }
+            first.normalize();
+            queue.add(first);
+        }
+
+        byte[] phases = new byte[problem.selectionUnits.length];
+        Partition result = queue.poll();
+        if (result == null)
+        {
+            return phases;
+        }
+
+        // 确定三个部分对应的相位：有初始负荷时由其所在部分决定，
+        // 否则选择保持原相位电量最多的对应方式
+        int[] slotPhases = new int[3];
+        if (hasBaseLoad)
+        {
+            for (int slot = 0; slot < 3; slot++)
+            {
+                for (int node = result.heads[slot]; node >= 0; node = next[node])
+                {
+                    if (node >= tagBase)
+                    {
+                        slotPhases[slot] = node - tagBase;
+                    }
+                }
+            }
+        }
+        else
+        {
+            double[][] stayPowers = new double[3][3];
+            for (int slot = 0; slot < 3; slot++)
+            {
+                for (int node = result.heads[slot]; node >= 0; node = next[node])
+                {
+                    stayPowers[slot][unitPhases[node] - 1] += unitPowers[node];
+                }
+            }
+            double bestStay = -1.0;
+            for (int[] permutation : PERMUTATIONS)
+            {
+                double stay = stayPowers[0][permutation[0]] + stayPowers[1][permutation[1]] + stayPowers[2][permutation[2]];
+                if (stay > bestStay)
+                {
+                    bestStay = stay;
+                    slotPhases = permutation;
+                }
+            }
+        }
+
+        for (int slot = 0; slot < 3; slot++)
+        {
+            for (int node = result.heads[slot]; node >= 0; node = next[node])
+            {
+                if (node < tagBase)
+                {
+                    phases[node] = (byte) (slotPhases[slot] + 1);
+                }
+            }
+        }
+        return phases;
+    }
+
+    private static final int[][] PERMUTATIONS = {
+        { 0, 1, 2 }, { 0, 2, 1 }, { 1, 0, 2 }, { 1, 2, 0 }, { 2, 0, 1 }, { 2, 1, 0 }
+    };
+
+    private static int maxIndex(double[] values)
+    {
+        int index = 0;
+        for (int i = 1; i < values.length; i++)
+        {
+            if (values[i] > values[index])
+            {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    // 三路划分的部分解：三个部分的电量和及各部分单元链表
+    private static class Partition
+    {
+        final double[] sums;
+        final int[] heads;
+        final int[] tails;
+
+        Partition(double[] sums, int[] heads)
+        {
+            this.sums = sums;
+            this.heads = heads;
+            this.tails = Arrays.copyOf(heads, 3);
+        }
+
+        // 最大部分与最小部分之差
+        double spread()
+        {
+            return sums[0] - sums[2];
+        }
+
+        // 将另一个部分解的第otherSlot部分并入本部分解的第slot部分
+        void append(int slot, Partition other, int otherSlot, int[] next)
+        {
+            sums[slot] += other.sums[otherSlot];
+            if (other.heads[otherSlot] < 0)
+            {
+                return;
+            }
+            if (heads[slot] < 0)
+            {
+                heads[slot] = other.heads[otherSlot];
+            }
+            else
+            {
+                next[tails[slot]] = other.heads[otherSlot];
+            }
+            tails[slot] = other.tails[otherSlot];
+        }
+
+        // 三个部分按电量降序排列
+        void normalize()
+        {
+            for (int i = 0; i < 2; i++)
+            {
+                for (int j = 0; j < 2 - i; j++)
+                {
+                    if (sums[j] < sums[j + 1])
+                    {
+                        double sum = sums[j]; sums[j] = sums[j + 1]; sums[j + 1] = sum;
+                        int head = heads[j]; heads[j] = heads[j + 1]; heads[j + 1] = head;
+                        int tail = tails[j]; tails[j] = tails[j + 1]; tails[j + 1] = tail;
+                    }
+                }
+            }
+        }
+    }
+}
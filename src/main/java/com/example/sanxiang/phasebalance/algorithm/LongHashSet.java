@@ -0,0 +1,118 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import java.util.*;
+
+/**
+ * 基本类型long的哈希集合
+ * 开放寻址、线性探测，不对元素装箱，用于按解的64位哈希去重
+ */
+final class LongHashSet
+{
+    private static final long EMPTY = 0L;          // 空槽标记，0本身单独记录
+    private static final double LOAD_FACTOR = 0.5; // 最大装载因子
+
+    private long[] slots;                          // 哈希槽
+    private int size;                              // 元素个数（不含0）
+    private boolean containsZero;                  // 是否包含0
+
+    LongHashSet(int expectedSize)
+    {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+        {
+            capacity <<= 1;
+        }
+        slots = new long[capacity];
+    }
+
+    // 加入元素，集合中原本没有该元素时返回true
+    boolean add(long value)
+    {
+        if (value == EMPTY)
+        {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+
+        int mask = slots.length - 1;
+        int index = mix(value) & mask;
+        while (slots[index] != EMPTY)
+        {
+            if (slots[index] == value)
+            {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+
+        if (++size > slots.length * LOAD_FACTOR)
+        {
+            rehash(slots.length << 1);
+        }
+        return true;
+    }
+
+    // 是否包含元素
+    boolean contains(long value)
+    {
+        if (value == EMPTY)
+        {
+            return containsZero;
+        }
+
+        int mask = slots.length - 1;
+        int index = mix(value) & mask;
+        while (slots[index] != EMPTY)
+        {
+            if (slots[index] == value)
+            {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    // 元素个数
+    int size()
+    {
+        return size + (containsZero ? 1 : 0);
+    }
+
+    // 清空集合，保留已分配的槽
+    void clear()
+    {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        containsZero = false;
+    }
+
+    // 扩容并重新插入所有元素
+    private void rehash(int newCapacity)
+    {
+        long[] oldSlots = slots;
+        slots = new long[newCapacity];
+        int mask = newCapacity - 1;
+        for (long value : oldSlots)
+        {
+            if (value != EMPTY)
+            {
+                int index = mix(value) & mask;
+                while (slots[index] != EMPTY)
+                {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+        }
+    }
+
+    // 将64位值的高低位混合后作为槽位
+    private static int mix(long value)
+    {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
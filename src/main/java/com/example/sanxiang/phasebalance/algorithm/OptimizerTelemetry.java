@@ -0,0 +1,303 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 优化过程统计
+ * 记录各阶段的累计耗时（纳秒）和调用次数、各类操作的计数，以及收敛曲线。
+ * 岛屿和并行评估的线程会同时写入，计数使用原子数组，收敛曲线加锁。
+ * 阶段耗时按线程累加，多个岛屿并行时总和可能超过实际经过的时间。
+ * 统计从创建或上一次reset()开始，可导出为JSON
+ */
+public final class OptimizerTelemetry
+{
+    // 计时的阶段
+    public enum Stage
+    {
+        EXACT_SOLVER,     // 分支定界
+        INITIALIZATION,   // 初始化种群（含构造式初始解和热启动）
+        FITNESS,          // 每代开始时的适应度计算
+        SELECTION,        // 选择
+        CROSSOVER,        // 交叉
+        MUTATION,         // 变异
+        REPAIR,           // 修复
+        REINJECTION,      // 重新初始化部分种群
+        LOCAL_SEARCH,     // 局部搜索
+        MIGRATION         // 岛屿间迁移
+    }
+
+    // 计数项
+    public enum Counter
+    {
+        ATTEMPTS,                // 优化尝试次数
+        INITIALIZATION_RETRIES,  // 初始化种群时的重试次数
+        GENERATIONS,             // 进化代数（各岛屿合计）
+        FITNESS_EVALUATIONS,     // 适应度计算的解数
+        REPAIRS,                 // 超过调整用户数限制而修复的解数
+        LOCAL_SEARCH_MOVES,      // 局部搜索接受的移动次数
+        REINJECTIONS,            // 重新初始化部分种群的次数
+        MIGRATIONS,              // 岛屿间迁移次数
+        EXACT_SOLVER_NODES       // 分支定界搜索的节点数
+    }
+
+    /**
+     * 收敛曲线上的一个点：某个岛屿在某一代结束时的状态
+     */
+    public static final class TracePoint
+    {
+        public final int island;              // 岛屿序号，单种群优化时为0
+        public final int generation;          // 代数
+        public final long elapsedMillis;      // 距统计开始的时间
+        public final double bestFitness;      // 本代最优解的适应度
+        public final double unbalanceRate;    // 本代最优解的不平衡度
+        public final double changeRatio;      // 本代最优解的调整用户比例
+        public final double diversity;        // 种群多样性
+        public final double mutationRate;     // 变异率
+        public final long allocatedBytes;     // 岛屿线程累计分配的字节数，不支持时为-1
+
+        TracePoint(int island, int generation, long elapsedMillis, double bestFitness, double unbalanceRate,
+                   double changeRatio, double diversity, double mutationRate, long allocatedBytes)
+        {
+            this.island = island;
+            this.generation = generation;
+            this.elapsedMillis = elapsedMillis;
+            this.bestFitness = bestFitness;
+            this.unbalanceRate = unbalanceRate;
+            this.changeRatio = changeRatio;
+            this.diversity = diversity;
+            this.mutationRate = mutationRate;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private static final int MAX_TRACE_POINTS = 10000;  // 收敛曲线最多保留的点数
+
+    // 当前线程累计分配字节数的读取方法，只有HotSpot等支持com.sun.management的JVM上可用，Android上为null
+    private static final Object THREAD_BEAN;
+    private static final Method ALLOCATED_BYTES_METHOD;
+
+    static
+    {
+        Object bean = null;
+        Method method = null;
+        try
+        {
+            Class<?> factory = Class.forName("java.lang.management.ManagementFactory");
+            bean = factory.getMethod("getThreadMXBean").invoke(null);
+            Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (beanClass.isInstance(bean))
+            {
+                method = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        }
+        catch (Throwable e)
+        {
+            method = null;
+        }
+        THREAD_BEAN = bean;
+        ALLOCATED_BYTES_METHOD = method;
+    }
+
+    private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+    private final AtomicLongArray stageCalls = new AtomicLongArray(Stage.values().length);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+    private final List<TracePoint> trace = new ArrayList<>();
+    private volatile long startNanos = System.nanoTime();
+
+    // 清空所有统计，重新开始计时
+    public void reset()
+    {
+        for (int i = 0; i < stageNanos.length(); i++)
+        {
+            stageNanos.set(i, 0);
+            stageCalls.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); i++)
+        {
+            counters.set(i, 0);
+        }
+        synchronized (trace)
+        {
+            trace.clear();
+        }
+        startNanos = System.nanoTime();
+    }
+
+    // 记录一次阶段耗时，startNanos为阶段开始时的System.nanoTime()
+    void addStageTime(Stage stage, long startNanos)
+    {
+        stageNanos.addAndGet(stage.ordinal(), System.nanoTime() - startNanos);
+        stageCalls.incrementAndGet(stage.ordinal());
+    }
+
+    void increment(Counter counter)
+    {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    void add(Counter counter, long delta)
+    {
+        if (delta != 0)
+        {
+            counters.addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    // 在收敛曲线上记录一个点，超过上限后不再记录
+    void addTracePoint(int island, int generation, PhaseBalancer.Solution best, double diversity, double mutationRate)
+    {
+        TracePoint point = new TracePoint(
+            island, generation, (System.nanoTime() - startNanos) / 1_000_000L,
+            best.getFitness(), best.getUnbalanceRate(), best.getChangeRatio(),
+            diversity, mutationRate, currentThreadAllocatedBytes()
+        );
+        synchronized (trace)
+        {
+            if (trace.size() < MAX_TRACE_POINTS)
+            {
+                trace.add(point);
+            }
+        }
+    }
+
+    // 并入子问题的统计，收敛曲线不合并
+    void merge(OptimizerTelemetry other)
+    {
+        for (int i = 0; i < stageNanos.length(); i++)
+        {
+            stageNanos.addAndGet(i, other.stageNanos.get(i));
+            stageCalls.addAndGet(i, other.stageCalls.get(i));
+        }
+        for (int i = 0; i < counters.length(); i++)
+        {
+            counters.addAndGet(i, other.counters.get(i));
+        }
+    }
+
+    // 当前线程累计分配的字节数，不支持时返回-1
+    static long currentThreadAllocatedBytes()
+    {
+        if (ALLOCATED_BYTES_METHOD == null)
+        {
+            return -1;
+        }
+        try
+        {
+            return (Long) ALLOCATED_BYTES_METHOD.invoke(THREAD_BEAN, Thread.currentThread().getId());
+        }
+        catch (Exception e)
+        {
+            return -1;
+        }
+    }
+
+    public long getStageNanos(Stage stage)
+    {
+        return stageNanos.get(stage.ordinal());
+    }
+
+    public long getStageCalls(Stage stage)
+    {
+        return stageCalls.get(stage.ordinal());
+    }
+
+    public long getCounter(Counter counter)
+    {
+        return counters.get(counter.ordinal());
+    }
+
+    // 距统计开始经过的时间（毫秒）
+    public long getElapsedMillis()
+    {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    public List<TracePoint> getTrace()
+    {
+        synchronized (trace)
+        {
+            return new ArrayList<>(trace);
+        }
+    }
+
+    // 供调试界面显示的文本
+    public String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "总用时: %.1f秒\n\n各阶段耗时（各线程合计）:\n", getElapsedMillis() / 1000.0));
+        for (Stage stage : Stage.values())
+        {
+            long calls = getStageCalls(stage);
+            if (calls > 0)
+            {
+                summary.append(String.format(Locale.ROOT, "%s: %.1fms（%d次）\n",
+                    stage.name(), getStageNanos(stage) / 1e6, calls));
+            }
+        }
+        summary.append("\n计数:\n");
+        for (Counter counter : Counter.values())
+        {
+            summary.append(String.format(Locale.ROOT, "%s: %d\n", counter.name(), getCounter(counter)));
+        }
+
+        List<TracePoint> points = getTrace();
+        if (!points.isEmpty())
+        {
+            TracePoint last = points.get(points.size() - 1);
+            summary.append(String.format(Locale.ROOT,
+                "\n收敛曲线: %d个点，最后一点为岛屿%d第%d代，适应度 %.2f，不平衡度 %.2f%%，调整用户比例 %.2f%%",
+                points.size(), last.island, last.generation, last.bestFitness, last.unbalanceRate, last.changeRatio));
+        }
+        return summary.toString();
+    }
+
+    // 导出为JSON：{"elapsedMillis":..,"stages":{"FITNESS":{"nanos":..,"calls":..},..},"counters":{..},"trace":[..]}
+    public String toJson()
+    {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"elapsedMillis\":").append(getElapsedMillis());
+
+        json.append(",\"stages\":{");
+        for (Stage stage : Stage.values())
+        {
+            if (stage.ordinal() > 0) json.append(',');
+            json.append('"').append(stage.name()).append("\":{\"nanos\":").append(getStageNanos(stage))
+                .append(",\"calls\":").append(getStageCalls(stage)).append('}');
+        }
+
+        json.append("},\"counters\":{");
+        for (Counter counter : Counter.values())
+        {
+            if (counter.ordinal() > 0) json.append(',');
+            json.append('"').append(counter.name()).append("\":").append(getCounter(counter));
+        }
+
+        json.append("},\"trace\":[");
+        List<TracePoint> points = getTrace();
+        for (int i = 0; i < points.size(); i++)
+        {
+            TracePoint point = points.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"island\":").append(point.island)
+                .append(",\"generation\":").append(point.generation)
+                .append(",\"elapsedMillis\":").append(point.elapsedMillis)
+                .append(",\"bestFitness\":").append(jsonNumber(point.bestFitness))
+                .append(",\"unbalanceRate\":").append(jsonNumber(point.unbalanceRate))
+                .append(",\"changeRatio\":").append(jsonNumber(point.changeRatio))
+                .append(",\"diversity\":").append(jsonNumber(point.diversity))
+                .append(",\"mutationRate\":").append(jsonNumber(point.mutationRate))
+                .append(",\"allocatedBytes\":").append(point.allocatedBytes)
+                .append('}');
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    // JSON不支持NaN和无穷大，输出为null
+    private static String jsonNumber(double value)
+    {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+    }
+}
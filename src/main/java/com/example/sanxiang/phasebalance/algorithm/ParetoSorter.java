@@ -0,0 +1,196 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import java.util.*;
+
+/**
+ * 多目标排序（NSGA-II）
+ * 对一组解的目标值做快速非支配排序，并计算每个前沿内的拥挤距离。
+ * 所有目标均为越小越好；约束违反量不同时违反量小的解支配违反量大的解（可行解支配不可行解），
+ * 违反量相同时按Pareto支配关系比较。复杂度为O(M·N²)，M为目标数，N为解的个数
+ */
+final class ParetoSorter
+{
+    private final double[][] objectives;   // 每个解的目标值
+    private final double[] violations;     // 每个解的约束违反量，0表示可行
+    private final int[] ranks;             // 每个解所在前沿的序号，0为第一前沿
+    private final double[] crowding;       // 每个解在所在前沿内的拥挤距离
+    private final List<int[]> fronts = new ArrayList<>();  // 各前沿包含的解的序号
+
+    ParetoSorter(double[][] objectives, double[] violations)
+    {
+        this.objectives = objectives;
+        this.violations = violations;
+        this.ranks = new int[objectives.length];
+        this.crowding = new double[objectives.length];
+        sortFronts();
+        for (int[] front : fronts)
+        {
+            assignCrowding(front);
+        }
+    }
+
+    // 各前沿包含的解的序号，按前沿序号排列
+    List<int[]> getFronts()
+    {
+        return fronts;
+    }
+
+    // 解所在前沿的序号
+    int getRank(int index)
+    {
+        return ranks[index];
+    }
+
+    // 解的拥挤距离，前沿边界上的解为正无穷
+    double getCrowding(int index)
+    {
+        return crowding[index];
+    }
+
+    // 拥挤度比较：前沿序号小的更好，同一前沿内拥挤距离大的更好
+    boolean isBetter(int first, int second)
+    {
+        if (ranks[first] != ranks[second])
+        {
+            return ranks[first] < ranks[second];
+        }
+        return crowding[first] > crowding[second];
+    }
+
+    // 快速非支配排序：记录每个解被多少个解支配以及它支配的解，
+    // 逐层取出不被剩余解支配的解作为下一个前沿
+    private void sortFronts()
+    {
+        int count = objectives.length;
+        int[] dominationCounts = new int[count];
+        int[][] dominatedSets = new int[count][];
+        int[] dominatedSizes = new int[count];
+
+        List<Integer> currentFront = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            for (int j = i + 1; j < count; j++)
+            {
+                if (dominates(i, j))
+                {
+                    dominatedSets[i] = append(dominatedSets[i], dominatedSizes[i]++, j);
+                    dominationCounts[j]++;
+                }
+                else if (dominates(j, i))
+                {
+                    dominatedSets[j] = append(dominatedSets[j], dominatedSizes[j]++, i);
+                    dominationCounts[i]++;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++)
+        {
+            if (dominationCounts[i] == 0)
+            {
+                currentFront.add(i);
+            }
+        }
+
+        int rank = 0;
+        while (!currentFront.isEmpty())
+        {
+            int[] front = new int[currentFront.size()];
+            List<Integer> nextFront = new ArrayList<>();
+            for (int k = 0; k < front.length; k++)
+            {
+                int i = currentFront.get(k);
+                front[k] = i;
+                ranks[i] = rank;
+                for (int d = 0; d < dominatedSizes[i]; d++)
+                {
+                    int j = dominatedSets[i][d];
+                    if (--dominationCounts[j] == 0)
+                    {
+                        nextFront.add(j);
+                    }
+                }
+            }
+            fronts.add(front);
+            currentFront = nextFront;
+            rank++;
+        }
+    }
+
+    // 第一个解是否支配第二个解
+    private boolean dominates(int first, int second)
+    {
+        if (violations[first] != violations[second])
+        {
+            return violations[first] < violations[second];
+        }
+
+        boolean strictlyBetter = false;
+        double[] a = objectives[first];
+        double[] b = objectives[second];
+        for (int m = 0; m < a.length; m++)
+        {
+            if (a[m] > b[m])
+            {
+                return false;
+            }
+            if (a[m] < b[m])
+            {
+                strictlyBetter = true;
+            }
+        }
+        return strictlyBetter;
+    }
+
+    // 计算前沿内每个解的拥挤距离：各目标上相邻两个解的归一化距离之和
+    private void assignCrowding(int[] front)
+    {
+        if (front.length <= 2)
+        {
+            for (int i : front)
+            {
+                crowding[i] = Double.POSITIVE_INFINITY;
+            }
+            return;
+        }
+
+        Integer[] order = new Integer[front.length];
+        int objectiveCount = objectives[front[0]].length;
+        for (int m = 0; m < objectiveCount; m++)
+        {
+            final int objective = m;
+            for (int k = 0; k < front.length; k++)
+            {
+                order[k] = front[k];
+            }
+            Arrays.sort(order, (i, j) -> Double.compare(objectives[i][objective], objectives[j][objective]));
+
+            double min = objectives[order[0]][objective];
+            double max = objectives[order[order.length - 1]][objective];
+            crowding[order[0]] = Double.POSITIVE_INFINITY;
+            crowding[order[order.length - 1]] = Double.POSITIVE_INFINITY;
+            if (max - min <= 0)
+            {
+                continue;
+            }
+            for (int k = 1; k < order.length - 1; k++)
+            {
+                crowding[order[k]] += (objectives[order[k + 1]][objective] - objectives[order[k - 1]][objective]) / (max - min);
+            }
+        }
+    }
+
+    // 向可增长数组的末尾加入元素
+    private static int[] append(int[] values, int size, int value)
+    {
+        if (values == null)
+        {
+            values = new int[8];
+        }
+        else if (size == values.length)
+        {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        return values;
+    }
+}
@@ -1,10 +1,20 @@
 package com.example.sanxiang.phasebalance.algorithm;
 
-import android.util.Log;
 import com.example.sanxiang.util.UnbalanceCalculator;
 import com.example.sanxiang.phasebalance.model.User;
 import com.example.sanxiang.phasebalance.model.BranchGroup;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class PhaseBalancer 
 {
@@ -20,6 +30,54 @@ public class PhaseBalancer
     private static final double MAX_ACCEPTABLE_CHANGE_RATIO = 0.40;  // 最大可接受调整比例40%
     private static final double GROUP_EXCHANGE_THRESHOLD = 0.7; // 支线组交换阈值：70%
     
+    private static final int MAX_TOTAL_ATTEMPTS = 3;     // 最大总尝试次数
+    private static final int GENERATIONS = 1000;         // 固定迭代次数为1000
+    
+    // 按适应度升序排列（值越小越好）
+    private static final Comparator<Solution> FITNESS_ORDER = (s1, s2) -> Double.compare(s1.fitness, s2.fitness);
+    
+    // 自适应控制参数
+    private static final double MAX_MUTATION_RATE = 0.2;          // 最大变异率20%
+    private static final double LOW_DIVERSITY = 0.3;              // 种群中不同解的比例低于30%视为多样性不足
+    private static final double IMPROVEMENT_THRESHOLD = 1e-4;     // 最优适应度相对改进小于0.01%视为没有改进
+    private static final int REINJECTION_INTERVAL = 100;          // 重新初始化部分种群的最长间隔（代）
+    private static final int STAGNATION_REINJECTION = 25;         // 多样性不足且停滞25代时提前重新初始化
+    private static final int CONVERGENCE_GENERATIONS = 150;       // 连续150代没有改进时认为已收敛
+    
+    // 岛屿模型参数
+    private static final int DEFAULT_ISLAND_COUNT = 4;            // 默认岛屿数，固定值保证不同设备上结果一致
+    private static final int DEFAULT_MIGRATION_INTERVAL = 50;     // 默认迁移间隔（代）
+    private static final long DEFAULT_ISLAND_SEED = 123456789L;   // 默认岛屿模型种子
+    private static final long ISLAND_SEED_STRIDE = 0x9E3779B97F4A7C15L;  // 岛屿种子间隔
+    private static final double MIGRATION_RATE = 0.05;            // 每次迁移的精英比例5%
+    
+    // 并行评估参数
+    private static final int PARALLEL_THRESHOLD = 64;             // 种群达到此大小时才并行评估
+    
+    // 局部搜索参数
+    private static final double LOCAL_SEARCH_MIN_GAIN = 1e-9;     // 适应度至少减小这么多才接受移动，避免增量误差造成的来回翻转
+    private static final int LOCAL_SEARCH_MAX_PASSES = 50;        // 局部搜索最多遍历轮数
+    
+    // 小规模问题精确求解参数
+    private static final int EXACT_SOLVER_MAX_USERS = 300;        // 用户数不超过此值时先用分支定界求解
+    private static final long EXACT_SOLVER_NODE_LIMIT = 2000000;  // 分支定界最大搜索节点数
+    private static final double EXACT_SOLVER_MAX_GAP = 1.0;       // 未证明最优时可接受的适应度与下界之差
+    
+    // 分层求解参数
+    public static final int HIERARCHICAL_MIN_USERS = 10000;       // 建议使用分层求解的用户数
+    private static final int MIN_PARTITION_USERS = 50;            // 用户数少于此值的支线按回路合并为一个子问题
+    private static final long MIN_PARTITION_NODE_LIMIT = 20000;   // 每个子问题至少可搜索的分支定界节点数
+    
+    // 多目标模式参数
+    private static final double PARETO_PRECISION = 1e6;           // 比较目标值时保留6位小数
+    
+    // 热启动参数
+    private static final double WARM_START_RATIO = 0.2;           // 热启动解占初始种群的比例20%
+    
+    // 进度报告参数
+    private static final int DEFAULT_REPORT_INTERVAL = 10;        // 默认每10代报告一次进度
+    private static final int TRACE_INTERVAL = 10;                 // 每10代在收敛曲线上记录一个点
+    
     // 规模相关参数
     private static final int MIN_POPULATION_SIZE = 100;         // 最小种群大小
     private static final int MAX_POPULATION_SIZE = 400;         // 最大种群大小
@@ -29,297 +87,1268 @@ public class PhaseBalancer
     
     // 成员变量
     private volatile boolean isTerminated = false;  // 终止标志
-    private List<User> users;                      // 用户列表
-    private List<BranchGroup> branchGroups;        // 支线组列表
-    private Map<String, Double> routeBranchCosts;  // 支线调相代价
-    private Map<String, List<Integer>> branchGroupUserIndices;  // 支线组中用户的索引
-    private double totalPower;                     // 总功率
+    private boolean parallelEvaluation = true;      // 是否并行计算适应度、变异和修复
+    private final BalanceProblem problem;           // 紧凑的问题表示，优化过程只访问其中的数组
+    private double initialUnbalanceRate;           // 调整前的三相不平衡度
     
     /**
      * 使用固定种子的随机数生成器，保证每次点击调相按钮时
      * 生成的初始化种群完全相同，从而保证算法结果的一致性
      */
     private final Random fixedRandom = new Random(123456789L);
+    
+    // 随时可停的优化控制，只在optimizeIslands/optimizeHierarchical(timeBudgetMillis, reportInterval, listener)运行期间设置
+    private boolean hasDeadline;                          // 是否限制运行时间
+    private long deadlineNanos;                           // 截止时间（System.nanoTime）
+    private int reportInterval = DEFAULT_REPORT_INTERVAL; // 进度报告间隔（代）
+    private ProgressListener progressListener;            // 进度监听器
+    
+    private byte[] warmStartPhases;                       // 上一次采用的方案中各用户的相位，null表示不热启动
+    private Solution exactIncumbent;                      // 分支定界未证明最优时得到的解，加入遗传算法的初始种群
+    private List<Solution> constructiveSeeds;             // 构造式初始解，第一次初始化种群时生成
+    private long exactNodeLimit = EXACT_SOLVER_NODE_LIMIT;  // 分支定界最大搜索节点数，分层求解的子问题平分
+    private MultiDayObjective multiDayObjective = MultiDayObjective.WORST_CASE;  // 多日数据时的不平衡度计算方式
+    private final List<PhaseBalancer> childBalancers = new ArrayList<>();  // 分层求解中正在运行的子问题，终止时一并终止
+    private final OptimizerTelemetry telemetry = new OptimizerTelemetry();  // 各阶段耗时、计数和收敛曲线
+    
+    /**
+     * 多日模式的不平衡度：用户带有多日电量时，解的不平衡度按每天的三相电量分别计算后合并
+     */
+    public enum MultiDayObjective 
+    {
+        WORST_CASE,  // 取各天不平衡度的最大值
+        MEAN         // 取各天不平衡度的平均值
+    }
+
+    /**
+     * 优化进度监听器，在调用优化方法的线程中回调
+     */
+    public interface ProgressListener 
+    {
+        // bestSolution为目前找到的最优解的副本，优先取有效解（不平衡度小于15%），
+        // 还没有有效解时取当前代的最优解
+        void onProgress(Solution bestSolution, int generation, double unbalanceRate, double changeRatio);
+    }
 
     public PhaseBalancer(List<User> users, List<BranchGroup> branchGroups) 
     {
-        this.users = users;
-        this.branchGroups = branchGroups;
-        this.routeBranchCosts = new HashMap<>();
-        this.branchGroupUserIndices = new HashMap<>();
+        this(new BalanceProblem(users, branchGroups));
+    }
+
+    public PhaseBalancer(BalanceProblem problem) 
+    {
+        this.problem = problem;
         
-        // 计算总功率
-        this.totalPower = users.stream()
-            .mapToDouble(User::getTotalPower)
-            .sum();
+        // 调整前的不平衡度只与原始相位有关，计算一次即可
+        Solution originalSolution = new Solution(problem.userCount, problem.getGroupCount());
+        System.arraycopy(problem.currentPhases, 0, originalSolution.phases, 0, problem.userCount);
+        recalculateSolution(originalSolution);
+        this.initialUnbalanceRate = originalSolution.unbalanceRate;
+    }
+
+    //---------------------------------优化主函数---------------------------------
+    public Solution optimize() 
+    {
+        try 
+        {
+            // 小规模问题优先使用分支定界
+            Solution exactSolution = solveSmallInstance();
+            if (exactSolution != null) 
+            {
+                return exactSolution;
+            }
             
-        initializeRouteBranchCosts();
-        initializeBranchGroupIndices();
+            // 注意：本算法使用固定种子的随机数生成器(fixedRandom)
+            // 这确保每次调用此方法时生成的初始种群完全相同
+            // 从而使得多次运行算法产生的结果大致相同
+            
+            for (int attempt = 0; attempt < MAX_TOTAL_ATTEMPTS && !shouldStop(); attempt++) 
+            {
+                BalancerLog.d("PhaseBalancer", "开始第%d次优化尝试", attempt + 1);
+                telemetry.increment(OptimizerTelemetry.Counter.ATTEMPTS);
+                
+                // 初始化种群
+                long stageStart = System.nanoTime();
+                Island island = new Island(fixedRandom, getPopulationSize(), problem);
+                island.population = initializePopulation(island.populationSize, island.random);
+                
+                // 检查初始化是否成功
+                if (island.population == null) 
+                {
+                    telemetry.addStageTime(OptimizerTelemetry.Stage.INITIALIZATION, stageStart);
+                    BalancerLog.d("PhaseBalancer", "种群初始化失败，尝试重新初始化");
+                    continue; // 尝试重新初始化种群
+                }
+                seedInitialPopulation(island);
+                telemetry.addStageTime(OptimizerTelemetry.Stage.INITIALIZATION, stageStart);
+                
+                // 迭代优化
+                for (int i = 0; !shouldStop() && i < GENERATIONS; i++) 
+                {
+                    boolean finished = evolveGeneration(island, i);
+                    if (finished || island.converged || (i + 1) % reportInterval == 0) 
+                    {
+                        reportProgress(Collections.singletonList(island));
+                    }
+                    if (finished || island.converged) 
+                    {
+                        break;
+                    }
+                }
+                
+                // 检查是否找到了有效解
+                Solution bestSolution = getBestValidSolution(Collections.singletonList(island));
+                if (bestSolution != null) 
+                {
+                    return bestSolution;
+                }
+                
+                BalancerLog.d("PhaseBalancer",
+                    "第%d次尝试未找到满足条件的解，尝试重新优化", attempt + 1
+                );
+            }
+            
+            BalancerLog.w("PhaseBalancer", "所有优化尝试都失败，未找到满足条件的解");
+            return null;  // 所有尝试都失败，返回null
+        } 
+        catch (Exception e) 
+        {
+            e.printStackTrace();
+            return null;
+        }
     }
 
-    // 初始化支线调相代价
-    private void initializeRouteBranchCosts()
+    //---------------------------------岛屿模型并行优化---------------------------------
+    public Solution optimizeIslands() 
     {
-        // 首先根据支线信息设置基础调相代价
-        Map<String, List<User>> branchUsers = new HashMap<>();
-        Map<String, List<User>> routeUsers = new HashMap<>();  // 按回路分组用户
+        return optimizeIslands(DEFAULT_ISLAND_COUNT, DEFAULT_MIGRATION_INTERVAL, DEFAULT_ISLAND_SEED);
+    }
 
-        // 按支线和回路分组用户
-        for (int i = 0; i < users.size(); i++)
+    /**
+     * 岛屿模型：多个子种群在线程池中并行进化，每个岛屿使用独立种子的随机数生成器，
+     * 每隔migrationInterval代在所有岛屿进化完成后按环形拓扑迁移精英解。
+     * 迁移只发生在同步点，且按岛屿序号顺序进行，因此相同的种子和岛屿数量总能得到相同的结果，
+     * 与设备核心数和线程调度无关
+     */
+    public Solution optimizeIslands(int islandCount, int migrationInterval, long seed) 
+    {
+        if (islandCount <= 1) 
         {
-            User user = users.get(i);
-            String branchKey = user.getRouteNumber() + "-" + user.getBranchNumber();
-            String routeKey = user.getRouteNumber();
-            branchUsers.computeIfAbsent(branchKey, k -> new ArrayList<>()).add(user);
-            routeUsers.computeIfAbsent(routeKey, k -> new ArrayList<>()).add(user);
+            return optimize();
         }
-
-        // 设置调相代价：
-        // 1. 同一支线上的用户：0.6
-        // 2. 同一回路不同支线的用户：1.0
-        // 3. 不同回路的用户：1.5
-        for (User user : users)
+        
+        // 小规模问题优先使用分支定界
+        Solution exactSolution = solveSmallInstance();
+        if (exactSolution != null) 
+        {
+            return exactSolution;
+        }
+        
+        int threadCount = Math.min(islandCount, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        
+        try 
         {
-            String branchKey = user.getRouteNumber() + "-" + user.getBranchNumber();
-            String routeKey = user.getRouteNumber();
-            int usersInBranch = branchUsers.get(branchKey).size();
-            int usersInRoute = routeUsers.get(routeKey).size();
+            // 每个岛屿的随机数生成器在整个优化过程中保持不变
+            List<Random> islandRandoms = new ArrayList<>();
+            for (int k = 0; k < islandCount; k++) 
+            {
+                islandRandoms.add(new Random(seed + ISLAND_SEED_STRIDE * (k + 1)));
+            }
+            
+            for (int attempt = 0; attempt < MAX_TOTAL_ATTEMPTS && !shouldStop(); attempt++) 
+            {
+                BalancerLog.d("PhaseBalancer", "开始第%d次岛屿模型优化尝试，岛屿数: %d", attempt + 1, islandCount);
+                telemetry.increment(OptimizerTelemetry.Counter.ATTEMPTS);
+                
+                // 并行初始化各岛屿的种群
+                List<Island> islands = new ArrayList<>();
+                List<Callable<Void>> initTasks = new ArrayList<>();
+                for (int k = 0; k < islandCount; k++) 
+                {
+                    Island island = new Island(islandRandoms.get(k), getPopulationSize(), problem);
+                    island.index = k;
+                    islands.add(island);
+                    initTasks.add(() -> {
+                        long stageStart = System.nanoTime();
+                        island.population = initializePopulation(island.populationSize, island.random);
+                        seedInitialPopulation(island);
+                        telemetry.addStageTime(OptimizerTelemetry.Stage.INITIALIZATION, stageStart);
+                        return null;
+                    });
+                }
+                invokeAllTasks(executor, initTasks);
+                
+                // 去掉初始化失败的岛屿
+                List<Island> activeIslands = new ArrayList<>();
+                for (Island island : islands) 
+                {
+                    if (island.population != null) 
+                    {
+                        activeIslands.add(island);
+                    }
+                }
+                if (activeIslands.isEmpty()) 
+                {
+                    BalancerLog.d("PhaseBalancer", "所有岛屿种群初始化失败，尝试重新初始化");
+                    continue;
+                }
+                
+                // 以迁移间隔为单位分段进化，有进度监听时在报告点也分段
+                for (int generation = 0; !shouldStop() && generation < GENERATIONS; ) 
+                {
+                    final int startGeneration = generation;
+                    int nextBoundary = (generation / migrationInterval + 1) * migrationInterval;
+                    if (progressListener != null) 
+                    {
+                        nextBoundary = Math.min(nextBoundary, (generation / reportInterval + 1) * reportInterval);
+                    }
+                    final int endGeneration = Math.min(GENERATIONS, nextBoundary);
+                    
+                    List<Callable<Void>> epochTasks = new ArrayList<>();
+                    for (Island island : activeIslands) 
+                    {
+                        epochTasks.add(() -> {
+                            for (int i = startGeneration; !shouldStop() && !island.finished && !island.converged && i < endGeneration; i++) 
+                            {
+                                island.finished = evolveGeneration(island, i);
+                            }
+                            return null;
+                        });
+                    }
+                    invokeAllTasks(executor, epochTasks);
+                    
+                    // 任一岛屿找到满足跳出条件的解，或所有岛屿都已收敛即结束
+                    boolean finished = false;
+                    boolean converged = true;
+                    for (Island island : activeIslands) 
+                    {
+                        finished |= island.finished;
+                        converged &= island.converged;
+                    }
+                    if (finished || converged || endGeneration % reportInterval == 0) 
+                    {
+                        reportProgress(activeIslands);
+                    }
+                    if (finished || converged) 
+                    {
+                        break;
+                    }
+                    
+                    if (endGeneration % migrationInterval == 0) 
+                    {
+                        long stageStart = System.nanoTime();
+                        migrateElites(activeIslands);
+                        telemetry.addStageTime(OptimizerTelemetry.Stage.MIGRATION, stageStart);
+                        telemetry.increment(OptimizerTelemetry.Counter.MIGRATIONS);
+                    }
+                    generation = endGeneration;
+                }
+                
+                // 汇总所有岛屿的有效解
+                Solution bestSolution = getBestValidSolution(activeIslands);
+                if (bestSolution != null) 
+                {
+                    return bestSolution;
+                }
+                
+                BalancerLog.d("PhaseBalancer",
+                    "第%d次岛屿模型尝试未找到满足条件的解，尝试重新优化", attempt + 1
+                );
+            }
+            
+            BalancerLog.w("PhaseBalancer", "所有岛屿模型优化尝试都失败，未找到满足条件的解");
+            return null;
+        } 
+        catch (Exception e) 
+        {
+            e.printStackTrace();
+            return null;
+        } 
+        finally 
+        {
+            executor.shutdownNow();
+        }
+    }
 
-            if (usersInBranch > 1)
+    //---------------------------------分层求解---------------------------------
+    /**
+     * 分层求解，用于用户数很多（超过HIERARCHICAL_MIN_USERS）的网络，避免在所有用户上建立一条很长的染色体：
+     * 1. 上层以支线为单位（用户少的支线按回路合并）汇总三相电量，把全网需要的相间转移电量
+     *    按各支线在转出相上的普通用户电量比例分配，得到每条支线的目标三相电量；
+     * 2. 下层为每条支线建立子问题，其余支线按目标电量作为固定背景负荷，
+     *    子问题的不平衡度即为其余支线都达到目标时的全网不平衡度，各子问题在线程池中并行求解；
+     * 3. 合并各支线的结果后按全网重新计算三相电量、调整用户数和调相代价，在全网范围内修复并局部搜索，
+     *    最终按全网不平衡度判断是否有效，没有有效解时返回null
+     */
+    public Solution optimizeHierarchical() 
+    {
+        int[][] partitions = problem.partitionByBranch(MIN_PARTITION_USERS);
+        double[][] targets = getPartitionTargets(partitions);
+        BalancerLog.d("PhaseBalancer", "分层求解：%d个用户划分为%d个子问题", problem.userCount, partitions.length);
+        
+        double[] totalLoads = new double[3];
+        for (double[] target : targets) 
+        {
+            for (int p = 0; p < 3; p++) 
             {
-                // 同一支线上有多个用户，设置较小的调相代价
-                routeBranchCosts.put(branchKey, 0.6);
+                totalLoads[p] += target[p];
             }
-            else if (usersInRoute > 1)
+        }
+        
+        Solution combined = new Solution(problem.userCount, problem.getGroupCount());
+        System.arraycopy(problem.currentPhases, 0, combined.phases, 0, problem.userCount);
+        
+        // 各子问题正在进化的最优有效解，只在有进度监听器时记录，报告进度时代替尚未完成的子问题
+        AtomicReferenceArray<Solution> partitionProgress = new AtomicReferenceArray<>(partitions.length);
+        boolean[] finished = new boolean[partitions.length];
+        
+        int threadCount = Math.min(partitions.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+        try 
+        {
+            CompletionService<Solution> completionService = new ExecutorCompletionService<>(executor);
+            Map<Future<Solution>, Integer> partitionOfTask = new HashMap<>();
+            for (int k = 0; k < partitions.length; k++) 
             {
-                // 同一回路但不同支线，设置中等调相代价
-                routeBranchCosts.put(branchKey, 1.0);
+                int partition = k;
+                double[] background = new double[3];
+                for (int p = 0; p < 3; p++) 
+                {
+                    background[p] = totalLoads[p] - targets[k][p];
+                }
+                // 各子问题平分分支定界的节点预算，总搜索量与直接求解相当
+                long nodeLimit = Math.max(MIN_PARTITION_NODE_LIMIT, EXACT_SOLVER_NODE_LIMIT / partitions.length);
+                partitionOfTask.put(completionService.submit(
+                    () -> solvePartition(partitions[partition], background, nodeLimit,
+                        solution -> partitionProgress.set(partition, solution))
+                ), partition);
             }
-            else
+            
+            // 子问题按完成顺序合并，每完成一个报告一次全网进度，合并和回调都在调用线程中进行
+            for (int count = 1; count <= partitions.length; count++) 
+            {
+                Future<Solution> future = completionService.take();
+                int partition = partitionOfTask.get(future);
+                Solution solution;
+                try 
+                {
+                    solution = future.get();
+                } 
+                catch (ExecutionException e) 
+                {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+                }
+                copyPartition(solution, partitions[partition], combined);
+                finished[partition] = true;
+                reportHierarchicalProgress(combined, partitions, partitionProgress, finished, count);
+            }
+            
+            // 按全网重新计算，再在全网范围内修复和局部搜索
+            recalculateSolution(combined);
+            repairSolution(combined);
+            localSearch(combined);
+            calculateFitness(Collections.singletonList(combined));
+            
+            BalancerLog.i("PhaseBalancer",
+                "分层求解完成，全网不平衡度: %.2f%%, 调整用户比例: %.2f%%, 适应度: %.2f",
+                combined.getUnbalanceRate(), combined.getChangeRatio(), combined.getFitness()
+            );
+            return combined.getUnbalanceRate() < MAX_ACCEPTABLE_UNBALANCE ? combined : null;
+        } 
+        catch (Exception e) 
+        {
+            e.printStackTrace();
+            return null;
+        } 
+        finally 
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    // 上层分配：全网由重相向轻相转移的电量，按各子问题在转出相上的普通用户电量比例分摊，
+    // 返回每个子问题的目标三相电量，所有目标之和三相相等
+    private double[][] getPartitionTargets(int[][] partitions) 
+    {
+        double[][] targets = new double[partitions.length][3];
+        double[][] movablePowers = new double[partitions.length][3];
+        double[] totalLoads = new double[3];
+        double[] totalMovable = new double[3];
+        for (int k = 0; k < partitions.length; k++) 
+        {
+            for (int index : partitions[k]) 
+            {
+                accumulateUserPower(targets[k], index, problem.currentPhases[index], (byte) 0, 1.0);
+                if (!problem.isPowerUser(index) && problem.currentPhases[index] >= 1) 
+                {
+                    movablePowers[k][problem.currentPhases[index] - 1] += problem.ownPowers[index];
+                }
+            }
+            for (int p = 0; p < 3; p++) 
+            {
+                totalLoads[p] += targets[k][p];
+                totalMovable[p] += movablePowers[k][p];
+            }
+        }
+        
+        // 每次从最重相向最轻相转移，直到三相相等，最多需要两次转移
+        double average = (totalLoads[0] + totalLoads[1] + totalLoads[2]) / 3.0;
+        double[] excess = new double[3];
+        for (int p = 0; p < 3; p++) 
+        {
+            excess[p] = totalLoads[p] - average;
+        }
+        for (int step = 0; step < 2; step++) 
+        {
+            int from = 0;
+            int to = 0;
+            for (int p = 1; p < 3; p++) 
+            {
+                from = excess[p] > excess[from] ? p : from;
+                to = excess[p] < excess[to] ? p : to;
+            }
+            double amount = Math.min(excess[from], -excess[to]);
+            if (amount <= 0 || totalMovable[from] <= 0) 
+            {
+                break;
+            }
+            excess[from] -= amount;
+            excess[to] += amount;
+            
+            for (int k = 0; k < partitions.length; k++) 
+            {
+                double share = amount * movablePowers[k][from] / totalMovable[from];
+                targets[k][from] -= share;
+                targets[k][to] += share;
+            }
+        }
+        return targets;
+    }
+    
+    // 下层求解：以目标之外的电量为背景负荷求解一个子问题，返回子问题的最优有效解，没有时返回null。
+    // 子问题沿用全网的截止时间；有进度监听器时，子问题每隔reportInterval代把目前的最优有效解交给progress
+    private Solution solvePartition(int[] members, double[] background, long nodeLimit, Consumer<Solution> progress) 
+    {
+        if (shouldStop()) 
+        {
+            return null;
+        }
+        
+        BalanceProblem subProblem = problem.subProblem(members, background, problem.userCount - members.length);
+        PhaseBalancer child = new PhaseBalancer(subProblem);
+        child.setParallelEvaluation(false);
+        child.exactNodeLimit = nodeLimit;
+        child.hasDeadline = hasDeadline;
+        child.deadlineNanos = deadlineNanos;
+        if (progressListener != null) 
+        {
+            child.reportInterval = reportInterval;
+            child.progressListener = (bestSolution, generation, unbalanceRate, changeRatio) -> {
+                if (unbalanceRate < MAX_ACCEPTABLE_UNBALANCE) 
+                {
+                    progress.accept(bestSolution);
+                }
+            };
+        }
+        if (warmStartPhases != null) 
+        {
+            byte[] childWarmStart = new byte[members.length];
+            for (int m = 0; m < members.length; m++) 
+            {
+                childWarmStart[m] = warmStartPhases[members[m]];
+            }
+            child.setWarmStart(childWarmStart);
+        }
+        
+        synchronized (childBalancers) 
+        {
+            childBalancers.add(child);
+            if (isTerminated) 
+            {
+                child.terminate();
+            }
+        }
+        try 
+        {
+            return child.optimize();
+        } 
+        finally 
+        {
+            synchronized (childBalancers) 
+            {
+                childBalancers.remove(child);
+            }
+            telemetry.merge(child.getTelemetry());
+        }
+    }
+    
+    // 把子问题的解写入全网解的对应用户，子问题没有有效解（solution为null）时保持原相位
+    private static void copyPartition(Solution solution, int[] members, Solution combined) 
+    {
+        if (solution == null) 
+        {
+            return;
+        }
+        for (int m = 0; m < members.length; m++) 
+        {
+            combined.phases[members[m]] = solution.phases[m];
+            combined.moves[members[m]] = solution.moves[m];
+        }
+    }
+    
+    // 报告分层求解的全网进度：已完成的子问题取最终结果，未完成的取正在进化的最优有效解，
+    // 还没有有效解的保持原相位，按全网重新计算后报告，generation为已完成的子问题数
+    private void reportHierarchicalProgress(Solution combined, int[][] partitions,
+                                            AtomicReferenceArray<Solution> partitionProgress,
+                                            boolean[] finished, int finishedCount) 
+    {
+        if (progressListener == null) 
+        {
+            return;
+        }
+        
+        Solution snapshot = new Solution(combined);
+        for (int k = 0; k < partitions.length; k++) 
+        {
+            if (!finished[k]) 
             {
-                // 不同回路，设置较高的调相代价
-                routeBranchCosts.put(branchKey, 1.5);
+                copyPartition(partitionProgress.get(k), partitions[k], snapshot);
             }
         }
+        recalculateSolution(snapshot);
+        progressListener.onProgress(snapshot, finishedCount, snapshot.getUnbalanceRate(), snapshot.getChangeRatio());
     }
 
-    //初始化支线组索引
-    private void initializeBranchGroupIndices()
+    //---------------------------------多目标Pareto前沿---------------------------------
+    /**
+     * 多目标模式（NSGA-II）：不平衡度、调整用户比例和调相代价作为三个独立目标进化，
+     * 不再加权合并为一个适应度，一次运行即得到互不支配的一组有效解（Pareto前沿），
+     * 操作人员可以直接从中取舍，例如选择不平衡度10%以内调整用户最少的方案。
+     * 不平衡度不小于15%的解视为违反约束，总是被有效解支配。
+     * 返回的解按调整用户比例升序排列，没有有效解时返回空列表
+     */
+    public List<Solution> optimizePareto()
     {
-        if (branchGroups != null && !branchGroups.isEmpty())
+        try
         {
-            // 为每个支线组创建用户索引列表
-            for (BranchGroup group : branchGroups)
+            int populationSize = getPopulationSize();
+            telemetry.increment(OptimizerTelemetry.Counter.ATTEMPTS);
+            long stageStart = System.nanoTime();
+            Island island = new Island(fixedRandom, populationSize, problem);
+            island.population = initializePopulation(populationSize, island.random);
+            if (island.population == null)
             {
-                String groupKey = group.getRouteNumber() + "-" + group.getBranchNumber();
-                List<Integer> indices = new ArrayList<>();
+                BalancerLog.w("PhaseBalancer", "种群初始化失败，无法生成Pareto前沿");
+                return new ArrayList<>();
+            }
+            seedInitialPopulation(island);
+            telemetry.addStageTime(OptimizerTelemetry.Stage.INITIALIZATION, stageStart);
+
+            List<Solution> population = island.population;
+            List<Solution> spareSolutions = new ArrayList<>();  // 被淘汰的解，复用为下一代子代的缓冲区
+            calculateFitness(population);
+            long lastFrontSignature = 0L;
+            int stagnantGenerations = 0;
+
+            for (int generation = 0; !shouldStop() && generation < GENERATIONS; generation++)
+            {
+                stageStart = System.nanoTime();
+                ParetoSorter sorter = sortPareto(population);
+
+                // 第一前沿的目标值连续多代没有变化时认为已收敛
+                long frontSignature = getFrontSignature(population, sorter);
+                if (generation > 0 && frontSignature == lastFrontSignature)
+                {
+                    if (++stagnantGenerations >= CONVERGENCE_GENERATIONS)
+                    {
+                        BalancerLog.d("PhaseBalancer", "第%d代Pareto前沿已连续%d代没有变化，提前结束",
+                            generation, stagnantGenerations);
+                        break;
+                    }
+                }
+                else
+                {
+                    lastFrontSignature = frontSignature;
+                    stagnantGenerations = 0;
+                }
+
+                // 按拥挤度比较进行二元锦标赛，选出的父代复制后交叉、变异和修复
+                telemetry.increment(OptimizerTelemetry.Counter.GENERATIONS);
+                List<Solution> offspring = new ArrayList<>(populationSize);
+                while (offspring.size() < populationSize)
+                {
+                    int first = island.random.nextInt(population.size());
+                    int second = island.random.nextInt(population.size());
+                    Solution parent = population.get(sorter.isBetter(first, second) ? first : second);
+                    if (spareSolutions.isEmpty())
+                    {
+                        offspring.add(new Solution(parent));
+                    }
+                    else
+                    {
+                        Solution child = spareSolutions.remove(spareSolutions.size() - 1);
+                        child.copyFrom(parent);
+                        offspring.add(child);
+                    }
+                }
+                telemetry.addStageTime(OptimizerTelemetry.Stage.SELECTION, stageStart);
+                stageStart = System.nanoTime();
+                crossover(offspring, island.random);
+                telemetry.addStageTime(OptimizerTelemetry.Stage.CROSSOVER, stageStart);
+                stageStart = System.nanoTime();
+                mutation(offspring, island.random, island.arena, MUTATION_RATE);
+                telemetry.addStageTime(OptimizerTelemetry.Stage.MUTATION, stageStart);
+                stageStart = System.nanoTime();
+                forEachSolution(offspring, this::repairSolution);
+                telemetry.addStageTime(OptimizerTelemetry.Stage.REPAIR, stageStart);
 
-                // 找出属于该支线组的用户索引
-                for (int i = 0; i < users.size(); i++)
+                // 父代与子代合并并去除重复解，重复解会挤占前沿上的位置
+                List<Solution> combined = new ArrayList<>(population.size() + offspring.size());
+                LongHashSet existingHashes = new LongHashSet(population.size() + offspring.size());
+                for (List<Solution> source : Arrays.asList(population, offspring))
                 {
-                    User user = users.get(i);
-                    if (user.getRouteNumber().equals(group.getRouteNumber()) &&
-                            user.getBranchNumber().equals(group.getBranchNumber()))
+                    for (Solution solution : source)
                     {
-                        indices.add(i);
+                        if (existingHashes.add(solution.hash))
+                        {
+                            combined.add(solution);
+                        }
+                        else
+                        {
+                            spareSolutions.add(solution);
+                        }
                     }
                 }
+                double diversity = (double) combined.size() / (population.size() + offspring.size());
+                stageStart = System.nanoTime();
+                calculateFitness(combined);
+                telemetry.addStageTime(OptimizerTelemetry.Stage.FITNESS, stageStart);
+                stageStart = System.nanoTime();
+                population = selectSurvivors(combined, populationSize, spareSolutions);
+                telemetry.addStageTime(OptimizerTelemetry.Stage.SELECTION, stageStart);
+
+                // 定期在收敛曲线上记录加权适应度最小的解
+                if (generation % TRACE_INTERVAL == 0)
+                {
+                    telemetry.addTracePoint(0, generation, getBestSolution(population), diversity, MUTATION_RATE);
+                }
+            }
 
-                if (!indices.isEmpty())
+            // 取第一前沿中的有效解，目标值完全相同的解只保留一个
+            ParetoSorter sorter = sortPareto(population);
+            List<Solution> front = new ArrayList<>();
+            List<double[]> frontObjectives = new ArrayList<>();
+            for (int index : sorter.getFronts().get(0))
+            {
+                Solution solution = population.get(index);
+                double[] objectives = paretoObjectives(solution);
+                boolean duplicate = false;
+                for (double[] existing : frontObjectives)
+                {
+                    duplicate |= Arrays.equals(existing, objectives);
+                }
+                if (solution.unbalanceRate < MAX_ACCEPTABLE_UNBALANCE && !duplicate)
                 {
-                    branchGroupUserIndices.put(groupKey, indices);
+                    front.add(new Solution(solution));
+                    frontObjectives.add(objectives);
                 }
             }
+            Collections.sort(front, (s1, s2) -> s1.changeRatio != s2.changeRatio
+                ? Double.compare(s1.changeRatio, s2.changeRatio)
+                : Double.compare(s1.unbalanceRate, s2.unbalanceRate));
+
+            BalancerLog.i("PhaseBalancer", "多目标优化完成，Pareto前沿包含%d个有效解", front.size());
+            return front;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            return new ArrayList<>();
         }
     }
 
+    // 多目标模式的目标值：不平衡度、调整用户比例和调相代价（占总电量的百分比），
+    // 增量更新会累积浮点误差，取到PARETO_PRECISION位小数，避免误差造成虚假的互不支配
+    private double[] paretoObjectives(Solution solution)
+    {
+        return new double[] {
+            Math.round(solution.unbalanceRate * PARETO_PRECISION) / PARETO_PRECISION,
+            Math.round(solution.changeRatio * PARETO_PRECISION) / PARETO_PRECISION,
+            Math.round(solution.adjustmentCost / problem.totalPower * 100 * PARETO_PRECISION) / PARETO_PRECISION
+        };
+    }
 
-    //---------------------------------优化主函数---------------------------------
-    public Solution optimize() 
+    // 第一前沿目标值的特征值，与解的顺序无关，用于判断前沿是否变化。
+    // 每个解的目标值哈希先经SplitMix64混合再求和，避免直接相加时不同前沿的哈希和碰巧相等
+    private long getFrontSignature(List<Solution> population, ParetoSorter sorter)
     {
+        long signature = 0L;
+        for (int index : sorter.getFronts().get(0))
+        {
+            signature += splitSeed(Arrays.hashCode(paretoObjectives(population.get(index))), 0);
+        }
+        return signature;
+    }
+
+    // 对种群做非支配排序，约束违反量为不平衡度超出15%的部分
+    private ParetoSorter sortPareto(List<Solution> population)
+    {
+        double[][] objectives = new double[population.size()][];
+        double[] violations = new double[population.size()];
+        for (int i = 0; i < population.size(); i++)
+        {
+            Solution solution = population.get(i);
+            objectives[i] = paretoObjectives(solution);
+            violations[i] = Math.max(0.0, solution.unbalanceRate - MAX_ACCEPTABLE_UNBALANCE);
+        }
+        return new ParetoSorter(objectives, violations);
+    }
+
+    // NSGA-II环境选择：按前沿依次保留，最后一个放不下的前沿按拥挤距离从大到小截取，
+    // 被淘汰的解放入spareSolutions
+    private List<Solution> selectSurvivors(List<Solution> combined, int populationSize, List<Solution> spareSolutions)
+    {
+        ParetoSorter sorter = sortPareto(combined);
+        List<Solution> survivors = new ArrayList<>(populationSize);
+        for (int[] front : sorter.getFronts())
+        {
+            if (survivors.size() >= populationSize)
+            {
+                for (int index : front)
+                {
+                    spareSolutions.add(combined.get(index));
+                }
+                continue;
+            }
+
+            Integer[] order = new Integer[front.length];
+            for (int k = 0; k < front.length; k++)
+            {
+                order[k] = front[k];
+            }
+            if (survivors.size() + front.length > populationSize)
+            {
+                Arrays.sort(order, (i, j) -> Double.compare(sorter.getCrowding(j), sorter.getCrowding(i)));
+            }
+            for (int index : order)
+            {
+                if (survivors.size() < populationSize)
+                {
+                    survivors.add(combined.get(index));
+                }
+                else
+                {
+                    spareSolutions.add(combined.get(index));
+                }
+            }
+        }
+        return survivors;
+    }
+
+    //---------------------------------随时可停的优化---------------------------------
+    /**
+     * 在时间预算内运行岛屿模型（与optimizeIslands()相同的默认岛屿数、迁移间隔和种子），
+     * 每隔reportInterval代把目前的最优解报告给监听器。
+     * 时间用完、调用terminate()或找到满足跳出条件的解时结束，返回已找到的最优有效解，
+     * 没有有效解时返回null。timeBudgetMillis不大于0表示不限时。
+     * 结果与单种群的optimize()不同，optimize()本身不支持时间预算和进度报告
+     */
+    public Solution optimizeIslands(long timeBudgetMillis, int reportInterval, ProgressListener listener) 
+    {
+        this.hasDeadline = timeBudgetMillis > 0;
+        this.deadlineNanos = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        this.reportInterval = Math.max(1, reportInterval);
+        this.progressListener = listener;
         try 
         {
-            // 注意：本算法使用固定种子的随机数生成器(fixedRandom)
-            // 这确保每次调用此方法时生成的初始种群完全相同
-            // 从而使得多次运行算法产生的结果大致相同
+            return optimizeIslands();
+        } 
+        finally 
+        {
+            this.hasDeadline = false;
+            this.reportInterval = DEFAULT_REPORT_INTERVAL;
+            this.progressListener = null;
+        }
+    }
+
+    /**
+     * 在时间预算内分层求解，各子问题共用同一截止时间，时间用完时尚未结束的子问题取已找到的最优有效解，
+     * 之后仍在全网范围内修复和局部搜索，返回的全网解有效时才返回，否则返回null。
+     * 每个子问题完成时报告一次全网进度，回调中的generation为已完成的子问题数，
+     * 尚未完成的子问题按其每隔reportInterval代记录的最优有效解计入。timeBudgetMillis不大于0表示不限时
+     */
+    public Solution optimizeHierarchical(long timeBudgetMillis, int reportInterval, ProgressListener listener) 
+    {
+        this.hasDeadline = timeBudgetMillis > 0;
+        this.deadlineNanos = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        this.reportInterval = Math.max(1, reportInterval);
+        this.progressListener = listener;
+        try 
+        {
+            return optimizeHierarchical();
+        } 
+        finally 
+        {
+            this.hasDeadline = false;
+            this.reportInterval = DEFAULT_REPORT_INTERVAL;
+            this.progressListener = null;
+        }
+    }
+
+    // 是否应停止优化：已终止或超出时间预算
+    private boolean shouldStop() 
+    {
+        return isTerminated || (hasDeadline && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    // 把各岛屿目前的最优解报告给监听器
+    private void reportProgress(List<Island> islands) 
+    {
+        if (progressListener == null) 
+        {
+            return;
+        }
+        
+        Solution bestSolution = null;
+        int generation = 0;
+        for (Island island : islands) 
+        {
+            generation = Math.max(generation, island.generation);
+            if (island.bestSolution != null && (bestSolution == null || island.bestSolution.fitness < bestSolution.fitness)) 
+            {
+                bestSolution = island.bestSolution;
+            }
+        }
+        
+        // 还没有有效解时报告当前代的最优解
+        if (bestSolution == null) 
+        {
+            for (Island island : islands) 
+            {
+                if (island.generationBest != null && (bestSolution == null || island.generationBest.fitness < bestSolution.fitness)) 
+                {
+                    bestSolution = island.generationBest;
+                }
+            }
+        }
+        
+        if (bestSolution != null) 
+        {
+            progressListener.onProgress(new Solution(bestSolution), generation, 
+                bestSolution.getUnbalanceRate(), bestSolution.getChangeRatio());
+        }
+    }
+
+    // 提交任务并等待全部完成，任务中的异常原样抛出
+    private void invokeAllTasks(ExecutorService executor, List<Callable<Void>> tasks) throws Exception 
+    {
+        for (Future<Void> future : executor.invokeAll(tasks)) 
+        {
+            try 
+            {
+                future.get();
+            } 
+            catch (ExecutionException e) 
+            {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+            }
+        }
+    }
+
+    // 环形迁移：每个岛屿的精英解复制到下一个岛屿，替换其中适应度最差的解
+    private void migrateElites(List<Island> islands) 
+    {
+        if (islands.size() < 2) 
+        {
+            return;
+        }
+        
+        // 先取出所有岛屿的精英解，避免迁移入的解在同一轮中被继续迁移
+        List<List<Solution>> emigrants = new ArrayList<>();
+        for (Island island : islands) 
+        {
+            calculateFitness(island.population);
+            List<Solution> sorted = new ArrayList<>(island.population);
+            Collections.sort(sorted, (s1, s2) -> Double.compare(s1.getFitness(), s2.getFitness()));
             
-            // 增加最大重试次数，确保能找到满足条件的解
-            final int MAX_TOTAL_ATTEMPTS = 3; // 最大总尝试次数
+            int migrantCount = Math.max(1, (int)(island.populationSize * MIGRATION_RATE));
+            List<Solution> elites = new ArrayList<>();
+            for (int i = 0; i < migrantCount && i < sorted.size(); i++) 
+            {
+                elites.add(new Solution(sorted.get(i)));
+            }
+            emigrants.add(elites);
+        }
+        
+        for (int k = 0; k < islands.size(); k++) 
+        {
+            Island target = islands.get((k + 1) % islands.size());
+            List<Solution> immigrants = emigrants.get(k);
             
-            for (int attempt = 0; attempt < MAX_TOTAL_ATTEMPTS && !isTerminated; attempt++) 
+            // 按适应度排序后替换末尾最差的解
+            List<Solution> sorted = new ArrayList<>(target.population);
+            Collections.sort(sorted, (s1, s2) -> Double.compare(s1.getFitness(), s2.getFitness()));
+            int replaceCount = Math.min(immigrants.size(), sorted.size());
+            for (int i = 0; i < replaceCount; i++) 
             {
-                Log.d("PhaseBalancer", String.format("开始第%d次优化尝试", attempt + 1));
-                
-                // 根据用户数量动态调整种群大小和迭代轮数
-                int userCount = users.size();
-                int populationSize = Math.min(MAX_POPULATION_SIZE, 
-                    Math.max(MIN_POPULATION_SIZE, 
-                        MIN_POPULATION_SIZE * (1 + userCount / SCALE_THRESHOLD)));
-                
-                // 固定迭代次数为1000
-                int generations = 1000;
-                
-                // 初始化全局最优解
-                Solution globalBestSolution = null;
-                double globalBestFitness = Double.POSITIVE_INFINITY;
+                sorted.set(sorted.size() - 1 - i, immigrants.get(i));
+            }
+            target.population = sorted;
+        }
+    }
+
+    //---------------------------------小规模问题精确求解---------------------------------
+    /**
+     * 用户数不超过EXACT_SOLVER_MAX_USERS时使用分支定界求解，约束与遗传算法相同。
+     * 得到最优解，或未证明最优但与下界之差不超过EXACT_SOLVER_MAX_GAP且为有效解时返回该解，
+     * 否则返回null，由遗传算法继续求解，得到的有效解作为初始种群的一员
+     */
+    private Solution solveSmallInstance() 
+    {
+        exactIncumbent = null;
+        if (problem.userCount == 0 || problem.userCount > EXACT_SOLVER_MAX_USERS) 
+        {
+            return null;
+        }
+        
+        int maxAllowedChanges = (int)(problem.userCount * getMaxChangeRatio());
+        long stageStart = System.nanoTime();
+        BranchAndBoundSolver solver = new BranchAndBoundSolver(problem, maxAllowedChanges, exactNodeLimit);
+        boolean optimal = solver.solve();
+        telemetry.addStageTime(OptimizerTelemetry.Stage.EXACT_SOLVER, stageStart);
+        telemetry.add(OptimizerTelemetry.Counter.EXACT_SOLVER_NODES, solver.getNodeCount());
+        double gap = solver.getBestValue() - solver.getLowerBound();
+        
+        // 由求解结果构造解，指标重新完整计算
+        Solution solution = new Solution(problem.userCount, problem.getGroupCount());
+        solver.fillBestAssignment(solution.phases, solution.moves);
+        recalculateSolution(solution);
+        
+        BalancerLog.d("PhaseBalancer",
+            "分支定界：搜索%d个节点，%s，适应度: %.2f, 下界: %.2f, 不平衡度: %.2f%%, 调整用户比例: %.2f%%",
+            solver.getNodeCount(), optimal ? "已证明最优" : "达到节点上限",
+            solution.getFitness(), solver.getLowerBound(), solution.getUnbalanceRate(), solution.getChangeRatio()
+        );
+        
+        if (solution.getUnbalanceRate() >= MAX_ACCEPTABLE_UNBALANCE) 
+        {
+            return null;
+        }
+        if (!optimal && gap > EXACT_SOLVER_MAX_GAP || problem.dayCount > 0) 
+        {
+            // 差距较大时交给遗传算法，精英保留保证结果不差于该解；
+            // 分支定界只按单日电量求解，有多日数据时也只作为初始解
+            exactIncumbent = solution;
+            return null;
+        }
+        
+        if (progressListener != null) 
+        {
+            progressListener.onProgress(new Solution(solution), 0, solution.getUnbalanceRate(), solution.getChangeRatio());
+        }
+        return solution;
+    }
+
+    //---------------------------------热启动---------------------------------
+    /**
+     * 设置热启动方案：previousPhases按用户顺序给出上一次采用的方案中各用户的相位（1-3），
+     * 0表示沿用当前相位，动力用户的相位被忽略。设置后每次初始化种群时，
+     * 用该方案及其邻域解替换初始种群中适应度最差的一部分。传入null取消热启动
+     */
+    public void setWarmStart(byte[] previousPhases) 
+    {
+        if (previousPhases != null && previousPhases.length != problem.userCount) 
+        {
+            BalancerLog.d("PhaseBalancer",
+                "热启动方案的用户数(%d)与当前用户数(%d)不一致，忽略热启动", 
+                previousPhases.length, problem.userCount
+            );
+            this.warmStartPhases = null;
+            return;
+        }
+        this.warmStartPhases = previousPhases == null ? null : Arrays.copyOf(previousPhases, previousPhases.length);
+    }
+
+    // 用热启动方案及其邻域解替换岛屿初始种群中最差的解，分支定界得到的解也在此加入
+    private void seedInitialPopulation(Island island) 
+    {
+        if (island.population == null) 
+        {
+            return;
+        }
+        
+        if (exactIncumbent != null) 
+        {
+            calculateFitness(island.population);
+            List<Solution> seeded = new ArrayList<>(island.population);
+            Collections.sort(seeded, FITNESS_ORDER);
+            seeded.set(seeded.size() - 1, new Solution(exactIncumbent));
+            island.population = seeded;
+        }
+        
+        if (warmStartPhases == null) 
+        {
+            return;
+        }
+        
+        // 由当前相位出发，应用上一次方案中的相位调整
+        Solution warmSolution = new Solution(problem.userCount, problem.getGroupCount());
+        System.arraycopy(problem.currentPhases, 0, warmSolution.phases, 0, problem.userCount);
+        recalculateSolution(warmSolution);
+        for (int i = 0; i < problem.userCount; i++) 
+        {
+            byte phase = warmStartPhases[i];
+            if (phase >= 1 && phase <= 3 && !problem.isPowerUser(i) && phase != problem.currentPhases[i]) 
+            {
+                setUserGene(warmSolution, i, phase, (byte) 1);
+            }
+        }
+        repairSolution(warmSolution);
+        
+        // 第一个为方案本身，其余为轻微变异后的邻域解
+        calculateFitness(island.population);
+        List<Solution> seeded = new ArrayList<>(island.population);
+        Collections.sort(seeded, FITNESS_ORDER);
+        int seedCount = Math.min(seeded.size(), Math.max(1, (int)(seeded.size() * WARM_START_RATIO)));
+        for (int k = 0; k < seedCount; k++) 
+        {
+            Solution seed = new Solution(warmSolution);
+            if (k > 0) 
+            {
+                performLightMutation(seed, island.random);
+                repairSolution(seed);
+            }
+            seeded.set(seeded.size() - 1 - k, seed);
+        }
+        island.population = seeded;
+        
+        BalancerLog.d("PhaseBalancer",
+            "热启动：加入%d个由上一次方案生成的解，方案不平衡度: %.2f%%, 调整用户比例: %.2f%%",
+            seedCount, warmSolution.getUnbalanceRate(), warmSolution.getChangeRatio()
+        );
+    }
+
+    // 根据用户数量动态调整种群大小
+    int getPopulationSize() 
+    {
+        int userCount = problem.userCount;
+        return Math.min(MAX_POPULATION_SIZE, 
+            Math.max(MIN_POPULATION_SIZE, 
+                MIN_POPULATION_SIZE * (1 + userCount / SCALE_THRESHOLD)));
+    }
+
+    // 执行一代进化，返回true表示已找到满足跳出条件的解
+    private boolean evolveGeneration(Island island, int generation) 
+    {
+        List<Solution> population = island.population;
+        Random random = island.random;
+        int populationSize = island.populationSize;
+        
+        telemetry.increment(OptimizerTelemetry.Counter.GENERATIONS);
+        long stageStart = System.nanoTime();
+        calculateFitness(population);    //计算适应度
+        telemetry.addStageTime(OptimizerTelemetry.Stage.FITNESS, stageStart);
+        stageStart = System.nanoTime();
+        List<Solution> selected = selection(population, random, island.arena);  //选择
+        telemetry.addStageTime(OptimizerTelemetry.Stage.SELECTION, stageStart);
+        stageStart = System.nanoTime();
+        List<Solution> offspring = crossover(selected, random);  //交叉
+        telemetry.addStageTime(OptimizerTelemetry.Stage.CROSSOVER, stageStart);
+        stageStart = System.nanoTime();
+        mutation(offspring, random, island.arena, island.mutationRate);  //变异
+        telemetry.addStageTime(OptimizerTelemetry.Stage.MUTATION, stageStart);
+        
+        // 对新解进行修复，修复过程不使用随机数，可直接并行执行
+        stageStart = System.nanoTime();
+        forEachSolution(offspring, this::repairSolution);
+        telemetry.addStageTime(OptimizerTelemetry.Stage.REPAIR, stageStart);
+        
+        // 定期重新初始化一部分种群并合并，多样性不足且停滞时提前进行
+        int sinceReinjection = generation - island.lastReinjection;
+        boolean stagnant = island.stagnantGenerations >= STAGNATION_REINJECTION && island.diversity < LOW_DIVERSITY;
+        if (generation > 0 && (sinceReinjection >= REINJECTION_INTERVAL || stagnant && sinceReinjection >= STAGNATION_REINJECTION)) 
+        {
+            island.lastReinjection = generation;
+            BalancerLog.d("PhaseBalancer", "第%d代重新初始化一部分种群，种群多样性: %.2f", generation, island.diversity);
+            telemetry.increment(OptimizerTelemetry.Counter.REINJECTIONS);
+            stageStart = System.nanoTime();
+            
+            // 新初始化一个种群，数量为当前种群的50%
+            int newPopulationSize = Math.max(populationSize / 2, 1);
+            // 构造式初始解在初始种群中已经加入过，不再重复加入
+            List<Solution> newPopulation = initializePopulation(newPopulationSize, random, false);
+            
+            if (newPopulation != null && !newPopulation.isEmpty()) 
+            {
+                // 计算新种群的适应度
+                calculateFitness(newPopulation);
                 
-                // 跟踪遇到的所有不平衡度小于15%的解
-                List<Solution> validSolutions = new ArrayList<>();
+                // 将新种群与当前后代合并
+                List<Solution> combinedPopulation = new ArrayList<>(offspring);
+                combinedPopulation.addAll(newPopulation);
                 
-                // 初始化种群
-                List<Solution> population = initializePopulation(populationSize);
+                // 按适应度排序
+                Collections.sort(combinedPopulation, (s1, s2) -> 
+                    Double.compare(s1.getFitness(), s2.getFitness()));
                 
-                // 检查初始化是否成功
-                if (population == null) 
+                // 保留适应度最好的解，数量等于原始种群大小
+                if (combinedPopulation.size() > populationSize) 
+                {
+                    offspring = combinedPopulation.subList(0, populationSize);
+                } 
+                else 
                 {
-                    Log.d("PhaseBalancer", "种群初始化失败，尝试重新初始化");
-                    continue; // 尝试重新初始化种群
+                    offspring = combinedPopulation;
                 }
                 
-                
-                // 迭代优化
-                for (int i = 0; !isTerminated && i < generations; i++) 
+                // 记录日志
+                BalancerLog.d("PhaseBalancer",
+                    "合并种群后，最优适应度为: %.2f, 不平衡度: %.2f%%", 
+                    offspring.get(0).getFitness(),
+                    offspring.get(0).getUnbalanceRate()
+                );
+            }
+            telemetry.addStageTime(OptimizerTelemetry.Stage.REINJECTION, stageStart);
+        }
+        
+        // 更新种群
+        island.population = offspring;
+        
+        // 获取当前最优解
+        Solution currentBest = getBestSolution(offspring);
+        
+        // 局部搜索
+        stageStart = System.nanoTime();
+        localSearch(currentBest);
+        telemetry.addStageTime(OptimizerTelemetry.Stage.LOCAL_SEARCH, stageStart);
+        
+        // 重新计算适应度
+        calculateFitness(Arrays.asList(currentBest));
+        island.generationBest = currentBest;
+        island.generation = generation + 1;
+        
+        // 根据多样性和停滞情况调整下一代的参数
+        updateAdaptiveControl(island, currentBest.getFitness(), generation);
+        
+        // 检查是否为有效解（不平衡度小于15%）
+        if (currentBest.getUnbalanceRate() < MAX_ACCEPTABLE_UNBALANCE) 
+        {
+            // 更新岛屿最优有效解，复用已有的缓冲区
+            if (currentBest.getFitness() < island.bestFitness) 
+            {
+                if (island.bestSolution == null) 
                 {
-                    calculateFitness(population);    //计算适应度
-                    List<Solution> selected = selection(population);  //选择
-                    List<Solution> offspring = crossover(selected);  //交叉
-                    mutation(offspring);  //变异
-                    
-                    // 对新解进行修复
-                    for (Solution solution : offspring) 
-                    {
-                        repairSolution(solution);
-                    }
-                    
-                    // 每100代重新初始化一部分种群并合并
-                    if (i % 100 == 0 && i > 0) 
-                    {
-                        Log.d("PhaseBalancer", String.format("第%d代重新初始化一部分种群", i));
-                        
-                        // 新初始化一个种群，数量为当前种群的50%
-                        int newPopulationSize = Math.max(populationSize / 2, 1);
-                        List<Solution> newPopulation = initializePopulation(newPopulationSize);
-                        
-                        if (newPopulation != null && !newPopulation.isEmpty()) 
-                        {
-                            // 计算新种群的适应度
-                            calculateFitness(newPopulation);
-                            
-                            // 将新种群与当前后代合并
-                            List<Solution> combinedPopulation = new ArrayList<>(offspring);
-                            combinedPopulation.addAll(newPopulation);
-                            
-                            // 按适应度排序
-                            Collections.sort(combinedPopulation, (s1, s2) -> 
-                                Double.compare(s1.getFitness(), s2.getFitness()));
-                            
-                            // 保留适应度最好的解，数量等于原始种群大小
-                            if (combinedPopulation.size() > populationSize) 
-                            {
-                                offspring = combinedPopulation.subList(0, populationSize);
-                            } 
-                            else 
-                            {
-                                offspring = combinedPopulation;
-                            }
-                            
-                            // 记录日志
-                            Log.d("PhaseBalancer", String.format(
-                                "合并种群后，最优适应度为: %.2f, 不平衡度: %.2f%%", 
-                                offspring.get(0).getFitness(),
-                                offspring.get(0).getUnbalanceRate()
-                            ));
-                        }
-                    }
-                    
-                    // 更新种群
-                    population = offspring;
-                    
-                    // 获取当前最优解
-                    Solution currentBest = getBestSolution(population);
-                    
-                    // 局部搜索
-                    localSearch(currentBest);
-                    
-                    // 重新计算适应度
-                    calculateFitness(Arrays.asList(currentBest));
-                    
-                    // 检查是否为有效解（不平衡度小于15%）
-                    if (currentBest.getUnbalanceRate() < MAX_ACCEPTABLE_UNBALANCE) 
-                    {
-                        // 将不平衡度小于15%的解加入有效解列表
-                        validSolutions.add(new Solution(currentBest));
-                        
-                        // 更新全局最优解
-                        if (currentBest.getFitness() < globalBestFitness) 
-                        {
-                            globalBestSolution = new Solution(currentBest);
-                            globalBestFitness = currentBest.getFitness();
-                            
-                            // 跳出条件：不平衡度<10%且调整用户比例<15%
-                            double unbalanceRate = globalBestSolution.getUnbalanceRate();
-                            double changeRatio = globalBestSolution.getChangeRatio(); 
-                            
-                            if (unbalanceRate <= 5.0 && changeRatio <= 20.0 || unbalanceRate <= 10.0 && changeRatio <= 15.0) 
-                            {
-                                Log.d("PhaseBalancer", String.format(
-                                    "第%d代找到满足条件的解，不平衡度: %.2f%%, 调整用户比例: %.2f%%",
-                                    i, unbalanceRate, changeRatio
-                                ));
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // 每100代输出日志
-                    if (i % 100 == 0) 
-                    {
-                        Log.d("PhaseBalancer", String.format(
-                            "第%d代 - 当前最优适应度: %.2f, 不平衡度: %.2f%%, 调整用户比例: %.2f%%",
-                            i, currentBest.getFitness(), currentBest.getUnbalanceRate(),
-                            currentBest.getChangeRatio()
-                        ));
-                    }
+                    island.bestSolution = new Solution(currentBest);
                 }
-                
-                // 检查是否找到了有效解
-                if (!validSolutions.isEmpty()) 
+                else 
                 {
-                    // 从有效解中选择适应度最小的解
-                    Solution bestSolution = Collections.min(validSolutions, 
-                        Comparator.comparingDouble(s -> s.fitness));
-                    
-                    Log.d("PhaseBalancer", String.format(
-                        "优化完成，找到满足条件的解，适应度: %.2f, 不平衡度: %.2f%%",
-                        bestSolution.getFitness(), bestSolution.getUnbalanceRate()
-                    ));
-                    
-                    return bestSolution;
+                    island.bestSolution.copyFrom(currentBest);
                 }
+                island.bestFitness = currentBest.getFitness();
                 
-                Log.d("PhaseBalancer", String.format(
-                    "第%d次尝试未找到满足条件的解，尝试重新优化", attempt + 1
-                ));
+                // 跳出条件：不平衡度<10%且调整用户比例<15%
+                double unbalanceRate = island.bestSolution.getUnbalanceRate();
+                double changeRatio = island.bestSolution.getChangeRatio(); 
+                
+                if (unbalanceRate <= 5.0 && changeRatio <= 20.0 || unbalanceRate <= 10.0 && changeRatio <= 15.0) 
+                {
+                    telemetry.addTracePoint(island.index, generation, currentBest, island.diversity, island.mutationRate);
+                    BalancerLog.d("PhaseBalancer",
+                        "第%d代找到满足条件的解，不平衡度: %.2f%%, 调整用户比例: %.2f%%",
+                        generation, unbalanceRate, changeRatio
+                    );
+                    return true;
+                }
             }
-            
-            Log.d("PhaseBalancer", "所有优化尝试都失败，未找到满足条件的解");
-            return null;  // 所有尝试都失败，返回null
-        } 
-        catch (Exception e) 
+        }
+        
+        // 定期在收敛曲线上记录当前最优解，收敛时记录最后一代
+        if (generation % TRACE_INTERVAL == 0 || island.converged) 
         {
-            e.printStackTrace();
-            return null;
+            telemetry.addTracePoint(island.index, generation, currentBest, island.diversity, island.mutationRate);
+        }
+        return false;
+    }
+
+    // 自适应控制：统计种群多样性（不同解所占比例）和最优适应度的停滞代数，
+    // 停滞越久、多样性越低，变异率越高；长时间没有改进时标记为已收敛
+    private void updateAdaptiveControl(Island island, double currentBestFitness, int generation) 
+    {
+        island.diversitySet.clear();
+        for (Solution solution : island.population) 
+        {
+            island.diversitySet.add(solution.hash);
+        }
+        island.diversity = (double) island.diversitySet.size() / island.population.size();
+        
+        double bestSeen = island.bestSeenFitness;
+        if (Double.isInfinite(bestSeen) || currentBestFitness < bestSeen - IMPROVEMENT_THRESHOLD * Math.abs(bestSeen)) 
+        {
+            island.stagnantGenerations = 0;
+        }
+        else 
+        {
+            island.stagnantGenerations++;
+        }
+        island.bestSeenFitness = Math.min(bestSeen, currentBestFitness);
+        
+        double mutationRate = MUTATION_RATE * (1 + island.stagnantGenerations / 10.0);
+        if (island.diversity < LOW_DIVERSITY) 
+        {
+            mutationRate *= 2;
+        }
+        island.mutationRate = Math.min(MAX_MUTATION_RATE, mutationRate);
+        
+        if (island.stagnantGenerations >= CONVERGENCE_GENERATIONS) 
+        {
+            island.converged = true;
+            BalancerLog.d("PhaseBalancer",
+                "第%d代已连续%d代没有改进，提前结束，当前最优适应度: %.2f",
+                generation, island.stagnantGenerations, island.bestSeenFitness
+            );
+        }
+    }
+
+    // 从各岛屿的最优有效解中选择适应度最小的解，没有有效解时返回null
+    private Solution getBestValidSolution(List<Island> islands) 
+    {
+        Solution bestSolution = null;
+        for (Island island : islands) 
+        {
+            Solution solution = island.bestSolution;
+            if (solution != null && (bestSolution == null || solution.fitness < bestSolution.fitness)) 
+            {
+                bestSolution = solution;
+            }
+        }
+        
+        if (bestSolution != null) 
+        {
+            BalancerLog.i("PhaseBalancer",
+                "优化完成，找到满足条件的解，适应度: %.2f, 不平衡度: %.2f%%",
+                bestSolution.getFitness(), bestSolution.getUnbalanceRate()
+            );
         }
+        return bestSolution;
     }
 
     // 获取最佳解
     private Solution getBestSolution(List<Solution> population)
     {
-        return Collections.min(population, Comparator.comparingDouble(s -> s.fitness));
+        return Collections.min(population, FITNESS_ORDER);
     }
 
     //---------------------------------初始化种群---------------------------------
-    private List<Solution> initializePopulation(int populationSize) 
+    List<Solution> initializePopulation(int populationSize, Random random) 
+    {
+        return initializePopulation(populationSize, random, true);
+    }
+
+    // withConstructiveSeeds为true时加入构造式初始解，只在首次初始化时使用，多样性重注入时为false
+    List<Solution> initializePopulation(int populationSize, Random random, boolean withConstructiveSeeds) 
     {
         // 创建种群池，存储所有重试中的有效解
         List<Solution> solutionPool = new ArrayList<>();
@@ -330,41 +1359,18 @@ public class PhaseBalancer
         // 进行多次重试，累积有效解
         for(int retryCount = 0; retryCount < maxRetries; retryCount++) 
         {
+            if (retryCount > 0) 
+            {
+                telemetry.increment(OptimizerTelemetry.Counter.INITIALIZATION_RETRIES);
+            }
             List<Solution> currentPopulation = new ArrayList<>();
             
             // 第一个解保持所有用户的当前相位
-            Solution initialSolution = new Solution(users.size());
-            for (int j = 0; j < users.size(); j++) 
-            {
-                initialSolution.phases[j] = users.get(j).getCurrentPhase();
-                initialSolution.moves[j] = 0;  // 初始解没有移动
-            }
+            Solution initialSolution = new Solution(problem.userCount, problem.getGroupCount());
+            System.arraycopy(problem.currentPhases, 0, initialSolution.phases, 0, problem.userCount);  // 初始解没有移动
             
             // 计算初始解的三相电量和不平衡度
-            double[] initialPhasePowers = new double[3];
-            for (int i = 0; i < users.size(); i++) 
-            {
-                User user = users.get(i);
-                byte phase = initialSolution.phases[i];
-                if (phase > 0) 
-                {
-                    if (user.isPowerPhase()) 
-                    {
-                        initialPhasePowers[0] += user.getPhaseAPower();
-                        initialPhasePowers[1] += user.getPhaseBPower();
-                        initialPhasePowers[2] += user.getPhaseCPower();
-                    }
-                    else 
-                    {
-                        initialPhasePowers[phase - 1] += user.getPowerByPhase(user.getCurrentPhase());
-                    }
-                }
-            }
-            
-            // 计算初始状态的不平衡度
-            double initialUnbalanceRate = UnbalanceCalculator.calculateUnbalanceRate(
-                initialPhasePowers[0], initialPhasePowers[1], initialPhasePowers[2]
-            );
+            recalculateSolution(initialSolution);
 
             // 根据初始不平衡度设置接受阈值
             double acceptanceThreshold;
@@ -394,17 +1400,17 @@ public class PhaseBalancer
             if (initialUnbalanceRate <= 15.0) 
             {
                 // 不平衡度较小时，使用较小的调整范围
-                maxChangeUsers = (int)(users.size() * 0.2);
+                maxChangeUsers = (int)(problem.userCount * 0.2);
             } 
             else if (initialUnbalanceRate <= 25.0) 
             {
                 // 不平衡度中等时，使用中等的调整范围
-                maxChangeUsers = (int)(users.size() * 0.3);
+                maxChangeUsers = (int)(problem.userCount * 0.3);
             } 
             else 
             {
                 // 不平衡度较大时，使用较大的调整范围
-                maxChangeUsers = (int)(users.size() * 0.4);
+                maxChangeUsers = (int)(problem.userCount * 0.4);
             }
             
             // 添加初始解并检查是否为有效解
@@ -415,82 +1421,65 @@ public class PhaseBalancer
             }
             currentPopulation.add(initialSolution);
             
-            // 继续生成解直到达到种群大小
-            while(currentPopulation.size() < populationSize) 
+            // 首次初始化的第一次尝试时加入构造式初始解，保证初始种群接近可行
+            if (withConstructiveSeeds && retryCount == 0) 
             {
-                Solution additionalSolution = new Solution(users.size());
-                
-                // 复制初始解
-                for (int i = 0; i < users.size(); i++) 
-                {
-                    additionalSolution.phases[i] = initialSolution.phases[i];
-                    additionalSolution.moves[i] = 0;  // 初始化移动次数为0
-                }
-                
-                // 随机选择要改变的用户数量（在最小值和最大值之间）
-                int minChangeUsers = (int)(users.size() * (initialUnbalanceRate > 25.0 ? 0.1 : 0.05));
-                int changeCount = minChangeUsers + fixedRandom.nextInt(maxChangeUsers - minChangeUsers + 1);
-                
-                // 清空相位电量统计
-                Arrays.fill(additionalSolution.phasePowers, 0.0);
-                additionalSolution.changedUsersCount = 0;
-                
-                // 构建选择单元：支线组作为整体和独立用户
-                List<Object> selectionUnits = new ArrayList<>();
-                Set<Integer> branchGroupUserSet = new HashSet<>();
-                
-                // 添加支线组作为整体单元
-                for (Map.Entry<String, List<Integer>> entry : branchGroupUserIndices.entrySet()) 
-                {
-                    selectionUnits.add(entry);
-                    branchGroupUserSet.addAll(entry.getValue());
-                }
-                
-                // 添加独立用户
-                for (int i = 0; i < users.size(); i++) 
+                for (Solution seed : getConstructiveSeeds()) 
                 {
-                    if (!branchGroupUserSet.contains(i)) 
+                    if (seed.unbalanceRate < MAX_ACCEPTABLE_UNBALANCE) 
                     {
-                        selectionUnits.add(i);
+                        solutionPool.add(new Solution(seed));
                     }
+                    currentPopulation.add(new Solution(seed));
                 }
+            }
+            
+            // 选择单元的工作数组，每个解打乱前从模板复制
+            int[] shuffledUnits = new int[problem.selectionUnits.length];
+            
+            // 继续生成解直到达到种群大小
+            while(currentPopulation.size() < populationSize) 
+            {
+                // 复制初始解，累计值随之复制，后续调整增量更新
+                Solution additionalSolution = new Solution(initialSolution);
+                
+                // 随机选择要改变的用户数量（在最小值和最大值之间）
+                int minChangeUsers = (int)(problem.userCount * (initialUnbalanceRate > 25.0 ? 0.1 : 0.05));
+                int changeCount = minChangeUsers + random.nextInt(maxChangeUsers - minChangeUsers + 1);
                 
-                // 随机打乱选择单元
-                Collections.shuffle(selectionUnits, fixedRandom);
+                // 随机打乱选择单元：支线组作为整体和独立用户
+                System.arraycopy(problem.selectionUnits, 0, shuffledUnits, 0, problem.selectionUnits.length);
+                shuffle(shuffledUnits, random);
                 
                 // 进行选择和调整
                 int remainingChanges = changeCount;
                 int currentIndex = 0;
                 
-                while (remainingChanges > 0 && currentIndex < selectionUnits.size()) 
+                while (remainingChanges > 0 && currentIndex < shuffledUnits.length) 
                 {
-                    Object unit = selectionUnits.get(currentIndex++);
+                    int unit = shuffledUnits[currentIndex++];
                     
-                    if (unit instanceof Map.Entry) 
+                    if (unit < 0) 
                     {
                         // 处理支线组
-                        @SuppressWarnings("unchecked")
-                        Map.Entry<String, List<Integer>> entry = (Map.Entry<String, List<Integer>>) unit;
-                        List<Integer> groupIndices = entry.getValue();
+                        int groupId = -(unit + 1);
                         
                         // 如果剩余配额不足以调整整个支线组，跳过
-                        if (groupIndices.size() > remainingChanges) 
+                        if (problem.getGroupSize(groupId) > remainingChanges) 
                         {
                             continue;
                         }
                         
                         // 为整个支线组选择新相位
-                        byte newPhase = (byte)(1 + fixedRandom.nextInt(3));
+                        byte newPhase = (byte)(1 + random.nextInt(3));
                         
                         // 应用相位调整
-                        for (int index : groupIndices) 
+                        for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++) 
                         {
-                            User user = users.get(index);
-                            if (user.getCurrentPhase() != newPhase) 
+                            int index = problem.groupMembers[k];
+                            if (problem.currentPhases[index] != newPhase) 
                             {
-                                additionalSolution.phases[index] = newPhase;
-                                additionalSolution.moves[index] = 1;
-                                additionalSolution.changedUsersCount++;
+                                setUserGene(additionalSolution, index, newPhase, (byte) 1);
                                 remainingChanges--;
                             }
                         }
@@ -498,87 +1487,28 @@ public class PhaseBalancer
                     else 
                     {
                         // 处理独立用户
-                        int idx = (Integer) unit;
-                        User user = users.get(idx);
+                        int idx = unit;
                         
-                        if (user.isPowerPhase()) 
+                        if (problem.isPowerUser(idx)) 
                         {
-                            byte moves = (byte)(1 + fixedRandom.nextInt(2));
-                            additionalSolution.phases[idx] = user.getCurrentPhase();  // 保持原相位不变
-                            additionalSolution.moves[idx] = moves;
-                            additionalSolution.changedUsersCount++;
+                            byte moves = (byte)(1 + random.nextInt(2));
+                            // 保持原相位不变
+                            setUserGene(additionalSolution, idx, problem.currentPhases[idx], moves);
                         }
                         else 
                         {
-                            byte currentPhase = user.getCurrentPhase();
+                            byte currentPhase = problem.currentPhases[idx];
                             byte newPhase;
                             do 
                             {
-                                newPhase = (byte)(1 + fixedRandom.nextInt(3));
+                                newPhase = (byte)(1 + random.nextInt(3));
                             } while (newPhase == currentPhase);
-                            additionalSolution.phases[idx] = newPhase;
-                            additionalSolution.moves[idx] = 1;
-                            additionalSolution.changedUsersCount++;
+                            setUserGene(additionalSolution, idx, newPhase, (byte) 1);
                         }
                         remainingChanges--;
                     }
                 }
                 
-                // 计算相位电量
-                for (int j = 0; j < users.size(); j++) 
-                {
-                    User user = users.get(j);
-                    byte phase = additionalSolution.phases[j];
-                    if (phase > 0) 
-                    {
-                        if (user.isPowerPhase()) 
-                        {
-                            byte moves = additionalSolution.moves[j];
-                            if (moves == 1) 
-                            {
-                                // A->B, B->C, C->A
-                                additionalSolution.phasePowers[0] += user.getPhaseCPower();
-                                additionalSolution.phasePowers[1] += user.getPhaseAPower();
-                                additionalSolution.phasePowers[2] += user.getPhaseBPower();
-                            }
-                            else if (moves == 2) 
-                            {
-                                // A->C, B->A, C->B
-                                additionalSolution.phasePowers[0] += user.getPhaseBPower();
-                                additionalSolution.phasePowers[1] += user.getPhaseCPower();
-                                additionalSolution.phasePowers[2] += user.getPhaseAPower();
-                            }
-                            else 
-                            {
-                                // 不移动时保持原电量
-                                additionalSolution.phasePowers[0] += user.getPhaseAPower();
-                                additionalSolution.phasePowers[1] += user.getPhaseBPower();
-                                additionalSolution.phasePowers[2] += user.getPhaseCPower();
-                            }
-                        }
-                        else 
-                        {
-                            additionalSolution.phasePowers[phase - 1] += user.getPowerByPhase(user.getCurrentPhase());
-                        }
-                    }
-                }
-                
-                // 计算不平衡度
-                additionalSolution.unbalanceRate = UnbalanceCalculator.calculateUnbalanceRate(
-                    additionalSolution.phasePowers[0], 
-                    additionalSolution.phasePowers[1], 
-                    additionalSolution.phasePowers[2]
-                );
-                
-                // 计算调整比例
-                additionalSolution.changeRatio = (double) additionalSolution.changedUsersCount / users.size() * 100;
-                
-                // 计算调相代价
-                additionalSolution.adjustmentCost = calculateAdjustmentCost(additionalSolution);
-                
-                // 标记为已计算
-                additionalSolution.isCalculated = true;
-                
                 // 根据不平衡度限制接受解
                 if (additionalSolution.unbalanceRate <= acceptanceThreshold) 
                 {
@@ -645,24 +1575,20 @@ public class PhaseBalancer
         // 如果有效解数量已经够了，但种群大小不够，需要从最后一次的种群中添加解
         if (resultPopulation.size() < populationSize) 
         {
+            // 用解的哈希记录结果种群中已有的解
+            LongHashSet existingHashes = new LongHashSet(populationSize);
+            for (Solution poolSolution : resultPopulation) 
+            {
+                existingHashes.add(poolSolution.hash);
+            }
+            
             // 从最后一次种群中添加非有效解，直到达到种群大小
             for (Solution solution : lastPopulation) 
             {
                 if (solution.getUnbalanceRate() >= MAX_ACCEPTABLE_UNBALANCE) 
                 {
                     // 不是有效解，检查是否已经在结果种群中
-                    boolean exists = false;
-                    for (Solution poolSolution : resultPopulation) 
-                    {
-                        if (Arrays.equals(poolSolution.phases, solution.phases) && 
-                            Arrays.equals(poolSolution.moves, solution.moves)) 
-                        {
-                            exists = true;
-                            break;
-                        }
-                    }
-                    
-                    if (!exists) 
+                    if (existingHashes.add(solution.hash)) 
                     {
                         resultPopulation.add(solution);
                         if (resultPopulation.size() >= populationSize) 
@@ -678,18 +1604,171 @@ public class PhaseBalancer
         while (resultPopulation.size() < populationSize) 
         {
             // 随机选择一个有效解进行复制
-            Solution baseSolution = solutionPool.get(fixedRandom.nextInt(solutionPool.size()));
+            Solution baseSolution = solutionPool.get(random.nextInt(solutionPool.size()));
             resultPopulation.add(new Solution(baseSolution));
         }
         
         return resultPopulation;
     }
 
+    // 按照Collections.shuffle的方式原地打乱数组
+    private static void shuffle(int[] values, Random random)
+    {
+        for (int i = values.length; i > 1; i--)
+        {
+            int j = random.nextInt(i);
+            int temp = values[i - 1];
+            values[i - 1] = values[j];
+            values[j] = temp;
+        }
+    }
+
+    // 构造式初始解：最大电量优先、Karmarkar-Karp差分法和按电量降序的贪心调整，
+    // 均满足调整用户数限制（仍经过修复以防万一），只生成一次，各岛屿共用
+    synchronized List<Solution> getConstructiveSeeds() 
+    {
+        if (constructiveSeeds == null) 
+        {
+            ConstructiveSeeder seeder = new ConstructiveSeeder(problem, (int)(problem.userCount * getMaxChangeRatio()));
+            List<Solution> seeds = new ArrayList<>();
+            
+            Solution largestFirst = applyUnitPhases(seeder.largestFirst());
+            repairSolution(largestFirst);
+            seeds.add(largestFirst);
+            
+            Solution karmarkarKarp = applyUnitPhases(seeder.karmarkarKarp());
+            repairSolution(karmarkarKarp);
+            seeds.add(karmarkarKarp);
+            
+            seeds.add(greedyBalance(seeder.getUnitsByPower()));
+            
+            for (Solution seed : seeds) 
+            {
+                BalancerLog.d("PhaseBalancer",
+                    "构造式初始解 - 不平衡度: %.2f%%, 调整用户比例: %.2f%%", 
+                    seed.getUnbalanceRate(), seed.getChangeRatio()
+                );
+            }
+            constructiveSeeds = seeds;
+        }
+        return constructiveSeeds;
+    }
+    
+    // 由当前相位出发，把每个选择单元调到指定相位（0表示保持不变）
+    private Solution applyUnitPhases(byte[] unitPhases) 
+    {
+        Solution solution = new Solution(problem.userCount, problem.getGroupCount());
+        System.arraycopy(problem.currentPhases, 0, solution.phases, 0, problem.userCount);
+        recalculateSolution(solution);
+        
+        for (int u = 0; u < unitPhases.length; u++) 
+        {
+            byte phase = unitPhases[u];
+            if (phase == 0) 
+            {
+                continue;
+            }
+            
+            int unit = problem.selectionUnits[u];
+            if (unit < 0) 
+            {
+                int groupId = -(unit + 1);
+                for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++) 
+                {
+                    int index = problem.groupMembers[k];
+                    setUserGene(solution, index, phase, (byte)(phase != problem.currentPhases[index] ? 1 : 0));
+                }
+            }
+            else 
+            {
+                setUserGene(solution, unit, phase, (byte)(phase != problem.currentPhases[unit] ? 1 : 0));
+            }
+        }
+        return solution;
+    }
+    
+    // 贪心调整：由当前相位出发，按电量从大到小依次为每个选择单元选择使适应度最小的相位，
+    // 不超过最大调整用户数
+    private Solution greedyBalance(int[] unitsByPower) 
+    {
+        Solution solution = new Solution(problem.userCount, problem.getGroupCount());
+        System.arraycopy(problem.currentPhases, 0, solution.phases, 0, problem.userCount);
+        recalculateSolution(solution);
+        int maxAllowedChanges = (int)(problem.userCount * getMaxChangeRatio());
+        
+        for (int u : unitsByPower) 
+        {
+            int unit = problem.selectionUnits[u];
+            int first = unit < 0 ? problem.groupStart[-(unit + 1)] : 0;
+            int end = unit < 0 ? problem.groupStart[-unit] : 0;
+            byte originalPhase = unit < 0 ? solution.phases[problem.groupMembers[first]] : solution.phases[unit];
+            byte bestPhase = 0;
+            double bestFitness = getGreedyFitness(solution);
+            
+            for (byte newPhase = 1; newPhase <= 3; newPhase++) 
+            {
+                if (newPhase == originalPhase) 
+                {
+                    continue;
+                }
+                
+                // 试探后恢复，只记录最好的相位
+                if (unit < 0) 
+                {
+                    for (int k = first; k < end; k++) 
+                    {
+                        int index = problem.groupMembers[k];
+                        setUserGene(solution, index, newPhase, (byte)(newPhase != problem.currentPhases[index] ? 1 : 0));
+                    }
+                }
+                else 
+                {
+                    setUserGene(solution, unit, newPhase, (byte)(newPhase != problem.currentPhases[unit] ? 1 : 0));
+                }
+                
+                if (solution.changedUsersCount <= maxAllowedChanges && getGreedyFitness(solution) < bestFitness) 
+                {
+                    bestFitness = getGreedyFitness(solution);
+                    bestPhase = newPhase;
+                }
+                
+                if (unit < 0) 
+                {
+                    for (int k = first; k < end; k++) 
+                    {
+                        setUserGene(solution, problem.groupMembers[k], problem.currentPhases[problem.groupMembers[k]], (byte) 0);
+                    }
+                }
+                else 
+                {
+                    setUserGene(solution, unit, problem.currentPhases[unit], (byte) 0);
+                }
+            }
+            
+            if (bestPhase != 0) 
+            {
+                if (unit < 0) 
+                {
+                    for (int k = first; k < end; k++) 
+                    {
+                        int index = problem.groupMembers[k];
+                        setUserGene(solution, index, bestPhase, (byte)(bestPhase != problem.currentPhases[index] ? 1 : 0));
+                    }
+                }
+                else 
+                {
+                    setUserGene(solution, unit, bestPhase, (byte)(bestPhase != problem.currentPhases[unit] ? 1 : 0));
+                }
+            }
+        }
+        return solution;
+    }
+    
     // 轻微变异
-    private void performLightMutation(Solution solution) 
+    private void performLightMutation(Solution solution, Random random) 
     {
         // 随机选择1-2个用户进行调整
-        int mutationCount = 1 + fixedRandom.nextInt(2);
+        int mutationCount = 1 + random.nextInt(2);
         Set<Integer> mutatedIndices = new HashSet<>();
         
         for(int i = 0; i < mutationCount; i++) 
@@ -698,264 +1777,392 @@ public class PhaseBalancer
             int userIndex;
             do 
             {
-                userIndex = fixedRandom.nextInt(users.size());
+                userIndex = random.nextInt(problem.userCount);
             } while(mutatedIndices.contains(userIndex));
             
             mutatedIndices.add(userIndex);
-            User user = users.get(userIndex);
             
-            if(user.isPowerPhase()) 
+            if(problem.isPowerUser(userIndex)) 
             {
                 // 动力用户：改变移动次数
                 byte currentMoves = solution.moves[userIndex];
                 byte newMoves;
                 do 
                 {
-                    newMoves = (byte)(1 + fixedRandom.nextInt(2));
+                    newMoves = (byte)(1 + random.nextInt(2));
                 } while(newMoves == currentMoves);
-                solution.moves[userIndex] = newMoves;
+                setUserGene(solution, userIndex, solution.phases[userIndex], newMoves);
             } 
             else 
             {
-                // 普通用户：改变相位
-                byte currentPhase = solution.phases[userIndex];
-                byte newPhase;
-                do 
-                {
-                    newPhase = (byte)(1 + fixedRandom.nextInt(3));
-                } while(newPhase == currentPhase);
-                solution.phases[userIndex] = newPhase;
-                solution.moves[userIndex] = 1;
+                // 普通用户：改变相位
+                byte currentPhase = solution.phases[userIndex];
+                byte newPhase;
+                do 
+                {
+                    newPhase = (byte)(1 + random.nextInt(3));
+                } while(newPhase == currentPhase);
+                setUserGene(solution, userIndex, newPhase, (byte) 1);
+            }
+        }
+    }
+
+    //---------------------------------增量评估---------------------------------
+    // 解中维护三相电量、调整用户数和各支线组已调整电量的累计值，
+    // 单个用户的变化只需减去旧贡献、加上新贡献，无需重新扫描所有用户
+
+    // 将用户在指定相位和移动次数下的电量贡献累加到三相电量上，sign为1表示加入，-1表示移除
+    private void accumulateUserPower(double[] phasePowers, int index, byte phase, byte moves, double sign)
+    {
+        if (phase <= 0)
+        {
+            return;
+        }
+
+        if (problem.powerUsers.get(index))
+        {
+            double powerA = problem.phaseAPowers[index];
+            double powerB = problem.phaseBPowers[index];
+            double powerC = problem.phaseCPowers[index];
+            if (moves == 1)
+            {
+                // A->B, B->C, C->A
+                phasePowers[0] += sign * powerC;
+                phasePowers[1] += sign * powerA;
+                phasePowers[2] += sign * powerB;
+            }
+            else if (moves == 2)
+            {
+                // A->C, B->A, C->B
+                phasePowers[0] += sign * powerB;
+                phasePowers[1] += sign * powerC;
+                phasePowers[2] += sign * powerA;
+            }
+            else
+            {
+                // 不移动时保持原电量
+                phasePowers[0] += sign * powerA;
+                phasePowers[1] += sign * powerB;
+                phasePowers[2] += sign * powerC;
             }
         }
-        
-        // 重新计算相位电量
-        Arrays.fill(solution.phasePowers, 0.0);
-        for(int i = 0; i < users.size(); i++) 
+        else
         {
-            User user = users.get(i);
-            byte phase = solution.phases[i];
-            if(phase > 0) 
+            phasePowers[phase - 1] += sign * problem.ownPowers[index];
+        }
+    }
+
+    // 将用户在指定相位和移动次数下每天的电量贡献累加到各天的三相电量上，规则与accumulateUserPower相同，
+    // 复杂度O(K)
+    private void accumulateDayPowers(double[] dayPhasePowers, int index, byte phase, byte moves, double sign)
+    {
+        if (phase <= 0)
+        {
+            return;
+        }
+
+        int dayCount = problem.dayCount;
+        double[] dayPowers = problem.dayPowers;
+        int offset = index * dayCount * 3;
+        if (problem.powerUsers.get(index))
+        {
+            // 移动次数为1时A->B, B->C, C->A，为2时A->C, B->A, C->B
+            int shift = moves == 1 ? 1 : moves == 2 ? 2 : 0;
+            for (int d = 0; d < dayCount; d++)
             {
-                if(user.isPowerPhase()) 
-                {
-                    byte moves = solution.moves[i];
-                    if(moves == 1) 
-                    {
-                        solution.phasePowers[0] += user.getPhaseCPower();
-                        solution.phasePowers[1] += user.getPhaseAPower();
-                        solution.phasePowers[2] += user.getPhaseBPower();
-                    } 
-                    else if(moves == 2) 
-                    {
-                        solution.phasePowers[0] += user.getPhaseBPower();
-                        solution.phasePowers[1] += user.getPhaseCPower();
-                        solution.phasePowers[2] += user.getPhaseAPower();
-                    } 
-                    else 
-                    {
-                        solution.phasePowers[0] += user.getPhaseAPower();
-                        solution.phasePowers[1] += user.getPhaseBPower();
-                        solution.phasePowers[2] += user.getPhaseCPower();
-                    }
-                } 
-                else 
+                for (int p = 0; p < 3; p++)
                 {
-                    solution.phasePowers[phase - 1] += user.getPowerByPhase(user.getCurrentPhase());
+                    dayPhasePowers[d * 3 + (p + shift) % 3] += sign * dayPowers[offset + d * 3 + p];
                 }
             }
         }
-        
-        // 计算不平衡度
-        solution.unbalanceRate = UnbalanceCalculator.calculateUnbalanceRate(
-            solution.phasePowers[0], solution.phasePowers[1], solution.phasePowers[2]
-        );
-        
-        // 计算调整比例
-        solution.changedUsersCount = 0;
-        for(int i = 0; i < users.size(); i++) 
+        else if (problem.currentPhases[index] >= 1)
         {
-            if(solution.moves[i] > 0) 
+            int ownPhase = problem.currentPhases[index] - 1;
+            for (int d = 0; d < dayCount; d++)
             {
-                solution.changedUsersCount++;
+                dayPhasePowers[d * 3 + phase - 1] += sign * dayPowers[offset + d * 3 + ownPhase];
             }
         }
-        solution.changeRatio = (double) solution.changedUsersCount / users.size() * 100;
-        
-        // 计算调相代价
-        solution.adjustmentCost = calculateAdjustmentCost(solution);
-        
-        // 标记为已计算
-        solution.isCalculated = true;
     }
 
-    //计算调相代价
-    private double calculateAdjustmentCost(Solution solution)
+    // 多日不平衡度：各天不平衡度的最大值或平均值，复杂度O(K)
+    private double getMultiDayUnbalanceRate(double[] dayPhasePowers)
     {
-        double totalCost = 0.0;
+        return getMultiDayUnbalanceRate(dayPhasePowers, multiDayObjective);
+    }
 
-        // 如果没有支线组信息，返回0
-        if (branchGroups == null || branchGroups.isEmpty())
+    private double getMultiDayUnbalanceRate(double[] dayPhasePowers, MultiDayObjective objective)
+    {
+        double worst = 0.0;
+        double sum = 0.0;
+        for (int d = 0; d < problem.dayCount; d++)
         {
-            return 0.0;
+            double rate = UnbalanceCalculator.calculateUnbalanceRate(
+                dayPhasePowers[d * 3], dayPhasePowers[d * 3 + 1], dayPhasePowers[d * 3 + 2]
+            );
+            worst = Math.max(worst, rate);
+            sum += rate;
         }
+        return objective == MultiDayObjective.MEAN ? sum / problem.dayCount : worst;
+    }
 
-        // 遍历每个支线组
-        for (Map.Entry<String, List<Integer>> entry : branchGroupUserIndices.entrySet())
+    // 贪心构造时比较解的适应度。按最大值计算多日不平衡度时，单个选择单元的移动通常不改变最差的那一天，
+    // 贪心会很快停滞，因此改用各天的平均不平衡度引导，再由遗传算法按最大值继续优化
+    private double getGreedyFitness(Solution solution)
+    {
+        if (problem.dayCount == 0 || multiDayObjective == MultiDayObjective.MEAN)
         {
-            String routeBranchKey = entry.getKey();
-            List<Integer> userIndices = entry.getValue();
+            return solution.getFitness();
+        }
+        double meanRate = getMultiDayUnbalanceRate(solution.dayPhasePowers, MultiDayObjective.MEAN);
+        return solution.getFitness() + (meanRate - solution.unbalanceRate) * 50;
+    }
+
+    // 判断用户在指定相位和移动次数下是否属于被调整的用户
+    private boolean isUserChanged(int index, byte phase, byte moves)
+    {
+        // 动力用户通过moves判断，普通用户通过相位变化判断
+        return problem.powerUsers.get(index) ? moves > 0 : phase != problem.currentPhases[index];
+    }
 
-            // 检查该支线组是否需要调整
-            boolean needsAdjustment = false;
-            double totalPowerInBranch = 0.0;
+    // 全量重算解的三相电量、调整用户数和调相代价
+    void recalculateSolution(Solution solution)
+    {
+        System.arraycopy(problem.backgroundLoads, 0, solution.phasePowers, 0, 3);
+        Arrays.fill(solution.groupAdjustedPowers, 0.0);
+        solution.changedUsersCount = 0;
+        solution.hash = 0L;
+        if (problem.dayCount > 0)
+        {
+            if (solution.dayPhasePowers == null)
+            {
+                solution.dayPhasePowers = new double[problem.dayCount * 3];
+            }
+            Arrays.fill(solution.dayPhasePowers, 0.0);
+        }
 
-            // 计算支线组中需要调整的用户的总功率
-            for (int userIndex : userIndices)
+        for (int i = 0; i < problem.userCount; i++)
+        {
+            byte phase = solution.phases[i];
+            byte moves = solution.moves[i];
+            accumulateUserPower(solution.phasePowers, i, phase, moves, 1);
+            if (problem.dayCount > 0)
             {
-                User user = users.get(userIndex);
-                byte newPhase = solution.getPhase(userIndex);
+                accumulateDayPowers(solution.dayPhasePowers, i, phase, moves, 1);
+            }
+            solution.hash ^= geneHash(i, phase, moves);
 
-                if (newPhase != user.getCurrentPhase())
-                {
-                    needsAdjustment = true;
-                    totalPowerInBranch += user.getTotalPower();
-                }
+            if (isUserChanged(i, phase, moves))
+            {
+                solution.changedUsersCount++;
             }
 
-            // 如果需要调整，计算该支线组的调整代价
-            if (needsAdjustment)
+            // 支线组中相位发生变化的用户计入该组的调整电量
+            int groupId = problem.groupOfUser[i];
+            if (groupId >= 0 && phase != problem.currentPhases[i])
             {
-                Double branchCost = routeBranchCosts.get(routeBranchKey);
-                if (branchCost != null)
-                {
-                    // 调整代价 = 支线代价系数 * 调整功率占比
-                    double powerRatio = totalPowerInBranch / totalPower;
-                    totalCost += branchCost * powerRatio;
-                }
+                solution.groupAdjustedPowers[groupId] += problem.totalPowers[i];
+            }
+        }
+
+        // 调整代价 = 支线代价系数 * 调整功率占比
+        solution.adjustmentCost = 0.0;
+        for (int groupId = 0; groupId < problem.groupCostRates.length; groupId++)
+        {
+            solution.adjustmentCost += problem.groupCostRates[groupId] * solution.groupAdjustedPowers[groupId] / problem.totalPower;
+        }
+
+        updateDerivedMetrics(solution);
+    }
+
+    // 增量修改单个用户的相位和移动次数，并同步更新解的各项指标
+    void setUserGene(Solution solution, int index, byte newPhase, byte newMoves)
+    {
+        byte oldPhase = solution.phases[index];
+        byte oldMoves = solution.moves[index];
+        if (oldPhase == newPhase && oldMoves == newMoves)
+        {
+            return;
+        }
+
+        // 三相电量：移除旧贡献，加入新贡献
+        accumulateUserPower(solution.phasePowers, index, oldPhase, oldMoves, -1);
+        accumulateUserPower(solution.phasePowers, index, newPhase, newMoves, 1);
+        if (problem.dayCount > 0)
+        {
+            accumulateDayPowers(solution.dayPhasePowers, index, oldPhase, oldMoves, -1);
+            accumulateDayPowers(solution.dayPhasePowers, index, newPhase, newMoves, 1);
+        }
+
+        // 调整用户数
+        boolean wasChanged = isUserChanged(index, oldPhase, oldMoves);
+        boolean isChanged = isUserChanged(index, newPhase, newMoves);
+        if (wasChanged != isChanged)
+        {
+            solution.changedUsersCount += isChanged ? 1 : -1;
+        }
+
+        // 支线组调整电量和调相代价
+        int groupId = problem.groupOfUser[index];
+        if (groupId >= 0)
+        {
+            byte currentPhase = problem.currentPhases[index];
+            boolean wasAdjusted = oldPhase != currentPhase;
+            boolean isAdjusted = newPhase != currentPhase;
+            if (wasAdjusted != isAdjusted)
+            {
+                double delta = isAdjusted ? problem.totalPowers[index] : -problem.totalPowers[index];
+                solution.groupAdjustedPowers[groupId] += delta;
+                solution.adjustmentCost += problem.groupCostRates[groupId] * delta / problem.totalPower;
             }
         }
 
-        return totalCost;
+        // 哈希：异或掉旧基因，异或入新基因
+        solution.hash ^= geneHash(index, oldPhase, oldMoves) ^ geneHash(index, newPhase, newMoves);
+
+        solution.phases[index] = newPhase;
+        solution.moves[index] = newMoves;
+
+        updateDerivedMetrics(solution);
+    }
+
+    // 根据累计值计算不平衡度、调整比例和适应度，时间复杂度O(1)
+    private void updateDerivedMetrics(Solution solution)
+    {
+        // 有多日数据时按各天的三相电量计算
+        solution.unbalanceRate = problem.dayCount > 0
+            ? getMultiDayUnbalanceRate(solution.dayPhasePowers)
+            : UnbalanceCalculator.calculateUnbalanceRate(
+                solution.phasePowers[0], solution.phasePowers[1], solution.phasePowers[2]
+            );
+        solution.changeRatio = (double) solution.changedUsersCount / (problem.userCount + problem.backgroundUserCount) * 100;
+
+        // 统一的适应度计算方式
+        // 不平衡度权重最大，调整用户比例次之，调相代价最小
+        double normalizedAdjustmentCost = (solution.adjustmentCost / problem.totalPower) * 100;
+        solution.fitness = solution.unbalanceRate * 50 +        // 50%权重给不平衡度
+                           solution.changeRatio * 40 +          // 40%权重给调整用户比例
+                           normalizedAdjustmentCost * 10;       // 10%权重给调相代价
+        solution.isCalculated = true;
     }
 
     //---------------------------------计算适应度---------------------------------
-    private void calculateFitness(List<Solution> population) 
+    void calculateFitness(List<Solution> population) 
     {
-        // 计算初始不平衡度
-        double[] initialPhasePowers = new double[3];
-        for (User user : users) 
-        {
-            if (user.isPowerPhase()) 
+        telemetry.add(OptimizerTelemetry.Counter.FITNESS_EVALUATIONS, population.size());
+        boolean logSolutions = BalancerLog.isLoggable(BalancerLog.Level.VERBOSE);
+        
+        // 计算适应度，各个解互不影响，种群较大时并行计算
+        forEachSolution(population, solution -> {
+            // 解中的累计值由增量评估维护，只有未计算过的解才需要全量重算
+            if (!solution.isCalculated) 
             {
-                initialPhasePowers[0] += user.getPhaseAPower();
-                initialPhasePowers[1] += user.getPhaseBPower();
-                initialPhasePowers[2] += user.getPhaseCPower();
+                recalculateSolution(solution);
             }
             else 
             {
-                initialPhasePowers[user.getCurrentPhase() - 1] += user.getPowerByPhase(user.getCurrentPhase());
+                updateDerivedMetrics(solution);
             }
-        }
-        
-        double initialUnbalance = UnbalanceCalculator.calculateUnbalanceRate(
-            initialPhasePowers[0], initialPhasePowers[1], initialPhasePowers[2]
-        );
-        
-        // 计算用户总数
-        int totalUsers = users.size();
-
-        // 计算适应度
-        for (Solution solution : population) 
-        {
-            double normalizedUnbalance = solution.unbalanceRate;  // 不平衡度
-            double normalizedChangeRatio = solution.changeRatio;  // 调整用户比例
-            double normalizedAdjustmentCost = (solution.adjustmentCost / totalPower) * 100;  // 调相代价
-            
-            // 统一的适应度计算方式
-            // 不平衡度权重最大，调整用户比例次之，调相代价最小
-            solution.fitness = normalizedUnbalance * 50 +        // 50%权重给不平衡度
-                              normalizedChangeRatio * 40 +       // 40%权重给调整用户比例
-                              normalizedAdjustmentCost * 10;     // 10%权重给调相代价
             
-            // 记录日志用于调试
-            if (normalizedUnbalance < 10.0 && solution.fitness < 200) 
+            // 记录日志用于调试，每个解都会执行，关闭VERBOSE时不调用日志方法
+            if (logSolutions && solution.unbalanceRate < 10.0 && solution.fitness < 200) 
             {
-                Log.d("PhaseBalancer", String.format(
+                BalancerLog.v("PhaseBalancer",
                     "高质量解 - 不平衡度: %.2f%%, 调整用户比例: %.2f%%, 调相代价: %.2f, 适应度: %.2f",
-                    normalizedUnbalance, normalizedChangeRatio, normalizedAdjustmentCost, solution.fitness
-                ));
+                    solution.unbalanceRate, solution.changeRatio, 
+                    (solution.adjustmentCost / problem.totalPower) * 100, solution.fitness
+                );
             }
+        });
+    }
+
+    //---------------------------------并行评估---------------------------------
+    // 对种群中的每个解执行操作，种群较大且开启并行评估时使用fork-join公共线程池
+    private void forEachSolution(List<Solution> population, Consumer<Solution> action) 
+    {
+        if (parallelEvaluation && population.size() >= PARALLEL_THRESHOLD) 
+        {
+            population.parallelStream().forEach(action);
+        }
+        else 
+        {
+            population.forEach(action);
         }
     }
 
-    // 获取解的唯一标识，用以记录解的重复性
-    private String getSolutionKey(Solution solution)
+    // 对每个序号执行操作，规则同forEachSolution
+    private void forEachIndex(int count, IntConsumer action) 
     {
-        StringBuilder key = new StringBuilder();
-        for (int i = 0; i < solution.phases.length; i++)
+        if (parallelEvaluation && count >= PARALLEL_THRESHOLD) 
         {
-            User user = users.get(i);
-            if (user.isPowerPhase())
-            {
-                if (solution.moves[i] > 0)
-                {
-                    key.append(i).append(':').append("m").append(solution.moves[i]).append(';');
-                }
-            }
-            else if (solution.phases[i] != user.getCurrentPhase())
-            {
-                key.append(i).append(':').append(solution.phases[i]).append(';');
-            }
+            IntStream.range(0, count).parallel().forEach(action);
+        }
+        else 
+        {
+            IntStream.range(0, count).forEach(action);
+        }
+    }
+
+    // 由阶段种子和任务序号派生任务种子（SplitMix64），
+    // 每个任务的随机数流只取决于主随机数生成器和序号，与执行线程和顺序无关
+    private static long splitSeed(long stageSeed, int taskIndex) 
+    {
+        long z = stageSeed + ISLAND_SEED_STRIDE * (taskIndex + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // 单个用户基因的Zobrist哈希值，解的哈希为所有用户基因哈希的异或
+    // 相位和移动次数均为0（新建解的初始状态）时取0，因此新建解的哈希为0
+    private static long geneHash(int index, byte phase, byte moves) 
+    {
+        if (phase == 0 && moves == 0) 
+        {
+            return 0L;
         }
-        return key.toString();
+        return splitSeed(((phase & 0xFFL) << 8) | (moves & 0xFFL), index);
     }
     
 
     //---------------------------------选择出适应度最高的30%，并使用锦标赛选择填充剩余位置---------------------------------
-    private List<Solution> selection(List<Solution> population) 
+    // 选中的解复制到种群池的另一组缓冲区中，不再为每个解分配新对象
+    private List<Solution> selection(List<Solution> population, Random random, PopulationArena arena) 
     {
         try 
         {
-            List<Solution> selected = new ArrayList<>();
+            List<Solution> selected = arena.beginGeneration(population.size());
             
             // 按适应度排序（值越小越好）
-            List<Solution> sortedPopulation = new ArrayList<>(population);
-            Collections.sort(sortedPopulation, (s1, s2) -> Double.compare(s1.getFitness(), s2.getFitness()));
+            List<Solution> sortedPopulation = arena.sortBuffer(population);
+            Collections.sort(sortedPopulation, FITNESS_ORDER);
             
             // 保留最优的30%
             int eliteCount = Math.max(1, population.size() * 3 / 10);
             for (int i = 0; i < eliteCount && i < sortedPopulation.size(); i++) 
             {
-                selected.add(new Solution(sortedPopulation.get(i)));
+                arena.append(sortedPopulation.get(i));
             }
             
             // 使用锦标赛选择填充剩余位置
             while (selected.size() < population.size()) 
             {
-                // 随机选择4个解进行锦标赛
-                List<Solution> tournament = new ArrayList<>();
-                for (int i = 0; i < 4; i++) 
-                {
-                    tournament.add(sortedPopulation.get(
-                        fixedRandom.nextInt(sortedPopulation.size())
-                    ));
-                }
-                
-                // 选择锦标赛中适应度最好的解
-                Solution best = tournament.get(0);
-                for (Solution s : tournament) 
+                // 随机选择4个解进行锦标赛，保留适应度最好的解
+                Solution best = sortedPopulation.get(random.nextInt(sortedPopulation.size()));
+                for (int i = 1; i < 4; i++) 
                 {
+                    Solution s = sortedPopulation.get(random.nextInt(sortedPopulation.size()));
                     if (s.getFitness() < best.getFitness()) 
                     {
                         best = s;
                     }
                 }
                 
-                selected.add(new Solution(best));
+                arena.append(best);
             }
             
-            return selected;
+            return arena.endGeneration();
         } 
         catch (Exception e) 
         {
@@ -965,196 +2172,124 @@ public class PhaseBalancer
     }
     
     //---------------------------------交叉---------------------------------
-    private List<Solution> crossover(List<Solution> selected) 
+    // 选择阶段得到的已经是副本，直接在原位交叉，不再复制父代
+    List<Solution> crossover(List<Solution> selected, Random random) 
     {
-        List<Solution> offspring = new ArrayList<>();
-        
         for (int i = 0; i < selected.size() - 1; i += 2) 
         {
-            Solution parent1 = selected.get(i);
-            Solution parent2 = selected.get(i + 1);
-            
-            if (fixedRandom.nextDouble() < CROSSOVER_RATE) 
+            if (random.nextDouble() < CROSSOVER_RATE) 
             {
-                Solution child1 = new Solution(parent1);
-                Solution child2 = new Solution(parent2);
+                Solution child1 = selected.get(i);
+                Solution child2 = selected.get(i + 1);
                 
                 // 随机选择交叉点
-                int crossPoint = fixedRandom.nextInt(users.size());
-                
-                // 创建已处理的支线组集合
-                Set<String> processedGroups = new HashSet<>();
+                int crossPoint = random.nextInt(problem.userCount);
                 
                 // 首先处理所有支线组
-                for (Map.Entry<String, List<Integer>> entry : branchGroupUserIndices.entrySet()) 
+                for (int groupId = 0; groupId < problem.getGroupCount(); groupId++) 
                 {
-                    String groupKey = entry.getKey();
-                    List<Integer> groupIndices = entry.getValue();
-                    
                     // 计算交叉点后的用户比例
                     int usersAfterCrossPoint = 0;
-                    for (int idx : groupIndices) 
+                    for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++) 
                     {
-                        if (idx >= crossPoint) 
+                        if (problem.groupMembers[k] >= crossPoint) 
                         {
                             usersAfterCrossPoint++;
                         }
                     }
-                    double ratioAfterCrossPoint = (double) usersAfterCrossPoint / groupIndices.size();
+                    double ratioAfterCrossPoint = (double) usersAfterCrossPoint / problem.getGroupSize(groupId);
                     
                     if (ratioAfterCrossPoint >= GROUP_EXCHANGE_THRESHOLD) 
                     {
                         // 如果超过阈值，交换整个组
-                        for (int groupIndex : groupIndices) 
+                        for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++) 
                         {
-                            byte tempPhase = child1.phases[groupIndex];
-                            byte tempMoves = child1.moves[groupIndex];
-                            
-                            child1.phases[groupIndex] = child2.phases[groupIndex];
-                            child1.moves[groupIndex] = child2.moves[groupIndex];
-                            
-                            child2.phases[groupIndex] = tempPhase;
-                            child2.moves[groupIndex] = tempMoves;
+                            swapUserGene(child1, child2, problem.groupMembers[k]);
                         }
                     }
-                    processedGroups.add(groupKey);
                 }
                 
                 // 然后处理交叉点后的非支线组用户
-                for (int j = crossPoint; j < users.size(); j++) 
+                for (int j = crossPoint; j < problem.userCount; j++) 
                 {
-                    // 检查是否为非支线组用户
-                    boolean isGroupUser = false;
-                    for (List<Integer> groupIndices : branchGroupUserIndices.values()) 
-                    {
-                        if (groupIndices.contains(j)) 
-                        {
-                            isGroupUser = true;
-                            break;
-                        }
-                    }
-                    
                     // 只交换非支线组用户
-                    if (!isGroupUser) 
+                    if (problem.groupOfUser[j] < 0) 
                     {
-                        byte tempPhase = child1.phases[j];
-                        byte tempMoves = child1.moves[j];
-                        
-                        child1.phases[j] = child2.phases[j];
-                        child1.moves[j] = child2.moves[j];
-                        
-                        child2.phases[j] = tempPhase;
-                        child2.moves[j] = tempMoves;
+                        swapUserGene(child1, child2, j);
                     }
                 }
                 
                 // 修复解
                 repairSolution(child1);
                 repairSolution(child2);
-                
-                offspring.add(child1);
-                offspring.add(child2);
-            } 
-            else 
-            {
-                offspring.add(new Solution(parent1));
-                offspring.add(new Solution(parent2));
             }
         }
         
-        if (selected.size() % 2 != 0) 
-        {
-            offspring.add(new Solution(selected.get(selected.size() - 1)));
-        }
-        
-        return offspring;
+        return selected;
+    }
+
+    // 交换两个解中同一用户的相位和移动次数
+    private void swapUserGene(Solution first, Solution second, int index)
+    {
+        byte tempPhase = first.phases[index];
+        byte tempMoves = first.moves[index];
+        setUserGene(first, index, second.phases[index], second.moves[index]);
+        setUserGene(second, index, tempPhase, tempMoves);
     }
 
     //---------------------------------变异---------------------------------
-    private void mutation(List<Solution> offspring) 
+    void mutation(List<Solution> offspring, Random random, PopulationArena arena, double mutationRate) 
     {
-        for (Solution solution : offspring) 
-        {
-            if (fixedRandom.nextDouble() < MUTATION_RATE) 
+        // 从主随机数生成器取出本轮的阶段种子，每个解使用由阶段种子和序号派生的独立随机数流，
+        // 因此并行变异的结果与串行执行完全相同
+        long stageSeed = random.nextLong();
+        Random[] taskRandoms = arena.taskRandoms(offspring.size());
+        
+        forEachIndex(offspring.size(), index -> {
+            Random taskRandom = taskRandoms[index];
+            taskRandom.setSeed(splitSeed(stageSeed, index));
+            Solution solution = offspring.get(index);
+            
+            if (taskRandom.nextDouble() < mutationRate) 
             {
-                // 记录每个支线组的相位变化
-                Map<String, Byte> groupPhaseChanges = new HashMap<>();
-                Map<String, Byte> groupMoveChanges = new HashMap<>();
-                
                 // 获取当前已调整的用户数
                 int currentChangedCount = countChangedUsers(solution);
                 double maxChangeRatio = getMaxChangeRatio();
-                int maxAllowedChanges = (int)(users.size() * maxChangeRatio);
+                int maxAllowedChanges = (int)(problem.userCount * maxChangeRatio);
                 
                 // 如果已达到最大调整比例,执行交换式变异
                 if (currentChangedCount >= maxAllowedChanges) 
                 {
-                    performSwapMutation(solution);
+                    performSwapMutation(solution, taskRandom);
                 }
                 else 
                 {
                     // 否则执行普通变异
-                    performNormalMutation(solution, currentChangedCount, maxAllowedChanges);
+                    performNormalMutation(solution, currentChangedCount, maxAllowedChanges, taskRandom);
                 }
                 
                 // 对变异后的解进行局部优化
                 localSearch(solution);
             }
-        }
+        });
     }
 
     //计算当前已经调整的用户数
     private int countChangedUsers(Solution solution)
     {
-        int count = 0;
-        for (int i = 0; i < users.size(); i++)
+        // 调整用户数由增量评估维护
+        if (!solution.isCalculated)
         {
-            User user = users.get(i);
-            if (user.isPowerPhase())
-            {
-                // 动力用户通过moves判断
-                if (solution.moves[i] > 0)
-                {
-                    count++;
-                }
-            }
-            else
-            {
-                // 普通用户通过相位变化判断
-                if (solution.phases[i] != user.getCurrentPhase())
-                {
-                    count++;
-                }
-            }
+            recalculateSolution(solution);
         }
-        return count;
+        return solution.changedUsersCount;
     }
 
     //计算已经修改的用户的比率
-    private double getMaxChangeRatio()
+    double getMaxChangeRatio()
     {
-        // 计算当前三相功率
-        double[] currentPhasePowers = new double[3];
-        for (User user : users)
-        {
-            if (user.isPowerPhase())
-            {
-                currentPhasePowers[0] += user.getPhaseAPower();
-                currentPhasePowers[1] += user.getPhaseBPower();
-                currentPhasePowers[2] += user.getPhaseCPower();
-            }
-            else
-            {
-                currentPhasePowers[user.getCurrentPhase() - 1] += user.getPowerByPhase(user.getCurrentPhase());
-            }
-        }
-        
-        // 使用UnbalanceCalculator计算不平衡度
-        double currentUnbalance = UnbalanceCalculator.calculateUnbalanceRate(
-            currentPhasePowers[0], 
-            currentPhasePowers[1], 
-            currentPhasePowers[2]
-        );
+        // 调整前的不平衡度在构造时已计算
+        double currentUnbalance = initialUnbalanceRate;
         
         if (currentUnbalance <= 15.0) 
         {
@@ -1174,30 +2309,21 @@ public class PhaseBalancer
     }
     
     //交换变异
-    private void performSwapMutation(Solution solution) 
+    private void performSwapMutation(Solution solution, Random random) 
     {
         // 分别获取已调整的普通用户和动力用户
         List<Integer> changedNormalUsers = new ArrayList<>();
         List<Integer> changedPowerUsers = new ArrayList<>();
         
-        for (int i = 0; i < users.size(); i++) 
+        for (int i = 0; i < problem.userCount; i++) 
         {
             // 跳过支线组中的用户
-            boolean isGroupUser = false;
-            for (List<Integer> groupIndices : branchGroupUserIndices.values()) 
-            {
-                if (groupIndices.contains(i)) 
-                {
-                    isGroupUser = true;
-                    break;
-                }
-            }
-            if (isGroupUser) continue;
+            if (problem.groupOfUser[i] >= 0) continue;
             
             // 如果是已调整的用户，根据类型分别加入对应列表
-            if (solution.phases[i] != users.get(i).getCurrentPhase()) 
+            if (solution.phases[i] != problem.currentPhases[i]) 
             {
-                if (users.get(i).isPowerPhase()) 
+                if (problem.isPowerUser(i)) 
                 {
                     changedPowerUsers.add(i);
                 } 
@@ -1209,99 +2335,73 @@ public class PhaseBalancer
         }
         
         // 随机决定是变异普通用户还是动力用户
-        boolean mutatePowerUsers = fixedRandom.nextBoolean();
+        boolean mutatePowerUsers = random.nextBoolean();
         
         if (mutatePowerUsers && changedPowerUsers.size() >= 2) 
         {
             // 变异动力用户
-            int idx1 = fixedRandom.nextInt(changedPowerUsers.size());
+            int idx1 = random.nextInt(changedPowerUsers.size());
             int idx2;
             do 
             {
-                idx2 = fixedRandom.nextInt(changedPowerUsers.size());
+                idx2 = random.nextInt(changedPowerUsers.size());
             } while (idx2 == idx1);
             
             int user1 = changedPowerUsers.get(idx1);
             int user2 = changedPowerUsers.get(idx2);
             
             // 交换相位和移动次数
-            byte tempPhase = solution.phases[user1];
-            byte tempMoves = solution.moves[user1];
-            
-            solution.phases[user1] = solution.phases[user2];
-            solution.moves[user1] = solution.moves[user2];
-            
-            solution.phases[user2] = tempPhase;
-            solution.moves[user2] = tempMoves;
+            swapUsersWithinSolution(solution, user1, user2);
         }
         else if (!mutatePowerUsers && changedNormalUsers.size() >= 2) 
         {
             // 变异普通用户
-            int idx1 = fixedRandom.nextInt(changedNormalUsers.size());
+            int idx1 = random.nextInt(changedNormalUsers.size());
             int idx2;
             do 
             {
-                idx2 = fixedRandom.nextInt(changedNormalUsers.size());
+                idx2 = random.nextInt(changedNormalUsers.size());
             } while (idx2 == idx1);
             
             int user1 = changedNormalUsers.get(idx1);
             int user2 = changedNormalUsers.get(idx2);
             
             // 交换相位和移动次数
-            byte tempPhase = solution.phases[user1];
-            byte tempMoves = solution.moves[user1];
-            
-            solution.phases[user1] = solution.phases[user2];
-            solution.moves[user1] = solution.moves[user2];
-            
-            solution.phases[user2] = tempPhase;
-            solution.moves[user2] = tempMoves;
+            swapUsersWithinSolution(solution, user1, user2);
         }
     }
     
+    // 交换同一个解中两个用户的相位和移动次数
+    private void swapUsersWithinSolution(Solution solution, int user1, int user2)
+    {
+        byte tempPhase = solution.phases[user1];
+        byte tempMoves = solution.moves[user1];
+        setUserGene(solution, user1, solution.phases[user2], solution.moves[user2]);
+        setUserGene(solution, user2, tempPhase, tempMoves);
+    }
+    
     //普通变异
-    private void performNormalMutation(Solution solution, int currentChangedCount, int maxAllowedChanges) 
+    private void performNormalMutation(Solution solution, int currentChangedCount, int maxAllowedChanges, Random random) 
     {
         // 计算还可以调整的用户数
         int remainingChanges = maxAllowedChanges - currentChangedCount;
         if (remainingChanges <= 0) return;
         
-        // 构建变异单元：支线组作为整体和独立用户
-        List<Object> mutationUnits = new ArrayList<>();
-        Set<Integer> branchGroupUserSet = new HashSet<>();
-        
-        // 添加支线组作为整体单元
-        for (Map.Entry<String, List<Integer>> entry : branchGroupUserIndices.entrySet()) 
-        {
-            mutationUnits.add(entry);
-            branchGroupUserSet.addAll(entry.getValue());
-        }
-        
-        // 添加独立用户
-        for (int i = 0; i < users.size(); i++) 
-        {
-            if (!branchGroupUserSet.contains(i)) 
-            {
-                mutationUnits.add(i);
-            }
-        }
-        
-        // 随机选择一个变异单元
-        int selectedIndex = fixedRandom.nextInt(mutationUnits.size());
-        Object selectedUnit = mutationUnits.get(selectedIndex);
+        // 随机选择一个变异单元：支线组作为整体和独立用户
+        int selectedIndex = random.nextInt(problem.selectionUnits.length);
+        int selectedUnit = problem.selectionUnits[selectedIndex];
         
-        if (selectedUnit instanceof Map.Entry) 
+        if (selectedUnit < 0) 
         {
             // 处理支线组
-            @SuppressWarnings("unchecked")
-            Map.Entry<String, List<Integer>> entry = (Map.Entry<String, List<Integer>>) selectedUnit;
-            List<Integer> groupIndices = entry.getValue();
+            int groupId = -(selectedUnit + 1);
             
             // 检查该支线组是否已经被调整
             boolean groupChanged = false;
-            for (int index : groupIndices) 
+            for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++) 
             {
-                if (solution.phases[index] != users.get(index).getCurrentPhase()) 
+                int index = problem.groupMembers[k];
+                if (solution.phases[index] != problem.currentPhases[index]) 
                 {
                     groupChanged = true;
                     break;
@@ -1309,19 +2409,18 @@ public class PhaseBalancer
             }
             
             // 如果支线组未被调整，则进行变异
-            if (!groupChanged && groupIndices.size() <= remainingChanges) 
+            if (!groupChanged && problem.getGroupSize(groupId) <= remainingChanges) 
             {
                 // 随机选择新相位
-                byte newPhase = (byte)(1 + fixedRandom.nextInt(3));
+                byte newPhase = (byte)(1 + random.nextInt(3));
                 
                 // 应用变异到整个支线组
-                for (int index : groupIndices) 
+                for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++) 
                 {
-                    User user = users.get(index);
-                    if (user.getCurrentPhase() != newPhase) 
+                    int index = problem.groupMembers[k];
+                    if (problem.currentPhases[index] != newPhase) 
                     {
-                        solution.phases[index] = newPhase;
-                        solution.moves[index] = 1;
+                        setUserGene(solution, index, newPhase, (byte) 1);
                     }
                 }
             }
@@ -1329,25 +2428,23 @@ public class PhaseBalancer
         else 
         {
             // 处理独立用户
-            int userIndex = (Integer) selectedUnit;
-            User user = users.get(userIndex);
+            int userIndex = selectedUnit;
             
-            if (user.isPowerPhase()) 
+            if (problem.isPowerUser(userIndex)) 
             {
                 // 动力用户只能改变移动次数
                 byte originalMoves = solution.moves[userIndex];
                 byte newMoves = (byte)(originalMoves == 1 ? 2 : 1);
-                solution.moves[userIndex] = newMoves;
+                setUserGene(solution, userIndex, solution.phases[userIndex], newMoves);
             }
             else 
             {
                 // 普通用户尝试其他可能的相位
                 for (byte newPhase = 1; newPhase <= 3; newPhase++) 
                 {
-                    if (newPhase != solution.phases[userIndex] && newPhase != users.get(userIndex).getCurrentPhase()) 
+                    if (newPhase != solution.phases[userIndex] && newPhase != problem.currentPhases[userIndex]) 
                     {
-                        solution.phases[userIndex] = newPhase;
-                        solution.moves[userIndex] = 1;
+                        setUserGene(solution, userIndex, newPhase, (byte) 1);
                         break;
                     }
                 }
@@ -1356,14 +2453,16 @@ public class PhaseBalancer
     }
     
     //---------------------------------修复解---------------------------------
-    private void repairSolution(Solution solution) 
+    void repairSolution(Solution solution) 
     {
         // 检查是否超过最大调整用户数限制
         int changedCount = countChangedUsers(solution);
-        int maxAllowedChanges = (int)(users.size() * getMaxChangeRatio());
+        int maxAllowedChanges = (int)(problem.userCount * getMaxChangeRatio());
         
         if (changedCount > maxAllowedChanges) 
         {
+            telemetry.increment(OptimizerTelemetry.Counter.REPAIRS);
+            
             // 计算当前解的适应度
             calculateFitness(Arrays.asList(solution));
             double baseFitness = solution.getFitness();
@@ -1371,20 +2470,16 @@ public class PhaseBalancer
             // 计算每个改变用户的贡献度（基于适应度）
             List<UserContribution> contributions = new ArrayList<>();
             
-            for (int i = 0; i < users.size(); i++) 
+            for (int i = 0; i < problem.userCount; i++) 
             {
-                if (solution.phases[i] != users.get(i).getCurrentPhase()) 
+                if (solution.phases[i] != problem.currentPhases[i]) 
                 {
                     // 临时保存原始值
                     byte originalPhase = solution.phases[i];
                     byte originalMoves = solution.moves[i];
                     
-                    // 尝试恢复该用户
-                    solution.phases[i] = users.get(i).getCurrentPhase();
-                    solution.moves[i] = 0;
-                    
-                    // 计算恢复后的适应度
-                    calculateFitness(Arrays.asList(solution));
+                    // 尝试恢复该用户，增量计算恢复后的适应度
+                    setUserGene(solution, i, problem.currentPhases[i], (byte) 0);
                     double newFitness = solution.getFitness();
                     
                     // 计算贡献度（适应度的改变量）
@@ -1394,8 +2489,7 @@ public class PhaseBalancer
                     contributions.add(new UserContribution(i, contribution));
                     
                     // 恢复原值，继续评估下一个用户
-                    solution.phases[i] = originalPhase;
-                    solution.moves[i] = originalMoves;
+                    setUserGene(solution, i, originalPhase, originalMoves);
                 }
             }
             
@@ -1406,72 +2500,68 @@ public class PhaseBalancer
             for (int i = 0; i < contributions.size() - maxAllowedChanges; i++) 
             {
                 int userIndex = contributions.get(i).userIndex;
-                solution.phases[userIndex] = users.get(userIndex).getCurrentPhase();
-                solution.moves[userIndex] = 0;
+                setUserGene(solution, userIndex, problem.currentPhases[userIndex], (byte) 0);
             }
-            
-            // 重新计算最终的适应度
-            calculateFitness(Arrays.asList(solution));
         }
     }
 
     //---------------------------------局部搜索---------------------------------
-    private void localSearch(Solution solution) 
+    void localSearch(Solution solution) 
     {
         // 计算当前解的适应度
         calculateFitness(Arrays.asList(solution));
         double currentFitness = solution.getFitness();
         
+        // 临时保存支线组原始值的缓冲区，整个局部搜索过程中复用
+        byte[] groupOriginalPhases = new byte[problem.maxGroupSize];
+        byte[] groupOriginalMoves = new byte[problem.maxGroupSize];
+        
+        int acceptedMoves = 0;
+        int passes = 0;
         boolean improved;
         do 
         {
             improved = false;
             
             // 先处理支线组
-            for (Map.Entry<String, List<Integer>> entry : branchGroupUserIndices.entrySet()) 
+            for (int groupId = 0; groupId < problem.getGroupCount(); groupId++) 
             {
-                List<Integer> groupIndices = entry.getValue();
-                byte originalPhase = solution.phases[groupIndices.get(0)];
+                int first = problem.groupStart[groupId];
+                int groupSize = problem.getGroupSize(groupId);
+                byte originalPhase = solution.phases[problem.groupMembers[first]];
                 
                 // 尝试其他相位
                 for (byte newPhase = 1; newPhase <= 3; newPhase++) 
                 {
                     if (newPhase != originalPhase) 
                     {
-                        // 临时保存原始值
-                        byte[] originalPhases = new byte[groupIndices.size()];
-                        byte[] originalMoves = new byte[groupIndices.size()];
-                        
-                        // 保存原始值并设置新值
-                        for (int i = 0; i < groupIndices.size(); i++) 
+                        // 保存原始值并设置新值，适应度随之增量更新
+                        for (int i = 0; i < groupSize; i++) 
                         {
-                            int userIndex = groupIndices.get(i);
-                            originalPhases[i] = solution.phases[userIndex];
-                            originalMoves[i] = solution.moves[userIndex];
+                            int userIndex = problem.groupMembers[first + i];
+                            groupOriginalPhases[i] = solution.phases[userIndex];
+                            groupOriginalMoves[i] = solution.moves[userIndex];
                             
                             // 设置新相位和moves
-                            solution.phases[userIndex] = newPhase;
-                            solution.moves[userIndex] = (byte)(newPhase != users.get(userIndex).getCurrentPhase() ? 1 : 0);
+                            setUserGene(solution, userIndex, newPhase, 
+                                (byte)(newPhase != problem.currentPhases[userIndex] ? 1 : 0));
                         }
                         
-                        // 重新计算适应度
-                        calculateFitness(Arrays.asList(solution));
                         double newFitness = solution.getFitness();
                         
                         // 如果适应度变好（变小）则接受改变
-                        if (newFitness < currentFitness) 
+                        if (newFitness < currentFitness - LOCAL_SEARCH_MIN_GAIN) 
                         {
                             currentFitness = newFitness;
                             improved = true;
+                            acceptedMoves++;
                         }
                         else 
                         {
                             // 恢复原值
-                            for (int i = 0; i < groupIndices.size(); i++) 
+                            for (int i = 0; i < groupSize; i++) 
                             {
-                                int userIndex = groupIndices.get(i);
-                                solution.phases[userIndex] = originalPhases[i];
-                                solution.moves[userIndex] = originalMoves[i];
+                                setUserGene(solution, problem.groupMembers[first + i], groupOriginalPhases[i], groupOriginalMoves[i]);
                             }
                         }
                     }
@@ -1479,39 +2569,28 @@ public class PhaseBalancer
             }
             
             // 处理独立用户
-            for (int i = 0; i < users.size(); i++) 
+            for (int i = 0; i < problem.userCount; i++) 
             {
                 // 跳过支线组用户
-                boolean isGroupUser = false;
-                for (List<Integer> groupIndices : branchGroupUserIndices.values()) 
-                {
-                    if (groupIndices.contains(i)) 
-                    {
-                        isGroupUser = true;
-                        break;
-                    }
-                }
-                if (isGroupUser) continue;
+                if (problem.groupOfUser[i] >= 0) continue;
                 
-                if (users.get(i).isPowerPhase()) 
+                if (problem.isPowerUser(i)) 
                 {
                     // 动力用户只能改变移动次数
                     byte originalMoves = solution.moves[i];
                     byte newMoves = (byte)(originalMoves == 1 ? 2 : 1);
-                    solution.moves[i] = newMoves;
-                    
-                    // 重新计算适应度
-                    calculateFitness(Arrays.asList(solution));
+                    setUserGene(solution, i, solution.phases[i], newMoves);
                     double newFitness = solution.getFitness();
                     
-                    if (newFitness < currentFitness) 
+                    if (newFitness < currentFitness - LOCAL_SEARCH_MIN_GAIN) 
                     {
                         currentFitness = newFitness;
                         improved = true;
+                        acceptedMoves++;
                     }
                     else 
                     {
-                        solution.moves[i] = originalMoves;
+                        setUserGene(solution, i, solution.phases[i], originalMoves);
                     }
                 }
                 else 
@@ -1522,37 +2601,58 @@ public class PhaseBalancer
                     
                     for (byte newPhase = 1; newPhase <= 3; newPhase++) 
                     {
-                        if (newPhase != originalPhase && newPhase != users.get(i).getCurrentPhase()) 
+                        if (newPhase != originalPhase && newPhase != problem.currentPhases[i]) 
                         {
-                            solution.phases[i] = newPhase;
-                            solution.moves[i] = 1;  // 设置moves为1表示发生改变
-                            
-                            // 重新计算适应度
-                            calculateFitness(Arrays.asList(solution));
+                            // 设置moves为1表示发生改变
+                            setUserGene(solution, i, newPhase, (byte) 1);
                             double newFitness = solution.getFitness();
                             
-                            if (newFitness < currentFitness) 
+                            if (newFitness < currentFitness - LOCAL_SEARCH_MIN_GAIN) 
                             {
                                 currentFitness = newFitness;
                                 improved = true;
+                                acceptedMoves++;
                                 break;
                             }
                             else 
                             {
-                                solution.phases[i] = originalPhase;
-                                solution.moves[i] = originalMoves;
+                                setUserGene(solution, i, originalPhase, originalMoves);
                             }
                         }
                     }
                 }
             }
-        } while (improved);
+            
+            // 每轮结束后全量重算，消除增量累加的浮点误差
+            recalculateSolution(solution);
+            currentFitness = solution.getFitness();
+        } while (improved && ++passes < LOCAL_SEARCH_MAX_PASSES);
+        telemetry.add(OptimizerTelemetry.Counter.LOCAL_SEARCH_MOVES, acceptedMoves);
+    }
+    
+    // 设置多日模式的不平衡度计算方式，需在优化前设置
+    public void setMultiDayObjective(MultiDayObjective objective) 
+    {
+        this.multiDayObjective = objective;
+        
+        // 调整前的不平衡度随计算方式变化
+        Solution originalSolution = new Solution(problem.userCount, problem.getGroupCount());
+        System.arraycopy(problem.currentPhases, 0, originalSolution.phases, 0, problem.userCount);
+        recalculateSolution(originalSolution);
+        this.initialUnbalanceRate = originalSolution.unbalanceRate;
     }
     
     // 控制方法
     public void terminate() 
     {
         isTerminated = true;
+        synchronized (childBalancers) 
+        {
+            for (PhaseBalancer child : childBalancers) 
+            {
+                child.terminate();
+            }
+        }
     }
     
     public void reset() 
@@ -1560,6 +2660,18 @@ public class PhaseBalancer
         isTerminated = false;
     }
     
+    // 优化过程统计，从创建或调用其reset()开始累计，分层求解时包含各子问题的耗时和计数
+    public OptimizerTelemetry getTelemetry() 
+    {
+        return telemetry;
+    }
+    
+    // 设置是否并行评估种群，关闭后结果不变，仅在单线程上执行
+    public void setParallelEvaluation(boolean parallelEvaluation) 
+    {
+        this.parallelEvaluation = parallelEvaluation;
+    }
+    
     // 内部类定义
     public static class Solution 
     {
@@ -1569,17 +2681,26 @@ public class PhaseBalancer
         
         // 存储计算结果
         private double[] phasePowers;     // 三相功率
+        private double[] groupAdjustedPowers;  // 各支线组中已调整用户的总电量
+        private double[] dayPhasePowers;  // 多日模式下各天的三相电量，单日时为null
         private double unbalanceRate;     // 不平衡度
         private int changedUsersCount;    // 调整用户数
         private double changeRatio;       // 调整比例
         private double adjustmentCost;    // 调相代价
+        private long hash;                // 基因的64位Zobrist哈希，随相位和移动次数增量更新
         private boolean isCalculated;     // 是否已计算
         
         public Solution(int size) 
+        {
+            this(size, 0);
+        }
+        
+        public Solution(int size, int groupCount) 
         {
             this.phases = new byte[size];
             this.moves = new byte[size];
             this.phasePowers = new double[3];
+            this.groupAdjustedPowers = new double[groupCount];
             this.isCalculated = false;
         }
         
@@ -1589,10 +2710,41 @@ public class PhaseBalancer
             this.moves = Arrays.copyOf(other.moves, other.moves.length);
             this.fitness = other.fitness;
             this.phasePowers = Arrays.copyOf(other.phasePowers, other.phasePowers.length);
+            this.groupAdjustedPowers = Arrays.copyOf(other.groupAdjustedPowers, other.groupAdjustedPowers.length);
+            this.dayPhasePowers = other.dayPhasePowers == null ? null : Arrays.copyOf(other.dayPhasePowers, other.dayPhasePowers.length);
+            this.unbalanceRate = other.unbalanceRate;
+            this.changedUsersCount = other.changedUsersCount;
+            this.changeRatio = other.changeRatio;
+            this.adjustmentCost = other.adjustmentCost;
+            this.hash = other.hash;
+            this.isCalculated = other.isCalculated;
+        }
+        
+        // 将另一个解的内容复制到当前解，复用已有数组，两个解的用户数和支线组数必须相同
+        public void copyFrom(Solution other) 
+        {
+            System.arraycopy(other.phases, 0, phases, 0, phases.length);
+            System.arraycopy(other.moves, 0, moves, 0, moves.length);
+            System.arraycopy(other.phasePowers, 0, phasePowers, 0, phasePowers.length);
+            System.arraycopy(other.groupAdjustedPowers, 0, groupAdjustedPowers, 0, groupAdjustedPowers.length);
+            if (other.dayPhasePowers == null) 
+            {
+                dayPhasePowers = null;
+            }
+            else if (dayPhasePowers == null || dayPhasePowers.length != other.dayPhasePowers.length) 
+            {
+                dayPhasePowers = Arrays.copyOf(other.dayPhasePowers, other.dayPhasePowers.length);
+            }
+            else 
+            {
+                System.arraycopy(other.dayPhasePowers, 0, dayPhasePowers, 0, dayPhasePowers.length);
+            }
+            this.fitness = other.fitness;
             this.unbalanceRate = other.unbalanceRate;
             this.changedUsersCount = other.changedUsersCount;
             this.changeRatio = other.changeRatio;
             this.adjustmentCost = other.adjustmentCost;
+            this.hash = other.hash;
             this.isCalculated = other.isCalculated;
         }
 
@@ -1632,12 +2784,24 @@ public class PhaseBalancer
             return adjustmentCost;
         }
         
+        // 获取基因哈希，哈希相同的解视为重复解
+        public long getHash() 
+        {
+            return hash;
+        }
+        
         // 获取三相功率
         public double[] getPhasePowers() 
         {
             return Arrays.copyOf(phasePowers, phasePowers.length);
         }
         
+        // 获取多日模式下各天的三相电量，第d天为下标3d到3d+2，单日时返回null
+        public double[] getDayPhasePowers() 
+        {
+            return dayPhasePowers == null ? null : Arrays.copyOf(dayPhasePowers, dayPhasePowers.length);
+        }
+        
         // 重置计算标志
         public void resetCalculation() 
         {
@@ -1651,6 +2815,37 @@ public class PhaseBalancer
         }
     }
     
+    // 岛屿：一个独立进化的子种群及其状态
+    private static class Island 
+    {
+        final Random random;                                  // 岛屿独立的随机数生成器
+        final int populationSize;                             // 种群大小
+        final PopulationArena arena;                          // 岛屿独占的双缓冲种群池
+        int index;                                            // 岛屿序号，用于收敛曲线
+        List<Solution> population;                            // 当前种群
+        Solution bestSolution;                                // 岛屿最优有效解（不平衡度小于15%）
+        Solution generationBest;                              // 最近一代的最优解
+        int generation;                                       // 已完成的代数
+        volatile boolean converged;                           // 是否已长时间没有改进
+        
+        // 自适应控制状态
+        final LongHashSet diversitySet = new LongHashSet(16);  // 统计多样性用的哈希集合
+        double mutationRate = MUTATION_RATE;                  // 当前变异率
+        double diversity = 1.0;                               // 种群中不同解所占比例
+        double bestSeenFitness = Double.POSITIVE_INFINITY;    // 目前为止各代最优解的最小适应度
+        int stagnantGenerations;                              // 最优适应度连续没有改进的代数
+        int lastReinjection;                                  // 上一次重新初始化部分种群的代数
+        double bestFitness = Double.POSITIVE_INFINITY;        // 岛屿最优适应度
+        volatile boolean finished;                            // 是否已找到满足跳出条件的解
+        
+        Island(Random random, int populationSize, BalanceProblem problem) 
+        {
+            this.random = random;
+            this.populationSize = populationSize;
+            this.arena = new PopulationArena(problem.userCount, problem.getGroupCount());
+        }
+    }
+    
     private static class UserContribution implements Comparable<UserContribution> 
     {
         int userIndex;
@@ -0,0 +1,89 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.algorithm.PhaseBalancer.Solution;
+import java.util.*;
+
+/**
+ * 双缓冲种群池
+ * 持有两组预先分配的Solution缓冲区，每一代把选中的个体复制到另一组缓冲区中，
+ * 代与代之间交替使用，进入稳定阶段后不再为种群分配新的数组。
+ * 每个岛屿独占一个池，不需要同步
+ */
+final class PopulationArena
+{
+    private final int userCount;                   // 用户数
+    private final int groupCount;                  // 支线组数
+    private final Solution[][] buffers = new Solution[2][0];  // 两组解缓冲区
+    private final List<ArrayList<Solution>> views = Arrays.asList(new ArrayList<>(), new ArrayList<>());  // 两组缓冲区对应的种群列表
+    private final ArrayList<Solution> sortBuffer = new ArrayList<>();  // 排序用的临时列表
+    private Random[] taskRandoms = new Random[0];  // 每个解的变异随机数生成器
+    private int next;                              // 下一代写入的缓冲区序号
+
+    PopulationArena(int userCount, int groupCount)
+    {
+        this.userCount = userCount;
+        this.groupCount = groupCount;
+    }
+
+    // 开始写入下一代，返回清空后的下一代列表
+    // 下一代列表与当前种群使用不同的缓冲区，因此可以一边读取当前种群一边写入
+    List<Solution> beginGeneration(int size)
+    {
+        Solution[] buffer = buffers[next];
+        if (buffer.length < size)
+        {
+            buffer = Arrays.copyOf(buffer, size);
+            for (int i = buffers[next].length; i < size; i++)
+            {
+                buffer[i] = new Solution(userCount, groupCount);
+            }
+            buffers[next] = buffer;
+        }
+        ArrayList<Solution> view = views.get(next);
+        view.clear();
+        return view;
+    }
+
+    // 将解复制到下一代列表的末尾
+    void append(Solution source)
+    {
+        ArrayList<Solution> view = views.get(next);
+        Solution slot = buffers[next][view.size()];
+        slot.copyFrom(source);
+        view.add(slot);
+    }
+
+    // 下一代写入完成，交换缓冲区
+    List<Solution> endGeneration()
+    {
+        List<Solution> view = views.get(next);
+        next ^= 1;
+        return view;
+    }
+
+    // 复用的排序列表
+    List<Solution> sortBuffer(List<Solution> population)
+    {
+        sortBuffer.clear();
+        for (int i = 0; i < population.size(); i++)
+        {
+            sortBuffer.add(population.get(i));
+        }
+        return sortBuffer;
+    }
+
+    // 获取至少size个可复用的随机数生成器，需在并行变异开始前调用
+    Random[] taskRandoms(int size)
+    {
+        if (taskRandoms.length < size)
+        {
+            int oldLength = taskRandoms.length;
+            taskRandoms = Arrays.copyOf(taskRandoms, size);
+            for (int i = oldLength; i < size; i++)
+            {
+                taskRandoms[i] = new Random();
+            }
+        }
+        return taskRandoms;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.sanxiang.phasebalance.cli;
+
+import com.example.sanxiang.phasebalance.algorithm.BalancerLog;
+import com.example.sanxiang.phasebalance.algorithm.BatchPhaseScheduler;
+import com.example.sanxiang.phasebalance.algorithm.PhaseBalancer;
+import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.phasebalance.model.User;
+import com.example.sanxiang.util.StandardDate;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 命令行调相
+ * 在服务器上不依赖Android运行优化：读取与应用导入格式相同的CSV
+ * （日期,用户编号,用户名称,回路编号,支线编号,相位,A相电量,B相电量,C相电量，首行为标题），
+ * 每个用户取最近一天的数据，最近几天的数据用于多日平衡，按回路并行优化后把调相方案写入CSV。
+ *
+ * 用法：java PhaseBalanceCli 输入CSV 输出CSV [--groups 回路:支线,...] [--days 天数] [--workers 线程数] [--verbose]
+ */
+public class PhaseBalanceCli
+{
+    private static final int DEFAULT_DAY_COUNT = 7;  // 与应用一致，按最近7天平衡
+
+    public static void main(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println("用法：PhaseBalanceCli 输入CSV 输出CSV [--groups 回路:支线,...] [--days 天数] [--workers 线程数] [--verbose]");
+            System.exit(2);
+        }
+
+        List<BranchGroup> branchGroups = new ArrayList<>();
+        int dayCount = DEFAULT_DAY_COUNT;
+        int workerCount = Runtime.getRuntime().availableProcessors();
+        try
+        {
+            for (int i = 2; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case "--groups":
+                        branchGroups = parseBranchGroups(args[++i]);
+                        break;
+                    case "--days":
+                        dayCount = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--workers":
+                        workerCount = Math.max(1, Integer.parseInt(args[++i]));
+                        break;
+                    case "--verbose":
+                        BalancerLog.setLogger((level, tag, message) -> System.err.println(tag + ": " + message),
+                            BalancerLog.Level.DEBUG);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数：" + args[i]);
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("参数错误：" + e.getMessage());
+            System.exit(2);
+        }
+
+        try
+        {
+            List<User> users = readUsers(new File(args[0]), dayCount);
+            if (users.isEmpty())
+            {
+                System.err.println("没有可优化的用户数据");
+                System.exit(1);
+            }
+
+            BatchPhaseScheduler scheduler = new BatchPhaseScheduler(workerCount);
+            BatchPhaseScheduler.BatchReport report = scheduler.run(users, branchGroups, null);
+            writePlan(new File(args[1]), report);
+            System.out.println(report.getSummary());
+            if (report.getCount(BatchPhaseScheduler.RouteStatus.OPTIMIZED) == 0)
+            {
+                System.exit(1);
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("读写文件失败：" + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // 解析支线组参数，如"1:3,2:7"表示回路1支线3和回路2支线7
+    static List<BranchGroup> parseBranchGroups(String value)
+    {
+        List<BranchGroup> groups = new ArrayList<>();
+        for (String item : value.split(","))
+        {
+            String[] parts = item.trim().split(":");
+            if (parts.length != 2 || parts[0].trim().isEmpty() || parts[1].trim().isEmpty())
+            {
+                throw new IllegalArgumentException("支线组格式应为 回路:支线，实际为 " + item);
+            }
+            groups.add(new BranchGroup(parts[0].trim(), parts[1].trim()));
+        }
+        return groups;
+    }
+
+    // 读取用户数据：每个用户按日期降序取最多dayCount天，最近一天作为当前数据，
+    // 有两天以上数据时记录每天的三相电量。格式错误的行跳过
+    static List<User> readUsers(File file, int dayCount) throws IOException
+    {
+        // 用户编号 -> 日期 -> 一行数据，保持用户首次出现的顺序
+        Map<String, TreeMap<String, String[]>> userRows = new LinkedHashMap<>();
+        int lineCount = 0;
+        int skippedCount = 0;
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+        {
+            // 跳过标题行
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                lineCount++;
+                if (line.trim().isEmpty()) continue;
+
+                String[] data = line.split(",");
+                if (data.length < 9 || data[0].trim().isEmpty() || data[1].trim().isEmpty())
+                {
+                    skippedCount++;
+                    continue;
+                }
+                try
+                {
+                    for (int column = 6; column <= 8; column++)
+                    {
+                        Double.parseDouble(data[column].trim());
+                    }
+                }
+                catch (NumberFormatException e)
+                {
+                    skippedCount++;
+                    continue;
+                }
+
+                // 日期统一为yyyy-MM-dd后再排序，避免2024/1/9排在2024/1/10之后
+                String date = StandardDate.standardize(data[0]);
+                if (date == null)
+                {
+                    skippedCount++;
+                    continue;
+                }
+                userRows.computeIfAbsent(data[1].trim(), k -> new TreeMap<>(Collections.reverseOrder()))
+                    .put(date, data);
+            }
+        }
+        if (skippedCount > 0)
+        {
+            System.err.println(String.format("共%d行数据，跳过%d行格式错误的数据", lineCount, skippedCount));
+        }
+
+        List<User> users = new ArrayList<>();
+        for (Map.Entry<String, TreeMap<String, String[]>> entry : userRows.entrySet())
+        {
+            List<String[]> rows = new ArrayList<>(entry.getValue().values());
+            if (rows.size() > dayCount)
+            {
+                rows = rows.subList(0, dayCount);
+            }
+
+            String[] latest = rows.get(0);
+            double phaseA = Double.parseDouble(latest[6].trim());
+            double phaseB = Double.parseDouble(latest[7].trim());
+            double phaseC = Double.parseDouble(latest[8].trim());
+            double totalPower = phaseA + phaseB + phaseC;
+            if (totalPower <= 0) continue;
+
+            // 确定当前相位，三相都有电量的为动力用户，与应用中的判断方式相同
+            byte currentPhase = 0;
+            if (phaseA > 0) currentPhase = 1;
+            else if (phaseB > 0) currentPhase = 2;
+            else if (phaseC > 0) currentPhase = 3;
+            boolean isPowerPhase = phaseA > 0 && phaseB > 0 && phaseC > 0;
+
+            User user = new User(entry.getKey(), latest[2].trim(), latest[3].trim(), latest[4].trim(),
+                totalPower, phaseA, phaseB, phaseC, currentPhase, isPowerPhase);
+            if (rows.size() >= 2)
+            {
+                double[][] dailyPowers = new double[rows.size()][];
+                for (int d = 0; d < rows.size(); d++)
+                {
+                    String[] row = rows.get(d);
+                    dailyPowers[d] = new double[] {
+                        Double.parseDouble(row[6].trim()), Double.parseDouble(row[7].trim()), Double.parseDouble(row[8].trim())
+                    };
+                }
+                user.setDailyPowers(dailyPowers);
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    // 写出调相方案：每个找到有效解的回路中需要调整的用户各占一行，
+    // 动力用户三相整体轮换，只写移动次数
+    static void writePlan(File file, BatchPhaseScheduler.BatchReport report) throws IOException
+    {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))))
+        {
+            writer.println("回路编号,支线编号,用户编号,用户名称,是否动力用户,原相位,新相位,移动次数");
+            for (BatchPhaseScheduler.RouteResult result : report.getRouteResults())
+            {
+                PhaseBalancer.Solution solution = result.getSolution();
+                if (result.getStatus() != BatchPhaseScheduler.RouteStatus.OPTIMIZED || solution == null) continue;
+
+                List<User> users = result.getUsers();
+                for (int i = 0; i < users.size(); i++)
+                {
+                    User user = users.get(i);
+                    byte newPhase = solution.getPhase(i);
+                    byte moves = solution.getMoves(i);
+                    boolean isChanged = user.isPowerPhase() ? moves > 0 : newPhase != user.getCurrentPhase();
+                    if (!isChanged) continue;
+
+                    writer.println(String.join(",",
+                        user.getRouteNumber(), user.getBranchNumber(), user.getUserId(), user.getUserName(),
+                        user.isPowerPhase() ? "是" : "否",
+                        user.isPowerPhase() ? "" : phaseName(user.getCurrentPhase()),
+                        user.isPowerPhase() ? "" : phaseName(newPhase),
+                        String.valueOf(moves)));
+                }
+            }
+        }
+    }
+
+    private static String phaseName(byte phase)
+    {
+        return phase >= 1 && phase <= 3 ? String.valueOf((char) ('A' + phase - 1)) : "";
+    }
+}
@@ -16,6 +16,7 @@ public class User implements Serializable
     private double phaseCPower;  // C相电量
     private byte currentPhase;
     private boolean isPowerPhase;
+    private double[][] dailyPowers;  // 多日三相电量，dailyPowers[d] = {A, B, C}，第0天为最近一天，null表示只有单日数据
     
     public User(String userId, String userName, String routeNumber, String branchNumber,
                 double totalPower, double phaseAPower, double phaseBPower, double phaseCPower,
@@ -84,6 +85,17 @@ public class User implements Serializable
         return isPowerPhase;
     }
     
+    // 设置多日（或多个预测日）的三相电量，第0天为最近一天
+    public void setDailyPowers(double[][] dailyPowers) 
+    {
+        this.dailyPowers = dailyPowers;
+    }
+    
+    public double[][] getDailyPowers() 
+    {
+        return dailyPowers;
+    }
+    
     public double getPowerByPhase(byte phase) 
     {
         switch(phase) 
@@ -26,6 +26,7 @@ import com.example.sanxiang.userdata.model.UserData;
 import com.example.sanxiang.db.DatabaseHelper;
 import com.example.sanxiang.phasebalance.PhaseBalanceActivity;
 import com.example.sanxiang.util.UnbalanceCalculator;
+import com.example.sanxiang.util.CalculationDialogs;
 import com.chaquo.python.PyObject;
 import com.chaquo.python.Python;
 
@@ -445,7 +446,7 @@ public class PredictionActivity extends AppCompatActivity
                             @Override
                             public void onClick(@NonNull View view)
                             {
-                                UnbalanceCalculator.showCalculationProcess(
+                                CalculationDialogs.showCalculationProcess(
                                     PredictionActivity.this,
                                     totalPhaseA, totalPhaseB, totalPhaseC
                                 );
@@ -27,6 +27,7 @@ import com.example.sanxiang.db.DatabaseHelper;
 import com.example.sanxiang.util.UnbalanceCalculator;
 import com.example.sanxiang.util.DateValidator;
 import com.example.sanxiang.util.PowerLossCalculator;
+import com.example.sanxiang.util.CalculationDialogs;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.ArrayList;
@@ -429,7 +430,7 @@ public class UserDataActivity extends AppCompatActivity
                 {
                     try
                     {
-                        UnbalanceCalculator.showCalculationProcess(
+                        CalculationDialogs.showCalculationProcess(
                             UserDataActivity.this,
                             phaseA, phaseB, phaseC
                         );
@@ -467,7 +468,7 @@ public class UserDataActivity extends AppCompatActivity
                 {
                     try
                     {
-                        PowerLossCalculator.showLossCalculationDetails(
+                        CalculationDialogs.showLossCalculationDetails(
                             UserDataActivity.this,
                             phaseA, phaseB, phaseC
                         );
@@ -0,0 +1,31 @@
+package com.example.sanxiang.util;
+
+import android.content.Context;
+import androidx.appcompat.app.AlertDialog;
+
+/**
+ * 计算过程对话框
+ * 计算工具类只负责计算和生成说明文字，不依赖Android，由这里负责显示
+ */
+public class CalculationDialogs
+{
+    // 显示三相不平衡度的计算过程
+    public static void showCalculationProcess(Context context, double phaseA, double phaseB, double phaseC)
+    {
+        new AlertDialog.Builder(context)
+                .setTitle("三相不平衡度计算")
+                .setMessage(UnbalanceCalculator.getCalculationProcess(phaseA, phaseB, phaseC))
+                .setPositiveButton("确定", null)
+                .show();
+    }
+
+    // 显示线路损耗的计算过程
+    public static void showLossCalculationDetails(Context context, double phaseAEnergy, double phaseBEnergy, double phaseCEnergy)
+    {
+        new AlertDialog.Builder(context)
+            .setTitle("电力损耗计算详情")
+            .setMessage(PowerLossCalculator.getLossCalculationDetails(phaseAEnergy, phaseBEnergy, phaseCEnergy))
+            .setPositiveButton("确定", null)
+            .show();
+    }
+}
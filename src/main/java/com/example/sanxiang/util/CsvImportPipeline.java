@@ -0,0 +1,478 @@
+package com.example.sanxiang.util;
+
+import com.example.sanxiang.userdata.model.UserData;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * CSV流水线导入
+ * 读取、校验分组、写入分别在三个线程中进行，之间用有界队列连接：
+ * 读取线程用UserDataCsvReader逐个文件解析，每CHUNK_ROWS行交给校验线程；
+ * 校验线程用StandardDate把日期统一为yyyy-MM-dd，日期无效的行跳过，再按日期和用户分组，
+ * 积累成一批后交给写入线程。按日期排序的文件在日期变化处分批，每个日期只写入一次；
+ * 按用户排序等日期交错的文件一批积累到MAX_BATCH_ROWS行，避免每批都包含所有日期；调用run()的线程作为写入线程，是唯一写数据库的线程。
+ * 队列满时上游线程等待，解析和写入同时进行，内存占用有上限。
+ * 每个阶段只有一个线程，数据的先后顺序与文件一致，后面的文件覆盖前面文件中同一用户同一日期的数据。
+ * 取消后各线程处理完当前的一块或一批就退出，已经写入的日期保留
+ */
+public class CsvImportPipeline
+{
+    private static final int CHUNK_ROWS = 2048;           // 读取线程每次交给校验线程的行数
+    private static final int ROW_QUEUE_CAPACITY = 8;      // 读取和校验之间最多排队的块数
+    private static final int BATCH_QUEUE_CAPACITY = 2;    // 校验和写入之间最多排队的批数
+    private static final int FLUSH_ROWS = 5000;           // 一批达到该行数且各日期的行都连续时，在日期变化处交给写入线程
+    private static final int MAX_BATCH_ROWS = 100000;     // 一批达到该行数后直接交给写入线程
+    private static final int MAX_CACHED_DATES = 10000;    // 日期校验结果最多缓存的个数
+    private static final long POLL_MILLIS = 100;          // 队列等待时检查取消的间隔
+
+    // 队列结束标记，按引用比较
+    private static final List<UserData> END_OF_ROWS = new ArrayList<>();
+    private static final Map<String, Map<String, List<UserData>>> END_OF_BATCHES = new HashMap<>();
+
+    // 一个要导入的文件
+    public interface Source
+    {
+        Reader open() throws IOException;
+    }
+
+    // 把一批按日期和用户分组的数据写入数据库，只在写入线程中调用
+    public interface BatchWriter
+    {
+        void write(Map<String, Map<String, List<UserData>>> batch);
+    }
+
+    // 进度回调，在写入线程中调用
+    public interface ProgressListener
+    {
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * 导入进度，也作为导入结果
+     */
+    public static class Progress
+    {
+        private final int currentFile;
+        private final int fileCount;
+        private final int failedFileCount;
+        private final long rowsRead;
+        private final long rowsSkipped;
+        private final long rowsWritten;
+        private final long elapsedMillis;
+        private final boolean finished;
+        private final boolean cancelled;
+        private final Throwable error;
+
+        Progress(int currentFile, int fileCount, int failedFileCount, long rowsRead, long rowsSkipped,
+                 long rowsWritten, long elapsedMillis, boolean finished, boolean cancelled, Throwable error)
+        {
+            this.currentFile = currentFile;
+            this.fileCount = fileCount;
+            this.failedFileCount = failedFileCount;
+            this.rowsRead = rowsRead;
+            this.rowsSkipped = rowsSkipped;
+            this.rowsWritten = rowsWritten;
+            this.elapsedMillis = elapsedMillis;
+            this.finished = finished;
+            this.cancelled = cancelled;
+            this.error = error;
+        }
+
+        // 正在读取的文件序号，从1开始
+        public int getCurrentFile()
+        {
+            return currentFile;
+        }
+
+        public int getFileCount()
+        {
+            return fileCount;
+        }
+
+        // 打开或读取失败的文件数
+        public int getFailedFileCount()
+        {
+            return failedFileCount;
+        }
+
+        // 已解析的有效行数
+        public long getRowsRead()
+        {
+            return rowsRead;
+        }
+
+        // 格式错误或日期无效而跳过的行数
+        public long getRowsSkipped()
+        {
+            return rowsSkipped;
+        }
+
+        // 已写入数据库的行数
+        public long getRowsWritten()
+        {
+            return rowsWritten;
+        }
+
+        public long getElapsedMillis()
+        {
+            return elapsedMillis;
+        }
+
+        public boolean isFinished()
+        {
+            return finished;
+        }
+
+        public boolean isCancelled()
+        {
+            return cancelled;
+        }
+
+        // 写入或处理过程中的错误，没有错误时为null
+        public Throwable getError()
+        {
+            return error;
+        }
+
+        // 写入速度（行/秒）
+        public double getRowsPerSecond()
+        {
+            return elapsedMillis > 0 ? rowsWritten * 1000.0 / elapsedMillis : 0;
+        }
+
+        public String getSummary()
+        {
+            return String.format("共%d个文件（失败%d个），读取%d行，跳过%d行，写入%d行，用时%.1f秒，%.0f行/秒%s",
+                fileCount, failedFileCount, rowsRead, rowsSkipped, rowsWritten,
+                elapsedMillis / 1000.0, getRowsPerSecond(), cancelled ? "，已取消" : "");
+        }
+    }
+
+    private final List<Source> sources;
+    private final BatchWriter writer;
+    private final BlockingQueue<List<UserData>> rowQueue = new ArrayBlockingQueue<>(ROW_QUEUE_CAPACITY);
+    private final BlockingQueue<Map<String, Map<String, List<UserData>>>> batchQueue =
+        new ArrayBlockingQueue<>(BATCH_QUEUE_CAPACITY);
+
+    private volatile boolean cancelled;
+    private volatile boolean stopped;     // 取消或出错后为true，各线程据此退出
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final AtomicInteger currentFile = new AtomicInteger();
+    private final AtomicInteger failedFileCount = new AtomicInteger();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsSkipped = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private long startNanos;
+
+    public CsvImportPipeline(List<Source> sources, BatchWriter writer)
+    {
+        this.sources = new ArrayList<>(sources);
+        this.writer = writer;
+    }
+
+    // 取消导入，可在任意线程调用
+    public void cancel()
+    {
+        cancelled = true;
+        stopped = true;
+    }
+
+    // 执行导入，当前线程作为写入线程，全部写入、取消或出错后返回，listener可以为null
+    public Progress run(ProgressListener listener)
+    {
+        startNanos = System.nanoTime();
+        Thread readerThread = new Thread(this::readSources, "csv-import-reader");
+        Thread validatorThread = new Thread(this::validateAndGroup, "csv-import-validator");
+        readerThread.start();
+        validatorThread.start();
+
+        try
+        {
+            writeBatches(listener);
+        }
+        catch (Throwable e)
+        {
+            fail(e);
+        }
+        finally
+        {
+            // 写入出错时fail()已设置stopped，上游线程在等待队列时退出
+            joinQuietly(readerThread);
+            joinQuietly(validatorThread);
+        }
+
+        Progress result = snapshot(true);
+        if (listener != null)
+        {
+            listener.onProgress(result);
+        }
+        return result;
+    }
+
+    //-----------------------------------读取线程-----------------------------------
+    private void readSources()
+    {
+        try
+        {
+            for (int i = 0; i < sources.size() && !stopped; i++)
+            {
+                currentFile.set(i + 1);
+                readSource(sources.get(i));
+            }
+        }
+        catch (Throwable e)
+        {
+            fail(e);
+        }
+        finally
+        {
+            offer(rowQueue, END_OF_ROWS);
+        }
+    }
+
+    // 读取一个文件，打开或读取失败时记录失败并继续下一个文件，已读取的行保留
+    private void readSource(Source source)
+    {
+        UserDataCsvReader reader = null;
+        List<UserData> chunk = new ArrayList<>(CHUNK_ROWS);
+        try
+        {
+            reader = new UserDataCsvReader(source.open());
+            UserData userData;
+            while (!stopped && (userData = reader.next()) != null)
+            {
+                chunk.add(userData);
+                if (chunk.size() >= CHUNK_ROWS)
+                {
+                    if (!offer(rowQueue, chunk)) return;
+                    rowsRead.addAndGet(chunk.size());
+                    chunk = new ArrayList<>(CHUNK_ROWS);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            failedFileCount.incrementAndGet();
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                rowsSkipped.addAndGet(reader.getSkippedCount());
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        if (!chunk.isEmpty() && offer(rowQueue, chunk))
+        {
+            rowsRead.addAndGet(chunk.size());
+        }
+    }
+
+    //-----------------------------------校验线程-----------------------------------
+    private void validateAndGroup()
+    {
+        Map<String, String> standardDates = new HashMap<>();  // 原始日期 -> 标准日期，无效日期为""
+        Map<String, Map<String, List<UserData>>> batch = new HashMap<>();
+        int batchRows = 0;
+        String lastDate = null;
+        boolean datesContiguous = true;  // 这一批中每个日期的行是否都连续出现
+
+        try
+        {
+            List<UserData> chunk;
+            while ((chunk = poll(rowQueue)) != null && chunk != END_OF_ROWS)
+            {
+                for (UserData userData : chunk)
+                {
+                    String date = standardizeDate(standardDates, userData.getDate());
+                    if (date == null)
+                    {
+                        rowsSkipped.incrementAndGet();
+                        continue;
+                    }
+                    userData.setDate(date);
+
+                    // 回到这一批中已经出现过的日期，说明文件不是按日期排序的，
+                    // 这时在日期变化处分批会把每个日期拆到很多批中，改为积累到上限再分批
+                    boolean dateChanged = !date.equals(lastDate);
+                    if (dateChanged && batch.containsKey(date))
+                    {
+                        datesContiguous = false;
+                    }
+
+                    // 日期连续且这一批足够大时在日期变化处分批，或者这一批达到上限时交给写入线程
+                    if (batchRows >= MAX_BATCH_ROWS || (datesContiguous && dateChanged && batchRows >= FLUSH_ROWS))
+                    {
+                        if (!offer(batchQueue, batch)) return;
+                        batch = new HashMap<>();
+                        batchRows = 0;
+                        datesContiguous = true;
+                    }
+
+                    batch.computeIfAbsent(date, k -> new HashMap<>())
+                        .computeIfAbsent(userData.getUserId(), k -> new ArrayList<>())
+                        .add(userData);
+                    batchRows++;
+                    lastDate = date;
+                }
+            }
+
+            if (batchRows > 0)
+            {
+                offer(batchQueue, batch);
+            }
+        }
+        catch (Throwable e)
+        {
+            fail(e);
+        }
+        finally
+        {
+            offer(batchQueue, END_OF_BATCHES);
+        }
+    }
+
+    // 用StandardDate校验并统一日期格式，结果按原始字符串缓存，无效时返回null
+    private static String standardizeDate(Map<String, String> standardDates, String date)
+    {
+        String standard = standardDates.get(date);
+        if (standard == null)
+        {
+            if (standardDates.size() >= MAX_CACHED_DATES)
+            {
+                standardDates.clear();
+            }
+            standard = StandardDate.standardize(date);
+            if (standard == null)
+            {
+                standard = "";
+            }
+            standardDates.put(date, standard);
+        }
+        return standard.isEmpty() ? null : standard;
+    }
+
+    //-----------------------------------写入线程-----------------------------------
+    private void writeBatches(ProgressListener listener)
+    {
+        Map<String, Map<String, List<UserData>>> batch;
+        while ((batch = poll(batchQueue)) != null && batch != END_OF_BATCHES)
+        {
+            writer.write(batch);
+
+            int rows = 0;
+            for (Map<String, List<UserData>> users : batch.values())
+            {
+                for (List<UserData> userRows : users.values())
+                {
+                    rows += userRows.size();
+                }
+            }
+            rowsWritten.addAndGet(rows);
+
+            if (listener != null)
+            {
+                listener.onProgress(snapshot(false));
+            }
+        }
+    }
+
+    //-----------------------------------辅助函数-----------------------------------
+    private void fail(Throwable e)
+    {
+        e.printStackTrace();
+        error.compareAndSet(null, e);
+        stopped = true;
+    }
+
+    // 放入队列，队列满时等待，已停止时放弃并返回false。结束标记在停止后也尽量放入
+    private <T> boolean offer(BlockingQueue<T> queue, T item)
+    {
+        boolean isEndMarker = item == END_OF_ROWS || item == END_OF_BATCHES;
+        try
+        {
+            while (!stopped || isEndMarker)
+            {
+                if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    return true;
+                }
+                if (stopped)
+                {
+                    // 下游已经退出，不再等待
+                    return false;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+        return false;
+    }
+
+    // 从队列中取出，队列空时等待，已停止时返回null
+    private <T> T poll(BlockingQueue<T> queue)
+    {
+        try
+        {
+            while (!stopped)
+            {
+                T item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (item != null)
+                {
+                    return item;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+        return null;
+    }
+
+    private static void joinQuietly(Thread thread)
+    {
+        try
+        {
+            thread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Progress snapshot(boolean finished)
+    {
+        return new Progress(
+            currentFile.get(), sources.size(), failedFileCount.get(),
+            rowsRead.get(), rowsSkipped.get(), rowsWritten.get(),
+            (System.nanoTime() - startNanos) / 1_000_000L,
+            finished, cancelled, error.get()
+        );
+    }
+}
@@ -1,8 +1,5 @@
 package com.example.sanxiang.util;
 
-import android.content.Context;
-import androidx.appcompat.app.AlertDialog;
-
 /**
  * 电力损耗计算工具类
  * 用于计算三相电力系统中的线路损耗（以kWh为单位）
@@ -45,13 +42,13 @@ public class PowerLossCalculator
     }
     
     /**
-     * 显示损耗计算过程的详细对话框
-     * @param context 上下文
+     * 损耗计算过程的详细说明，由界面层显示
      * @param phaseAEnergy A相用电量（kWh）
      * @param phaseBEnergy B相用电量（kWh）
      * @param phaseCEnergy C相用电量（kWh）
+     * @return 计算过程说明
      */
-    public static void showLossCalculationDetails(Context context, double phaseAEnergy, double phaseBEnergy, double phaseCEnergy) 
+    public static String getLossCalculationDetails(double phaseAEnergy, double phaseBEnergy, double phaseCEnergy) 
     {
         double totalEnergy = phaseAEnergy + phaseBEnergy + phaseCEnergy;
         
@@ -67,7 +64,7 @@ public class PowerLossCalculator
         double lossCoefficient = powerSquaredSum * AVG_LOAD_HOURS;
         
         // 格式化消息
-        String message = String.format(
+        return String.format(
             "电力损耗计算详情：\n\n" +
             "一、输入数据：\n" +
             "A相：%.2f kWh\n" +
@@ -111,13 +108,6 @@ public class PowerLossCalculator
             powerSquaredSum, lossCoefficient,
             lossCoefficient
         );
-        
-        // 显示对话框
-        new AlertDialog.Builder(context)
-            .setTitle("电力损耗计算详情")
-            .setMessage(message)
-            .setPositiveButton("确定", null)
-            .show();
     }
     
     /**
@@ -1,8 +1,5 @@
 package com.example.sanxiang.util;
 
-import android.content.Context;
-import androidx.appcompat.app.AlertDialog;
-
 public class UnbalanceCalculator 
 {
     //平衡度计算
@@ -30,7 +27,8 @@ public class UnbalanceCalculator
         else return "严重不平衡";
     }
 
-    public static void showCalculationProcess(Context context, double phaseA, double phaseB, double phaseC) 
+    // 不平衡度的计算过程说明，由界面层显示
+    public static String getCalculationProcess(double phaseA, double phaseB, double phaseC) 
     {
         double avgPower = (phaseA + phaseB + phaseC) / 3.0;
         double maxDeviation = Math.max(
@@ -42,7 +40,7 @@ public class UnbalanceCalculator
         );
         double unbalanceRate = avgPower > 0 ? (maxDeviation / avgPower) * 100 : 0;
 
-        String message = String.format(
+        return String.format(
             "三相不平衡度计算过程：\n\n" +
             "1. 计算平均值：\n" +
             "   平均值 = (A相 + B相 + C相) / 3\n" +
@@ -69,11 +67,5 @@ public class UnbalanceCalculator
             maxDeviation, avgPower, unbalanceRate,
             getUnbalanceStatus(unbalanceRate)
         );
-
-        new AlertDialog.Builder(context)
-                .setTitle("三相不平衡度计算")
-                .setMessage(message)
-                .setPositiveButton("确定", null)
-                .show();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,309 @@
+package com.example.sanxiang.util;
+
+import com.example.sanxiang.userdata.model.UserData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 用户电量CSV流式读取
+ * 格式为 日期,用户编号,用户名称,回路编号,支线编号,相位,A相电量,B相电量,C相电量，首行为标题。
+ * 按行读取到复用的字符缓冲区中，按逗号记录各列的位置，电量直接从字符解析，不切分字符串；
+ * 日期、回路、支线、相位这类重复很多的列复用同一个字符串对象。
+ * 内存占用只与最长一行有关，与文件大小无关。
+ * 列数不足、日期或用户编号为空、电量不是数字的行跳过并计数
+ */
+public class UserDataCsvReader implements Closeable
+{
+    private static final int COLUMN_COUNT = 9;       // 需要的列数
+    private static final int MAX_COLUMNS = 64;       // 记录位置的最多列数，多余的列忽略
+    private static final int STRING_CACHE_SIZE = 4096;  // 重复字符串缓存的槽数，必须是2的幂
+
+    // 10的0到15次幂，都能用double精确表示
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final Reader reader;
+    private final char[] buffer = new char[16 * 1024];
+    private int bufferPos;
+    private int bufferEnd;
+
+    private char[] line = new char[256];
+    private int lineLength;
+    private final int[] columnStart = new int[MAX_COLUMNS];
+    private final int[] columnEnd = new int[MAX_COLUMNS];
+    private int columnCount;
+    private final String[] stringCache = new String[STRING_CACHE_SIZE];
+
+    private boolean headerSkipped;
+    private int lineNumber;     // 已读取的数据行数，不含标题行
+    private int skippedCount;   // 格式错误而跳过的行数
+
+    public UserDataCsvReader(Reader reader)
+    {
+        this.reader = reader;
+    }
+
+    // 读取下一行有效数据，文件结束时返回null
+    public UserData next() throws IOException
+    {
+        if (!headerSkipped)
+        {
+            headerSkipped = true;
+            if (!readLine()) return null;
+        }
+
+        while (readLine())
+        {
+            lineNumber++;
+            if (isBlankLine()) continue;
+
+            splitColumns();
+            UserData userData = parseRow();
+            if (userData != null)
+            {
+                return userData;
+            }
+            skippedCount++;
+        }
+        return null;
+    }
+
+    public int getLineNumber()
+    {
+        return lineNumber;
+    }
+
+    public int getSkippedCount()
+    {
+        return skippedCount;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    // 把下一行读入line，不含换行符，文件结束时返回false
+    private boolean readLine() throws IOException
+    {
+        lineLength = 0;
+        boolean readAny = false;
+        while (true)
+        {
+            if (bufferPos >= bufferEnd)
+            {
+                bufferEnd = reader.read(buffer, 0, buffer.length);
+                bufferPos = 0;
+                if (bufferEnd <= 0)
+                {
+                    bufferEnd = 0;
+                    return readAny;
+                }
+            }
+            readAny = true;
+
+            // 在缓冲区中找换行符，找到前的字符整段复制
+            int start = bufferPos;
+            while (bufferPos < bufferEnd && buffer[bufferPos] != '\n')
+            {
+                bufferPos++;
+            }
+            appendToLine(start, bufferPos);
+            if (bufferPos < bufferEnd)
+            {
+                bufferPos++;  // 跳过换行符
+                return true;
+            }
+        }
+    }
+
+    private void appendToLine(int start, int end)
+    {
+        int count = end - start;
+        if (count == 0) return;
+        if (lineLength + count > line.length)
+        {
+            char[] larger = new char[Math.max(line.length * 2, lineLength + count)];
+            System.arraycopy(line, 0, larger, 0, lineLength);
+            line = larger;
+        }
+        System.arraycopy(buffer, start, line, lineLength, count);
+        lineLength += count;
+    }
+
+    private boolean isBlankLine()
+    {
+        for (int i = 0; i < lineLength; i++)
+        {
+            if (line[i] > ' ') return false;
+        }
+        return true;
+    }
+
+    // 记录各列去掉首尾空白后的位置
+    private void splitColumns()
+    {
+        columnCount = 0;
+        int start = 0;
+        for (int i = 0; i <= lineLength && columnCount < MAX_COLUMNS; i++)
+        {
+            if (i == lineLength || line[i] == ',')
+            {
+                int s = start;
+                int e = i;
+                while (s < e && line[s] <= ' ') s++;
+                while (e > s && line[e - 1] <= ' ') e--;
+                columnStart[columnCount] = s;
+                columnEnd[columnCount] = e;
+                columnCount++;
+                start = i + 1;
+            }
+        }
+    }
+
+    // 解析当前行，格式错误时返回null
+    private UserData parseRow()
+    {
+        if (columnCount < COLUMN_COUNT || isEmpty(0) || isEmpty(1))
+        {
+            return null;
+        }
+
+        double phaseA = parseNumber(6);
+        double phaseB = parseNumber(7);
+        double phaseC = parseNumber(8);
+        if (Double.isNaN(phaseA) || Double.isNaN(phaseB) || Double.isNaN(phaseC))
+        {
+            return null;
+        }
+
+        UserData userData = new UserData();
+        userData.setDate(cachedString(0));
+        userData.setUserId(newString(1));
+        userData.setUserName(newString(2));
+        userData.setRouteNumber(cachedString(3));
+        userData.setBranchNumber(cachedString(4));
+        userData.setPhase(cachedString(5));
+        userData.setPhaseAPower(phaseA);
+        userData.setPhaseBPower(phaseB);
+        userData.setPhaseCPower(phaseC);
+        return userData;
+    }
+
+    private boolean isEmpty(int column)
+    {
+        return columnStart[column] == columnEnd[column];
+    }
+
+    private String newString(int column)
+    {
+        return new String(line, columnStart[column], columnEnd[column] - columnStart[column]);
+    }
+
+    // 取列的字符串，内容相同的列复用缓存中的对象
+    private String cachedString(int column)
+    {
+        int start = columnStart[column];
+        int length = columnEnd[column] - start;
+        int hash = 0;
+        for (int i = start; i < start + length; i++)
+        {
+            hash = 31 * hash + line[i];
+        }
+
+        int slot = (hash ^ (hash >>> 16)) & (STRING_CACHE_SIZE - 1);
+        String cached = stringCache[slot];
+        if (cached != null && cached.length() == length && matches(cached, start))
+        {
+            return cached;
+        }
+        String value = new String(line, start, length);
+        stringCache[slot] = value;
+        return value;
+    }
+
+    private boolean matches(String value, int start)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (value.charAt(i) != line[start + i]) return false;
+        }
+        return true;
+    }
+
+    // 解析电量，格式错误时返回NaN
+    // 十进制小数且有效数字不超过15位时直接计算（整数除以10的幂，结果与Double.parseDouble相同），
+    // 其他写法（指数、过长的数字等）交给Double.parseDouble
+    private double parseNumber(int column)
+    {
+        int start = columnStart[column];
+        int end = columnEnd[column];
+        if (start == end) return Double.NaN;
+
+        int i = start;
+        boolean negative = false;
+        if (line[i] == '-' || line[i] == '+')
+        {
+            negative = line[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        for (; i < end; i++)
+        {
+            char c = line[i];
+            if (c >= '0' && c <= '9')
+            {
+                if (mantissa == 0 && c == '0' && !seenPoint)
+                {
+                    continue;  // 整数部分的前导零
+                }
+                if (++digits > 15) return parseNumberSlow(start, end);
+                mantissa = mantissa * 10 + (c - '0');
+                if (seenPoint) fractionDigits++;
+            }
+            else if (c == '.' && !seenPoint)
+            {
+                seenPoint = true;
+            }
+            else
+            {
+                return parseNumberSlow(start, end);
+            }
+        }
+
+        // 至少要有一位数字
+        if (digits == 0 && !hasDigit(start, end)) return Double.NaN;
+
+        double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private boolean hasDigit(int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (line[i] >= '0' && line[i] <= '9') return true;
+        }
+        return false;
+    }
+
+    private double parseNumberSlow(int start, int end)
+    {
+        try
+        {
+            return Double.parseDouble(new String(line, start, end - start));
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+}
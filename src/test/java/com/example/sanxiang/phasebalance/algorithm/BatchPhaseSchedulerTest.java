@@ -0,0 +1,32 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.User;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 批量调相的取消
+ */
+public class BatchPhaseSchedulerTest
+{
+    @Test
+    public void cancelBeforeRunCancelsAllRoutes()
+    {
+        List<User> users = TestFeeders.users(60, 0.1, 31L);
+        BatchPhaseScheduler scheduler = new BatchPhaseScheduler(2);
+        scheduler.cancel();
+        BatchPhaseScheduler.BatchReport report = scheduler.run(users, TestFeeders.branchGroups(), null);
+
+        assertEquals(TestFeeders.ROUTE_COUNT, report.getRouteResults().size());
+        assertEquals(TestFeeders.ROUTE_COUNT, report.getCount(BatchPhaseScheduler.RouteStatus.CANCELLED));
+
+        // 清除取消标志后可以正常运行
+        scheduler.reset();
+        report = scheduler.run(users, TestFeeders.branchGroups(), null);
+        assertEquals(0, report.getCount(BatchPhaseScheduler.RouteStatus.CANCELLED));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 分支定界的结果与穷举所有分配方式得到的最优适应度相同
+ */
+public class BranchAndBoundSolverTest
+{
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    public void matchesBruteForceOnSmallFeeders()
+    {
+        for (int userCount = 4; userCount <= 12; userCount += 4)
+        {
+            for (long seed = 1; seed <= 3; seed++)
+            {
+                BalanceProblem problem = new BalanceProblem(TestFeeders.users(userCount, 0.2, seed), TestFeeders.branchGroups());
+                assertMatchesBruteForce(problem, userCount);
+                assertMatchesBruteForce(problem, userCount / 4);
+            }
+        }
+    }
+
+    @Test
+    public void matchesBruteForceWithBackgroundLoads()
+    {
+        BalanceProblem parent = new BalanceProblem(TestFeeders.users(10, 0.2, 13L), TestFeeders.branchGroups());
+        int[] userIndices = new int[parent.userCount];
+        for (int i = 0; i < userIndices.length; i++)
+        {
+            userIndices[i] = i;
+        }
+
+        double[][] backgrounds = { { 120.0, 40.0, 60.0 }, { 10.0, 90.0, 30.0 }, { 0.0, 0.0, 75.0 }, { 400.0, 0.0, 0.0 } };
+        for (double[] background : backgrounds)
+        {
+            BalanceProblem problem = parent.subProblem(userIndices, background, 30);
+            for (int maxChanges = 2; maxChanges <= problem.userCount; maxChanges += 4)
+            {
+                assertMatchesBruteForce(problem, maxChanges);
+            }
+        }
+    }
+
+    // 求解器的最优值和最优分配都应与穷举结果一致
+    static void assertMatchesBruteForce(BalanceProblem problem, int maxChanges)
+    {
+        PhaseBalancer balancer = new PhaseBalancer(problem);
+        BranchAndBoundSolver solver = new BranchAndBoundSolver(problem, maxChanges, Long.MAX_VALUE);
+        assertTrue(solver.solve());
+
+        PhaseBalancer.Solution solution = new PhaseBalancer.Solution(problem.userCount, problem.getGroupCount());
+        byte[] phases = new byte[problem.userCount];
+        byte[] moves = new byte[problem.userCount];
+        solver.fillBestAssignment(phases, moves);
+        setGenes(balancer, solution, phases, moves);
+        assertTrue(countChanges(problem, phases, moves) <= maxChanges);
+
+        double expected = bruteForce(problem, balancer, maxChanges, 0, phases, moves);
+        assertEquals(expected, solver.getBestValue(), TOLERANCE);
+        assertEquals(expected, solution.getFitness(), TOLERANCE);
+    }
+
+    // 按决策单元穷举：支线组整体保持不变或调到同一相位，独立普通用户选择相位，独立动力用户选择移动次数
+    private static double bruteForce(BalanceProblem problem, PhaseBalancer balancer, int maxChanges,
+                                     int unit, byte[] phases, byte[] moves)
+    {
+        int groupCount = problem.getGroupCount();
+        if (unit == groupCount + problem.userCount)
+        {
+            if (countChanges(problem, phases, moves) > maxChanges)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+            PhaseBalancer.Solution solution = new PhaseBalancer.Solution(problem.userCount, groupCount);
+            setGenes(balancer, solution, phases, moves);
+            return solution.getFitness();
+        }
+
+        double best = Double.POSITIVE_INFINITY;
+        if (unit < groupCount)
+        {
+            for (byte value = 0; value <= 3; value++)
+            {
+                for (int i = 0; i < problem.userCount; i++)
+                {
+                    if (problem.groupOfUser[i] == unit)
+                    {
+                        byte current = problem.currentPhases[i];
+                        phases[i] = value == 0 ? current : value;
+                        moves[i] = (byte) (value != 0 && value != current ? 1 : 0);
+                    }
+                }
+                best = Math.min(best, bruteForce(problem, balancer, maxChanges, unit + 1, phases, moves));
+            }
+            return best;
+        }
+
+        int index = unit - groupCount;
+        if (problem.groupOfUser[index] >= 0)
+        {
+            return bruteForce(problem, balancer, maxChanges, unit + 1, phases, moves);
+        }
+        byte current = problem.currentPhases[index];
+        for (byte value = 0; value < 3; value++)
+        {
+            if (problem.isPowerUser(index))
+            {
+                phases[index] = current;
+                moves[index] = value;
+            }
+            else
+            {
+                phases[index] = (byte) (value + 1);
+                moves[index] = (byte) (value + 1 != current ? 1 : 0);
+            }
+            best = Math.min(best, bruteForce(problem, balancer, maxChanges, unit + 1, phases, moves));
+        }
+        return best;
+    }
+
+    private static void setGenes(PhaseBalancer balancer, PhaseBalancer.Solution solution, byte[] phases, byte[] moves)
+    {
+        for (int i = 0; i < phases.length; i++)
+        {
+            balancer.setUserGene(solution, i, phases[i], moves[i]);
+        }
+        balancer.recalculateSolution(solution);
+    }
+
+    private static int countChanges(BalanceProblem problem, byte[] phases, byte[] moves)
+    {
+        int changes = 0;
+        for (int i = 0; i < phases.length; i++)
+        {
+            boolean changed = problem.isPowerUser(i) ? moves[i] > 0 : phases[i] != problem.currentPhases[i];
+            if (changed)
+            {
+                changes++;
+            }
+        }
+        return changes;
+    }
+}
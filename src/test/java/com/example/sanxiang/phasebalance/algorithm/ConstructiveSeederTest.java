@@ -0,0 +1,161 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 构造式初始解保持支线组整体同相、不超过最大调整用户数，
+ * 并在随机初始化找不到有效解的偏载台区上直接得到有效解
+ */
+public class ConstructiveSeederTest
+{
+    private static final int LARGE_USER_COUNT = 40;
+    private static final double LARGE_USER_POWER = 50.0;
+
+    @Test
+    public void unitPhasesStayWithinChangeLimit()
+    {
+        for (BalanceProblem problem : problems())
+        {
+            PhaseBalancer balancer = new PhaseBalancer(problem);
+            int maxChanges = (int) (problem.userCount * balancer.getMaxChangeRatio());
+            ConstructiveSeeder seeder = new ConstructiveSeeder(problem, maxChanges);
+            assertTrue(countUnitChanges(problem, seeder.largestFirst()) <= maxChanges);
+            assertTrue(countUnitChanges(problem, seeder.karmarkarKarp()) <= maxChanges);
+        }
+    }
+
+    @Test
+    public void seedsKeepGroupsTogetherWithinChangeLimit()
+    {
+        for (BalanceProblem problem : problems())
+        {
+            PhaseBalancer balancer = new PhaseBalancer(problem);
+            int maxChanges = (int) (problem.userCount * balancer.getMaxChangeRatio());
+            List<PhaseBalancer.Solution> seeds = balancer.getConstructiveSeeds();
+            assertEquals(3, seeds.size());
+            for (PhaseBalancer.Solution seed : seeds)
+            {
+                assertGroupsOnOnePhase(problem, seed);
+                assertTrue(countChanges(problem, seed) <= maxChanges);
+            }
+        }
+    }
+
+    @Test
+    public void seedsAreValidWhereRandomInitializationFails()
+    {
+        BalanceProblem problem = new BalanceProblem(skewedUsers(400, 5L), TestFeeders.branchGroups());
+        PhaseBalancer balancer = new PhaseBalancer(problem);
+
+        // 随机初始化只调整随机选出的一部分用户，偏载台区上一个有效解都得不到
+        assertNull(balancer.initializePopulation(100, new Random(9L), false));
+
+        for (PhaseBalancer.Solution seed : balancer.getConstructiveSeeds())
+        {
+            assertTrue(seed.getUnbalanceRate() < 15.0);
+        }
+    }
+
+    private static List<BalanceProblem> problems()
+    {
+        List<BalanceProblem> problems = new ArrayList<>();
+        for (long seed = 1; seed <= 3; seed++)
+        {
+            problems.add(new BalanceProblem(TestFeeders.users(200, 0.2, seed), TestFeeders.branchGroups()));
+        }
+        problems.add(new BalanceProblem(skewedUsers(400, 5L), TestFeeders.branchGroups()));
+        return problems;
+    }
+
+    // 偏载台区：少数大电量用户全部接在A相，其余小电量用户三相均匀分布，
+    // 必须把大部分大电量用户调到B、C相才能平衡
+    private static List<User> skewedUsers(int userCount, long seed)
+    {
+        Random random = new Random(seed);
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++)
+        {
+            String routeNumber = String.valueOf(1 + random.nextInt(TestFeeders.ROUTE_COUNT));
+            String branchNumber = String.valueOf(1 + random.nextInt(TestFeeders.BRANCHES_PER_ROUTE));
+            double[] powers = new double[3];
+            int phase = i < LARGE_USER_COUNT ? 0 : i % 3;
+            powers[phase] = i < LARGE_USER_COUNT ? LARGE_USER_POWER : 1.0;
+            users.add(new User("U" + i, "用户" + i, routeNumber, branchNumber,
+                powers[phase], powers[0], powers[1], powers[2], (byte) (phase + 1), false));
+        }
+        return users;
+    }
+
+    // 支线组整体调整：要么所有用户都保持当前相位，要么所有用户调到同一相位
+    private static void assertGroupsOnOnePhase(BalanceProblem problem, PhaseBalancer.Solution solution)
+    {
+        for (int group = 0; group < problem.getGroupCount(); group++)
+        {
+            boolean unchanged = true;
+            boolean samePhase = true;
+            byte firstPhase = solution.getPhase(problem.groupMembers[problem.groupStart[group]]);
+            for (int k = problem.groupStart[group]; k < problem.groupStart[group + 1]; k++)
+            {
+                int index = problem.groupMembers[k];
+                unchanged &= solution.getPhase(index) == problem.currentPhases[index] && solution.getMoves(index) == 0;
+                samePhase &= solution.getPhase(index) == firstPhase;
+            }
+            assertTrue(unchanged || samePhase);
+        }
+    }
+
+    private static int countChanges(BalanceProblem problem, PhaseBalancer.Solution solution)
+    {
+        int changes = 0;
+        for (int i = 0; i < problem.userCount; i++)
+        {
+            boolean changed = problem.isPowerUser(i) ? solution.getMoves(i) > 0 : solution.getPhase(i) != problem.currentPhases[i];
+            if (changed)
+            {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    // 把各选择单元调到目标相位时需要调整的用户数
+    private static int countUnitChanges(BalanceProblem problem, byte[] unitPhases)
+    {
+        int changes = 0;
+        for (int u = 0; u < unitPhases.length; u++)
+        {
+            byte phase = unitPhases[u];
+            if (phase == 0)
+            {
+                continue;
+            }
+            int unit = problem.selectionUnits[u];
+            if (unit < 0)
+            {
+                int groupId = -(unit + 1);
+                for (int k = problem.groupStart[groupId]; k < problem.groupStart[groupId + 1]; k++)
+                {
+                    if (problem.currentPhases[problem.groupMembers[k]] != phase)
+                    {
+                        changes++;
+                    }
+                }
+            }
+            else if (problem.currentPhases[unit] != phase)
+            {
+                changes++;
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.User;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 增量评估与全量重算的一致性
+ */
+public class DeltaEvaluationTest
+{
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    public void randomMovesMatchRecalculation()
+    {
+        List<User> users = TestFeeders.users(120, 0.2, 7L);
+        PhaseBalancer balancer = new PhaseBalancer(users, TestFeeders.branchGroups());
+        Random random = new Random(11L);
+        PhaseBalancer.Solution solution = balancer.initializePopulation(1, random).get(0);
+
+        for (int step = 1; step <= 5000; step++)
+        {
+            int index = random.nextInt(users.size());
+            if (users.get(index).isPowerPhase())
+            {
+                balancer.setUserGene(solution, index, solution.getPhase(index), (byte) random.nextInt(3));
+            }
+            else
+            {
+                balancer.setUserGene(solution, index, (byte) (1 + random.nextInt(3)), (byte) 1);
+            }
+
+            if (step % 100 == 0)
+            {
+                assertMatchesRecalculation(balancer, solution);
+            }
+        }
+    }
+
+    @Test
+    public void localSearchKeepsSumsConsistent()
+    {
+        List<User> users = TestFeeders.users(150, 0.2, 3L);
+        PhaseBalancer balancer = new PhaseBalancer(users, TestFeeders.branchGroups());
+        List<PhaseBalancer.Solution> population = balancer.initializePopulation(10, new Random(5L));
+
+        for (PhaseBalancer.Solution solution : population)
+        {
+            double before = solution.getFitness();
+            balancer.localSearch(solution);
+            assertMatchesRecalculation(balancer, solution);
+            assertTrue(solution.getFitness() <= before + TOLERANCE);
+        }
+    }
+
+    // 增量维护的累计值必须与同一组基因全量重算的结果相同
+    private static void assertMatchesRecalculation(PhaseBalancer balancer, PhaseBalancer.Solution solution)
+    {
+        PhaseBalancer.Solution expected = new PhaseBalancer.Solution(solution);
+        balancer.recalculateSolution(expected);
+
+        assertArrayEquals(expected.getPhasePowers(), solution.getPhasePowers(), TOLERANCE);
+        assertEquals(expected.getUnbalanceRate(), solution.getUnbalanceRate(), TOLERANCE);
+        assertEquals(expected.getChangeRatio(), solution.getChangeRatio(), TOLERANCE);
+        assertEquals(expected.getAdjustmentCost(), solution.getAdjustmentCost(), TOLERANCE);
+        assertEquals(expected.getFitness(), solution.getFitness(), TOLERANCE);
+        assertEquals(expected.getHash(), solution.getHash());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 限时的分层求解在时间预算内结束，返回有效的全网解，并在每个子问题完成时报告进度
+ */
+public class HierarchicalBudgetTest
+{
+    private static final long TIME_BUDGET_MS = 150;
+    private static final long FINISH_MARGIN_MS = 2000;  // 截止后合并、修复和局部搜索允许的时间
+    private static final double TOLERANCE = 1e-6;
+
+    // 两万个用户不限时的分层求解明显超过150毫秒，各子问题会在截止时间处停止
+    @Test(timeout = 120000)
+    public void shortBudgetReturnsBestValidSolution()
+    {
+        List<User> users = TestFeeders.users(20000, 0.1, 17L);
+        PhaseBalancer balancer = new PhaseBalancer(users, TestFeeders.branchGroups());
+        List<PhaseBalancer.Solution> reports = new ArrayList<>();
+        List<Integer> finishedCounts = new ArrayList<>();
+        Thread caller = Thread.currentThread();
+
+        long start = System.nanoTime();
+        PhaseBalancer.Solution solution = balancer.optimizeHierarchical(TIME_BUDGET_MS, 5,
+            (bestSolution, finishedCount, unbalanceRate, changeRatio) -> {
+                assertTrue(Thread.currentThread() == caller);
+                assertEquals(bestSolution.getUnbalanceRate(), unbalanceRate, TOLERANCE);
+                reports.add(bestSolution);
+                finishedCounts.add(finishedCount);
+            });
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        assertTrue(elapsedMillis < TIME_BUDGET_MS + FINISH_MARGIN_MS);
+        assertNotNull(solution);
+        assertTrue(solution.getUnbalanceRate() < 15.0);
+
+        // 每个子问题完成时报告一次，报告的快照与全量重算一致
+        assertFalse(reports.isEmpty());
+        for (int i = 0; i < finishedCounts.size(); i++)
+        {
+            assertEquals(i + 1, (int) finishedCounts.get(i));
+            PhaseBalancer.Solution expected = new PhaseBalancer.Solution(reports.get(i));
+            balancer.recalculateSolution(expected);
+            assertEquals(expected.getFitness(), reports.get(i).getFitness(), TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.User;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 岛屿模型的可复现性：相同的种子和岛屿数量得到相同的结果
+ */
+public class IslandModelTest
+{
+    // 超过分支定界的用户数上限，保证走遗传算法
+    private static final int USER_COUNT = 400;
+
+    @Test
+    public void sameSeedGivesSameSolution()
+    {
+        List<User> users = TestFeeders.users(USER_COUNT, 0.1, 17L);
+        PhaseBalancer.Solution first = new PhaseBalancer(users, TestFeeders.branchGroups()).optimizeIslands(4, 20, 42L);
+        PhaseBalancer.Solution second = new PhaseBalancer(users, TestFeeders.branchGroups()).optimizeIslands(4, 20, 42L);
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(first.getFitness(), second.getFitness(), 0.0);
+        for (int i = 0; i < USER_COUNT; i++)
+        {
+            assertEquals(first.getPhase(i), second.getPhase(i));
+            assertEquals(first.getMoves(i), second.getMoves(i));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.User;
+import com.example.sanxiang.util.UnbalanceCalculator;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多日模式下各天三相电量的增量维护与全量重算一致，不平衡度按各天的最大值或平均值合并
+ */
+public class MultiDayEvaluationTest
+{
+    private static final int DAY_COUNT = 5;
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    public void randomMovesMatchRecalculation()
+    {
+        for (PhaseBalancer.MultiDayObjective objective : PhaseBalancer.MultiDayObjective.values())
+        {
+            List<User> users = multiDayUsers(120, 7L);
+            BalanceProblem problem = new BalanceProblem(users, TestFeeders.branchGroups());
+            assertEquals(DAY_COUNT, problem.dayCount);
+
+            PhaseBalancer balancer = new PhaseBalancer(problem);
+            balancer.setMultiDayObjective(objective);
+            Random random = new Random(11L);
+            PhaseBalancer.Solution solution = balancer.initializePopulation(1, random).get(0);
+
+            for (int step = 1; step <= 3000; step++)
+            {
+                int index = random.nextInt(users.size());
+                if (users.get(index).isPowerPhase())
+                {
+                    balancer.setUserGene(solution, index, solution.getPhase(index), (byte) random.nextInt(3));
+                }
+                else
+                {
+                    balancer.setUserGene(solution, index, (byte) (1 + random.nextInt(3)), (byte) 1);
+                }
+
+                if (step % 100 == 0)
+                {
+                    assertMatchesRecalculation(balancer, solution, users, objective);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void localSearchKeepsDaySumsConsistent()
+    {
+        for (PhaseBalancer.MultiDayObjective objective : PhaseBalancer.MultiDayObjective.values())
+        {
+            List<User> users = multiDayUsers(150, 3L);
+            PhaseBalancer balancer = new PhaseBalancer(users, TestFeeders.branchGroups());
+            balancer.setMultiDayObjective(objective);
+            List<PhaseBalancer.Solution> population = balancer.initializePopulation(10, new Random(5L));
+
+            for (PhaseBalancer.Solution solution : population)
+            {
+                double before = solution.getFitness();
+                balancer.localSearch(solution);
+                assertMatchesRecalculation(balancer, solution, users, objective);
+                assertTrue(solution.getFitness() <= before + TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void fallsBackToSingleDayWhenAnyUserHasFewerThanTwoDays()
+    {
+        List<User> users = multiDayUsers(60, 13L);
+        User user = users.get(17);
+        user.setDailyPowers(new double[][] { { user.getPhaseAPower(), user.getPhaseBPower(), user.getPhaseCPower() } });
+        BalanceProblem problem = new BalanceProblem(users, TestFeeders.branchGroups());
+        assertEquals(0, problem.dayCount);
+
+        user.setDailyPowers(null);
+        problem = new BalanceProblem(users, TestFeeders.branchGroups());
+        assertEquals(0, problem.dayCount);
+
+        // 单日模式不维护各天的三相电量，不平衡度按当天电量计算
+        PhaseBalancer balancer = new PhaseBalancer(problem);
+        PhaseBalancer.Solution solution = balancer.initializePopulation(1, new Random(1L)).get(0);
+        assertNull(solution.getDayPhasePowers());
+        double[] phasePowers = solution.getPhasePowers();
+        assertEquals(UnbalanceCalculator.calculateUnbalanceRate(phasePowers[0], phasePowers[1], phasePowers[2]),
+            solution.getUnbalanceRate(), TOLERANCE);
+    }
+
+    // 每个用户DAY_COUNT天的电量，各天在当天电量基础上随机浮动，第0天为当天
+    private static List<User> multiDayUsers(int userCount, long seed)
+    {
+        List<User> users = TestFeeders.users(userCount, 0.2, seed);
+        Random random = new Random(seed + 1);
+        for (User user : users)
+        {
+            double[][] dailyPowers = new double[DAY_COUNT][];
+            for (int d = 0; d < DAY_COUNT; d++)
+            {
+                double factor = d == 0 ? 1.0 : 0.5 + random.nextDouble();
+                dailyPowers[d] = new double[] {
+                    user.getPhaseAPower() * factor, user.getPhaseBPower() * factor, user.getPhaseCPower() * factor
+                };
+            }
+            user.setDailyPowers(dailyPowers);
+        }
+        return users;
+    }
+
+    // 各天三相电量与全量重算一致，每天三相之和等于所有用户当天的电量之和，
+    // 不平衡度为各天不平衡度的最大值或平均值
+    private static void assertMatchesRecalculation(PhaseBalancer balancer, PhaseBalancer.Solution solution,
+                                                   List<User> users, PhaseBalancer.MultiDayObjective objective)
+    {
+        PhaseBalancer.Solution expected = new PhaseBalancer.Solution(solution);
+        balancer.recalculateSolution(expected);
+
+        double[] dayPhasePowers = solution.getDayPhasePowers();
+        assertArrayEquals(expected.getDayPhasePowers(), dayPhasePowers, TOLERANCE);
+        assertArrayEquals(expected.getPhasePowers(), solution.getPhasePowers(), TOLERANCE);
+        assertEquals(expected.getUnbalanceRate(), solution.getUnbalanceRate(), TOLERANCE);
+        assertEquals(expected.getFitness(), solution.getFitness(), TOLERANCE);
+
+        double worst = 0.0;
+        double sum = 0.0;
+        for (int d = 0; d < DAY_COUNT; d++)
+        {
+            double dayTotal = 0.0;
+            for (User user : users)
+            {
+                double[] powers = user.getDailyPowers()[d];
+                dayTotal += powers[0] + powers[1] + powers[2];
+            }
+            assertEquals(dayTotal, dayPhasePowers[d * 3] + dayPhasePowers[d * 3 + 1] + dayPhasePowers[d * 3 + 2], TOLERANCE);
+
+            double rate = UnbalanceCalculator.calculateUnbalanceRate(
+                dayPhasePowers[d * 3], dayPhasePowers[d * 3 + 1], dayPhasePowers[d * 3 + 2]);
+            worst = Math.max(worst, rate);
+            sum += rate;
+        }
+        double rate = objective == PhaseBalancer.MultiDayObjective.MEAN ? sum / DAY_COUNT : worst;
+        assertEquals(rate, solution.getUnbalanceRate(), TOLERANCE);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 并行评估与单线程评估得到相同的结果
+ */
+public class ParallelEvaluationTest
+{
+    // 超过分支定界的用户数上限，保证走遗传算法
+    private static final int USER_COUNT = 400;
+
+    @Test
+    public void fitnessMatchesSequential()
+    {
+        List<User> users = TestFeeders.users(USER_COUNT, 0.1, 19L);
+        PhaseBalancer parallel = new PhaseBalancer(users, TestFeeders.branchGroups());
+        PhaseBalancer sequential = new PhaseBalancer(users, TestFeeders.branchGroups());
+        sequential.setParallelEvaluation(false);
+
+        List<PhaseBalancer.Solution> population = parallel.initializePopulation(parallel.getPopulationSize(), new Random(23L));
+        assertTrue(population.size() >= 64);
+        List<PhaseBalancer.Solution> parallelCopy = copy(population);
+        List<PhaseBalancer.Solution> sequentialCopy = copy(population);
+        parallel.calculateFitness(parallelCopy);
+        sequential.calculateFitness(sequentialCopy);
+
+        for (int i = 0; i < population.size(); i++)
+        {
+            assertEquals(sequentialCopy.get(i).getFitness(), parallelCopy.get(i).getFitness(), 0.0);
+            assertEquals(sequentialCopy.get(i).getHash(), parallelCopy.get(i).getHash());
+        }
+    }
+
+    @Test
+    public void optimizeMatchesSequential()
+    {
+        List<User> users = TestFeeders.users(USER_COUNT, 0.1, 29L);
+        PhaseBalancer parallel = new PhaseBalancer(users, TestFeeders.branchGroups());
+        PhaseBalancer sequential = new PhaseBalancer(users, TestFeeders.branchGroups());
+        sequential.setParallelEvaluation(false);
+
+        PhaseBalancer.Solution parallelSolution = parallel.optimize();
+        PhaseBalancer.Solution sequentialSolution = sequential.optimize();
+
+        assertNotNull(parallelSolution);
+        assertNotNull(sequentialSolution);
+        assertEquals(sequentialSolution.getFitness(), parallelSolution.getFitness(), 0.0);
+        for (int i = 0; i < USER_COUNT; i++)
+        {
+            assertEquals(sequentialSolution.getPhase(i), parallelSolution.getPhase(i));
+            assertEquals(sequentialSolution.getMoves(i), parallelSolution.getMoves(i));
+        }
+    }
+
+    // 复制并清除计算标志，使calculateFitness重新计算
+    private static List<PhaseBalancer.Solution> copy(List<PhaseBalancer.Solution> population)
+    {
+        List<PhaseBalancer.Solution> copies = new ArrayList<>(population.size());
+        for (PhaseBalancer.Solution solution : population)
+        {
+            PhaseBalancer.Solution copy = new PhaseBalancer.Solution(solution);
+            copy.resetCalculation();
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多目标模式能在限定时间内结束，并返回互不支配的有效解
+ */
+public class ParetoModeTest
+{
+    private static final double TOLERANCE = 1e-6;
+
+    @Test(timeout = 120000)
+    public void returnsNonDominatedFront()
+    {
+        PhaseBalancer balancer = new PhaseBalancer(TestFeeders.users(150, 0.1, 21L), TestFeeders.branchGroups());
+        List<PhaseBalancer.Solution> front = balancer.optimizePareto();
+
+        assertFalse(front.isEmpty());
+        for (PhaseBalancer.Solution solution : front)
+        {
+            assertTrue(solution.getUnbalanceRate() < 15.0);
+        }
+        for (PhaseBalancer.Solution first : front)
+        {
+            for (PhaseBalancer.Solution second : front)
+            {
+                assertFalse(first != second && dominates(first, second));
+            }
+        }
+    }
+
+    // 三个目标都不差且至少一个更好
+    private static boolean dominates(PhaseBalancer.Solution first, PhaseBalancer.Solution second)
+    {
+        double[] a = { first.getUnbalanceRate(), first.getChangeRatio(), first.getAdjustmentCost() };
+        double[] b = { second.getUnbalanceRate(), second.getChangeRatio(), second.getAdjustmentCost() };
+        boolean better = false;
+        for (int i = 0; i < a.length; i++)
+        {
+            if (a[i] > b[i] + TOLERANCE) return false;
+            if (a[i] < b[i] - TOLERANCE) better = true;
+        }
+        return better;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.sanxiang.phasebalance.algorithm;
+
+import com.example.sanxiang.phasebalance.model.BranchGroup;
+import com.example.sanxiang.phasebalance.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 单元测试用的小台区数据，相同的参数和种子总是生成相同的数据
+ */
+final class TestFeeders
+{
+    static final int ROUTE_COUNT = 3;
+    static final int BRANCHES_PER_ROUTE = 3;
+
+    private TestFeeders()
+    {
+    }
+
+    // 普通用户电量1~20，偏向A相；动力用户三相各5~15
+    static List<User> users(int userCount, double powerUserShare, long seed)
+    {
+        Random random = new Random(seed);
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++)
+        {
+            String routeNumber = String.valueOf(1 + random.nextInt(ROUTE_COUNT));
+            String branchNumber = String.valueOf(1 + random.nextInt(BRANCHES_PER_ROUTE));
+            boolean isPowerPhase = random.nextDouble() < powerUserShare;
+
+            double phaseA = 0.0;
+            double phaseB = 0.0;
+            double phaseC = 0.0;
+            byte currentPhase;
+            if (isPowerPhase)
+            {
+                phaseA = 5 + random.nextDouble() * 10;
+                phaseB = 5 + random.nextDouble() * 10;
+                phaseC = 5 + random.nextDouble() * 10;
+                currentPhase = 1;
+            }
+            else
+            {
+                double power = 1 + random.nextDouble() * 19;
+                int phase = random.nextDouble() < 0.5 ? 0 : 1 + random.nextInt(2);
+                currentPhase = (byte) (phase + 1);
+                if (phase == 0) phaseA = power;
+                else if (phase == 1) phaseB = power;
+                else phaseC = power;
+            }
+
+            users.add(new User("U" + i, "用户" + i, routeNumber, branchNumber,
+                phaseA + phaseB + phaseC, phaseA, phaseB, phaseC, currentPhase, isPowerPhase));
+        }
+        return users;
+    }
+
+    // 每条回路的第一条支线作为支线组
+    static List<BranchGroup> branchGroups()
+    {
+        List<BranchGroup> groups = new ArrayList<>();
+        for (int route = 1; route <= ROUTE_COUNT; route++)
+        {
+            groups.add(new BranchGroup(String.valueOf(route), "1"));
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.sanxiang.phasebalance.cli;
+
+import com.example.sanxiang.phasebalance.model.User;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 命令行工具读取用户数据：按标准化后的日期取最近几天，跳过格式错误的行
+ */
+public class PhaseBalanceCliTest
+{
+    private static final String HEADER = "日期,用户编号,用户名称,回路编号,支线编号,相位,A相电量,B相电量,C相电量";
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void latestDayIsComparedAfterStandardization() throws IOException
+    {
+        // 按字符串比较时2024/1/9会排在2024/1/10之后
+        File file = writeCsv(
+            "2024/1/9,U1,用户1,1,1,A,9,0,0",
+            "2024/1/10,U1,用户1,1,1,B,0,10,0",
+            "2024-01-08,U1,用户1,1,1,A,8,0,0"
+        );
+
+        List<User> users = PhaseBalanceCli.readUsers(file, 1);
+        assertEquals(1, users.size());
+        assertEquals(10.0, users.get(0).getPhaseBPower(), TOLERANCE);
+        assertEquals(2, users.get(0).getCurrentPhase());
+        assertNull(users.get(0).getDailyPowers());
+    }
+
+    @Test
+    public void keepsAtMostDayCountDaysNewestFirst() throws IOException
+    {
+        File file = writeCsv(
+            "2024/1/9,U1,用户1,1,1,A,9,0,0",
+            "2024/1/10,U1,用户1,1,1,A,10,0,0",
+            "2024.1.11,U1,用户1,1,1,A,11,0,0",
+            "240108,U1,用户1,1,1,A,8,0,0",
+            "2024-01-11,U2,用户2,2,1,C,0,0,5"
+        );
+
+        List<User> users = PhaseBalanceCli.readUsers(file, 3);
+        assertEquals(2, users.size());
+
+        User first = users.get(0);
+        assertEquals("U1", first.getUserId());
+        assertEquals(11.0, first.getPhaseAPower(), TOLERANCE);
+        double[][] dailyPowers = first.getDailyPowers();
+        assertEquals(3, dailyPowers.length);
+        assertArrayEquals(new double[] { 11, 0, 0 }, dailyPowers[0], TOLERANCE);
+        assertArrayEquals(new double[] { 10, 0, 0 }, dailyPowers[1], TOLERANCE);
+        assertArrayEquals(new double[] { 9, 0, 0 }, dailyPowers[2], TOLERANCE);
+
+        // 只有一天数据的用户不记录多日电量
+        assertEquals("U2", users.get(1).getUserId());
+        assertNull(users.get(1).getDailyPowers());
+    }
+
+    @Test
+    public void skipsMalformedRows() throws IOException
+    {
+        File file = writeCsv(
+            "2024/1/10,U1,用户1,1,1,A,10,0,0",
+            "2024/1/11,U1,用户1,1,1,A,abc,0,0",
+            "2024/2/30,U1,用户1,1,1,A,30,0,0",
+            "不是日期,U1,用户1,1,1,A,40,0,0",
+            "2024/1/12,,用户1,1,1,A,12,0,0",
+            "2024/1/12,U1,用户1,1,1,A,12,0",
+            "",
+            "2024/1/9,U2,用户2,1,2,B,0,0,0",
+            "2024/1/9,U3,用户3,1,2,B,3,4,5"
+        );
+
+        List<User> users = PhaseBalanceCli.readUsers(file, 7);
+        assertEquals(2, users.size());
+        assertEquals("U1", users.get(0).getUserId());
+        assertEquals(10.0, users.get(0).getTotalPower(), TOLERANCE);
+        assertNull(users.get(0).getDailyPowers());
+
+        // 总电量为0的用户不参与优化，三相都有电量的为动力用户
+        assertEquals("U3", users.get(1).getUserId());
+        assertTrue(users.get(1).isPowerPhase());
+    }
+
+    private static File writeCsv(String... rows) throws IOException
+    {
+        File file = File.createTempFile("users", ".csv");
+        file.deleteOnExit();
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (String row : rows)
+        {
+            content.append(row).append('\n');
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.sanxiang.util;
+
+import com.example.sanxiang.userdata.model.UserData;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CSV流水线导入的分批、取消、出错、文件打开失败和重复数据覆盖
+ */
+public class CsvImportPipelineTest
+{
+    private static final String HEADER = "日期,用户编号,用户名称,回路编号,支线编号,相位,A相电量,B相电量,C相电量\n";
+
+    @Test(timeout = 30000)
+    public void cancelStopsAllStages()
+    {
+        String csv = generateCsv(10, 5000, true);
+        List<Long> batchRows = new ArrayList<>();
+        CsvImportPipeline[] pipeline = new CsvImportPipeline[1];
+        pipeline[0] = new CsvImportPipeline(Arrays.asList(source(csv)), batch -> {
+            batchRows.add(countRows(batch));
+            pipeline[0].cancel();
+        });
+
+        CsvImportPipeline.Progress result = pipeline[0].run(null);
+
+        assertTrue(result.isCancelled());
+        assertTrue(result.isFinished());
+        assertEquals(1, batchRows.size());
+        assertEquals((long) batchRows.get(0), result.getRowsWritten());
+        assertTrue(result.getRowsWritten() < 10 * 5000);
+    }
+
+    @Test(timeout = 30000)
+    public void writerErrorIsReportedWithoutDeadlock()
+    {
+        RuntimeException failure = new RuntimeException("磁盘已满");
+        CsvImportPipeline pipeline = new CsvImportPipeline(Arrays.asList(source(generateCsv(10, 5000, true))), batch -> {
+            throw failure;
+        });
+
+        CsvImportPipeline.Progress result = pipeline.run(null);
+
+        assertTrue(result.getError() == failure);
+        assertFalse(result.isCancelled());
+        assertEquals(0, result.getRowsWritten());
+    }
+
+    @Test(timeout = 30000)
+    public void failedFileDoesNotStopLaterFiles()
+    {
+        CsvImportPipeline.Source missing = () -> {
+            throw new IOException("无法打开文件");
+        };
+        Map<String, UserData> written = new HashMap<>();
+        CsvImportPipeline pipeline = new CsvImportPipeline(
+            Arrays.asList(missing, source(generateCsv(3, 10, true))), batch -> collect(batch, written));
+
+        CsvImportPipeline.Progress result = pipeline.run(null);
+
+        assertEquals(1, result.getFailedFileCount());
+        assertEquals(30, result.getRowsWritten());
+        assertEquals(30, written.size());
+        assertTrue(result.getError() == null);
+    }
+
+    @Test(timeout = 30000)
+    public void laterFileWinsOnDuplicateUserAndDate()
+    {
+        String first = HEADER + "2024-01-09,U1,用户1,1,1,A,1.0,0,0\n2024-01-09,U2,用户2,1,1,B,0,5.0,0\n";
+        String second = HEADER + "2024/1/9,U1,用户1,1,1,C,0,0,2.0\n";
+        Map<String, UserData> written = new HashMap<>();
+        CsvImportPipeline pipeline = new CsvImportPipeline(
+            Arrays.asList(source(first), source(second)), batch -> collect(batch, written));
+
+        CsvImportPipeline.Progress result = pipeline.run(null);
+
+        assertEquals(3, result.getRowsWritten());
+        assertEquals(2, written.size());
+        UserData u1 = written.get("2024-01-09/U1");
+        assertNotNull(u1);
+        assertEquals("C", u1.getPhase());
+        assertEquals(2.0, u1.getPhaseCPower(), 0.0);
+        assertEquals(5.0, written.get("2024-01-09/U2").getPhaseBPower(), 0.0);
+    }
+
+    @Test(timeout = 60000)
+    public void dateSortedFileSplitsAtDateBoundaries()
+    {
+        List<Map<String, Map<String, List<UserData>>>> batches = importAll(generateCsv(30, 4000, true));
+
+        // 每批在积累到5000行以后的第一个日期变化处结束，即每两天一批，每个日期只出现在一批中
+        assertEquals(15, batches.size());
+        for (Map<String, Map<String, List<UserData>>> batch : batches)
+        {
+            assertEquals(2, batch.size());
+            assertEquals(8000, countRows(batch));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void userSortedFileGrowsBatchesToLimit()
+    {
+        List<Map<String, Map<String, List<UserData>>>> batches = importAll(generateCsv(30, 4000, false));
+
+        // 日期交错时不在日期变化处分批，只在达到100000行时分批
+        assertEquals(2, batches.size());
+        assertEquals(100000, countRows(batches.get(0)));
+        assertEquals(20000, countRows(batches.get(1)));
+    }
+
+    private static List<Map<String, Map<String, List<UserData>>>> importAll(String csv)
+    {
+        List<Map<String, Map<String, List<UserData>>>> batches = new ArrayList<>();
+        CsvImportPipeline pipeline = new CsvImportPipeline(Arrays.asList(source(csv)), batches::add);
+        CsvImportPipeline.Progress result = pipeline.run(null);
+        assertTrue(result.getError() == null);
+        return batches;
+    }
+
+    // 生成dayCount天、每天userCount个用户的数据，byDate为true时按日期排序，否则按用户排序
+    static String generateCsv(int dayCount, int userCount, boolean byDate)
+    {
+        StringBuilder csv = new StringBuilder(HEADER);
+        int outer = byDate ? dayCount : userCount;
+        int inner = byDate ? userCount : dayCount;
+        for (int i = 0; i < outer; i++)
+        {
+            for (int j = 0; j < inner; j++)
+            {
+                int day = byDate ? i : j;
+                int user = byDate ? j : i;
+                csv.append(String.format("2024-01-%02d,U%d,用户%d,1,1,A,%d.5,0,0\n", day + 1, user, user, user % 10));
+            }
+        }
+        return csv.toString();
+    }
+
+    static CsvImportPipeline.Source source(String csv)
+    {
+        return () -> new StringReader(csv);
+    }
+
+    static long countRows(Map<String, Map<String, List<UserData>>> batch)
+    {
+        long rows = 0;
+        for (Map<String, List<UserData>> users : batch.values())
+        {
+            for (List<UserData> userRows : users.values())
+            {
+                rows += userRows.size();
+            }
+        }
+        return rows;
+    }
+
+    // 与数据库的INSERT OR REPLACE相同：同一用户同一日期后写入的行覆盖先写入的行
+    private static void collect(Map<String, Map<String, List<UserData>>> batch, Map<String, UserData> written)
+    {
+        for (Map<String, List<UserData>> users : batch.values())
+        {
+            for (List<UserData> userRows : users.values())
+            {
+                for (UserData userData : userRows)
+                {
+                    written.put(userData.getDate() + "/" + userData.getUserId(), userData);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.sanxiang.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * StandardDate与原DateValidator.standardizeDate的转换结果相同
+ */
+public class StandardDateTest
+{
+    private static final String[] SEPARATORS = { "-", "/", "." };
+
+    @Test
+    public void matchesOriginalOnAllSupportedFormats()
+    {
+        int[] years = { 1999, 2000, 2023, 2024, 2099, 2100, 2101 };
+        for (int year : years)
+        {
+            for (int month = 0; month <= 13; month++)
+            {
+                for (int day = 0; day <= 32; day++)
+                {
+                    for (String date : formats(year, month, day))
+                    {
+                        assertEquals(date, standardizeDate(date), StandardDate.standardize(date));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesOriginalOnMalformedInput()
+    {
+        String[] dates = {
+            null, "", "   ", " 2024 - 1 - 9 ", "2024-1", "2024-1-9-1", "2024--9", "abc", "2024-a-9",
+            "2024/1.9", "1.9", "20240230", "2400229", "240229", "2024229", "12345", "123456789", "-2024-1-9"
+        };
+        for (String date : dates)
+        {
+            assertEquals(String.valueOf(date), standardizeDate(date), StandardDate.standardize(date));
+        }
+    }
+
+    // 一个日期的13种带分隔符写法，以及不带分隔符的yyyyMMdd、yyMMdd、yyMdd
+    private static List<String> formats(int year, int month, int day)
+    {
+        List<String> dates = new ArrayList<>();
+        String shortYear = String.format("%02d", year % 100);
+        for (String separator : SEPARATORS)
+        {
+            dates.add(String.format("%04d%s%02d%s%02d", year, separator, month, separator, day));
+            dates.add(String.format("%s%s%02d%s%02d", shortYear, separator, month, separator, day));
+            dates.add(year + separator + month + separator + day);
+            dates.add(shortYear + separator + month + separator + day);
+        }
+        dates.add(String.format("%04d%02d%02d", year, month, day));
+        dates.add(String.format("%s%02d%02d", shortYear, month, day));
+        dates.add(String.format("%s%d%02d", shortYear, month, day));
+        return dates;
+    }
+
+    // 原DateValidator.standardizeDate的实现，作为对照
+    private static String standardizeDate(String date)
+    {
+        if (date == null || date.trim().isEmpty())
+        {
+            return null;
+        }
+
+        date = date.trim().replace(" ", "");
+        try
+        {
+            String[] parts;
+            if (date.contains("-"))
+            {
+                parts = date.split("-");
+            }
+            else if (date.contains("/"))
+            {
+                parts = date.split("/");
+            }
+            else if (date.contains("."))
+            {
+                parts = date.split("\\.");
+            }
+            else if (date.length() == 8)
+            {
+                parts = new String[] { date.substring(0, 4), date.substring(4, 6), date.substring(6, 8) };
+            }
+            else if (date.length() >= 6 && date.length() <= 8)
+            {
+                parts = new String[] {
+                    date.substring(0, 2), date.substring(2, date.length() - 2), date.substring(date.length() - 2)
+                };
+            }
+            else
+            {
+                return null;
+            }
+
+            if (parts.length != 3)
+            {
+                return null;
+            }
+
+            int year = parts[0].length() == 2 ? Integer.parseInt("20" + parts[0]) : Integer.parseInt(parts[0]);
+            int month = Integer.parseInt(parts[1]);
+            int day = Integer.parseInt(parts[2]);
+            if (year < 2000 || year > 2100 || month < 1 || month > 12)
+            {
+                return null;
+            }
+
+            int[] daysInMonth = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+            if (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))
+            {
+                daysInMonth[1] = 29;
+            }
+            if (day < 1 || day > daysInMonth[month - 1])
+            {
+                return null;
+            }
+            return String.format("%04d-%02d-%02d", year, month, day);
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+}
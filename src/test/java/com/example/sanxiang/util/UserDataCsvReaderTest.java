@@ -0,0 +1,160 @@
+package com.example.sanxiang.util;
+
+import com.example.sanxiang.userdata.model.UserData;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 流式读取与原来按split和Double.parseDouble解析的结果一致
+ */
+public class UserDataCsvReaderTest
+{
+    private static final String HEADER = "日期,用户编号,用户名称,回路编号,支线编号,相位,A相电量,B相电量,C相电量\n";
+
+    @Test
+    public void matchesSplitParsingOnMixedInput() throws IOException
+    {
+        String csv = HEADER
+            + "2024-01-09,U1,用户1,1,2,A,12.5,0,0\n"
+            + "2024-01-09,U2,用户2,1,2,B,007.250,+3,-0\n"          // 前导零、正负号
+            + "2024-01-09,U3,用户3,1,2,C,1.,0.5,.5\n"              // 小数点在两端
+            + "2024-01-09,U4,用户4,1,2,A,.,1,2\n"                  // 只有小数点
+            + "2024-01-09,U5,用户5,1,2,A,1234567890123456789,0.1234567890123456789,99999999999999.99\n"  // 超过15位
+            + "2024-01-09,U6,用户6,1,2,A,1e3,2.5E-2,-1.5e+2\n"     // 指数
+            + "  2024-01-10 , U7 ,\t用户7 , 1 , 2 , A ,  3.25 ,\t4 , 5\t\n"  // 首尾空白
+            + "2024-01-10,U8,用户8,1,2,A,1,2\n"                    // 列数不足
+            + "2024-01-10,U9,用户9,1,2,A,1,2,\n"                   // 最后一列为空
+            + "\n"
+            + "   \t \n"                                           // 空行
+            + "2024-01-10,,用户10,1,2,A,1,2,3\n"                   // 用户编号为空
+            + " ,U11,用户11,1,2,A,1,2,3\n"                         // 日期为空
+            + "2024-01-10,U12,用户12,1,2,A,abc,2,3\n"              // 不是数字
+            + "2024-01-10,U13,用户13,1,2,A,1.2.3,2,3\n"            // 两个小数点
+            + "2024-01-10,U14,用户14,1,2,A,+,-,3\n"                // 只有符号
+            + "2024-01-10,U15,用户15,1,2,A,1d,2f,0x1p3\n"          // Double.parseDouble接受的其他写法
+            + "2024-01-10,U16,用户16,1,2,A,1,2,3,多余的列\n"       // 多余的列
+            + "2024-01-10,U17,用户17,1,2,A,0.000000000000001,000000000000000000001,1e400\r\n"  // Windows换行
+            + "2024-01-10,U18,用户18,1,2,A,4,5,6";                 // 最后一行没有换行符
+        assertSameAsSplitParsing(csv);
+    }
+
+    @Test
+    public void matchesParseDoubleOnRandomNumbers() throws IOException
+    {
+        Random random = new Random(7L);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 20000; i++)
+        {
+            csv.append("2024-01-09,U").append(i).append(",用户,1,1,A,")
+                .append(randomNumber(random)).append(',')
+                .append(randomNumber(random)).append(',')
+                .append(randomNumber(random)).append('\n');
+        }
+        assertSameAsSplitParsing(csv.toString());
+    }
+
+    // 随机的十进制数：可能带符号、前导零、小数点和指数，有效数字1到20位
+    private static String randomNumber(Random random)
+    {
+        StringBuilder number = new StringBuilder();
+        int sign = random.nextInt(4);
+        if (sign == 0) number.append('-');
+        else if (sign == 1) number.append('+');
+        int digits = 1 + random.nextInt(20);
+        int point = random.nextInt(digits + 2) - 1;  // -1表示没有小数点
+        for (int d = 0; d < digits; d++)
+        {
+            if (d == point) number.append('.');
+            number.append((char) ('0' + random.nextInt(10)));
+        }
+        if (point == digits) number.append('.');
+        if (random.nextInt(10) == 0) number.append('e').append(random.nextInt(21) - 10);
+        return number.toString();
+    }
+
+    private static void assertSameAsSplitParsing(String csv) throws IOException
+    {
+        List<UserData> expected = new ArrayList<>();
+        int expectedSkipped = parseWithSplit(csv, expected);
+
+        List<UserData> actual = new ArrayList<>();
+        UserDataCsvReader reader = new UserDataCsvReader(new StringReader(csv));
+        UserData userData;
+        while ((userData = reader.next()) != null)
+        {
+            actual.add(userData);
+        }
+        reader.close();
+
+        assertEquals(expectedSkipped, reader.getSkippedCount());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            UserData e = expected.get(i);
+            UserData a = actual.get(i);
+            assertEquals(e.getDate(), a.getDate());
+            assertEquals(e.getUserId(), a.getUserId());
+            assertEquals(e.getUserName(), a.getUserName());
+            assertEquals(e.getRouteNumber(), a.getRouteNumber());
+            assertEquals(e.getBranchNumber(), a.getBranchNumber());
+            assertEquals(e.getPhase(), a.getPhase());
+            assertEquals(Double.doubleToLongBits(e.getPhaseAPower()), Double.doubleToLongBits(a.getPhaseAPower()));
+            assertEquals(Double.doubleToLongBits(e.getPhaseBPower()), Double.doubleToLongBits(a.getPhaseBPower()));
+            assertEquals(Double.doubleToLongBits(e.getPhaseCPower()), Double.doubleToLongBits(a.getPhaseCPower()));
+        }
+    }
+
+    // 改为流式读取之前的解析方式：按行读取，split切分，trim后用Double.parseDouble解析，返回跳过的行数
+    private static int parseWithSplit(String csv, List<UserData> rows) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new StringReader(csv));
+        reader.readLine();
+        int skipped = 0;
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            if (line.trim().isEmpty()) continue;
+
+            String[] data = line.split(",");
+            if (data.length < 9 || data[0].trim().isEmpty() || data[1].trim().isEmpty())
+            {
+                skipped++;
+                continue;
+            }
+            double phaseA, phaseB, phaseC;
+            try
+            {
+                phaseA = Double.parseDouble(data[6].trim());
+                phaseB = Double.parseDouble(data[7].trim());
+                phaseC = Double.parseDouble(data[8].trim());
+            }
+            catch (NumberFormatException e)
+            {
+                skipped++;
+                continue;
+            }
+
+            UserData userData = new UserData();
+            userData.setDate(data[0].trim());
+            userData.setUserId(data[1].trim());
+            userData.setUserName(data[2].trim());
+            userData.setRouteNumber(data[3].trim());
+            userData.setBranchNumber(data[4].trim());
+            userData.setPhase(data[5].trim());
+            userData.setPhaseAPower(phaseA);
+            userData.setPhaseBPower(phaseB);
+            userData.setPhaseCPower(phaseC);
+            rows.add(userData);
+        }
+        return skipped;
+    }
+}